@@ -0,0 +1,87 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.CryptoStats;
+import com.example.cryptorecommendation.repository.CryptoStatsRepository;
+import com.example.cryptorecommendation.service.CryptoCluster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic crypto data shared by benchmarks. Prices are random walks with one tick per minute.
+ */
+final class BenchmarkData {
+
+    static final LocalDateTime HISTORY_START = LocalDateTime.of(2020, 1, 1, 0, 0);
+    static final long TICK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Cluster settings of a deployment without crypto.cluster.enabled, owning all cryptos.
+     */
+    static CryptoCluster singleNode() {
+        return new CryptoCluster(false, List.of(), "", 128, "", Duration.ofSeconds(2), new ObjectMapper());
+    }
+
+    static String symbol(int index) {
+        return "C%05d".formatted(index);
+    }
+
+    static CryptoPriceSeries createPriceSeries(int ticks, long seed) {
+        var random = new Random(seed);
+        var series = new CryptoPriceSeries(4);
+        var start = HISTORY_START.toInstant(ZoneOffset.UTC).toEpochMilli();
+        var price = 10 + random.nextDouble() * 1000;
+        for (int i = 0; i < ticks; i++) {
+            price = Math.max(0.0001, price * (1 + random.nextGaussian() * 0.001));
+            series.append(start + i * TICK_MILLIS, price);
+        }
+        return series;
+    }
+
+    static Path writeCsvFile(Path directory, String symbol, int ticks, long seed) throws IOException {
+        var series = createPriceSeries(ticks, seed);
+        var file = directory.resolve(symbol + "_values.csv");
+        try (var writer = Files.newBufferedWriter(file)) {
+            writer.write("timestamp,symbol,price\n");
+            for (int i = 0; i < series.size(); i++) {
+                writer.write("%d,%s,%s\n".formatted(series.getTimestamp(i), symbol,
+                        String.format(Locale.ROOT, "%.4f", series.getPrice(i))));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Stats repository that never has stats, so every stats request is calculated.
+     */
+    static class NoCacheStatsRepository implements CryptoStatsRepository {
+
+        @Override
+        public void save(CryptoStats cryptoStats, long version, LocalDateTime fromDate, LocalDateTime toDate) {
+        }
+
+        @Override
+        public CryptoStats getCryptoStatsForRange(String cryptoSymbol, long version, LocalDateTime fromDate,
+                                                  LocalDateTime toDate) {
+            return null;
+        }
+
+        @Override
+        public void moveCryptoStatsNotOverlappingRange(String cryptoSymbol, long version, long newVersion,
+                                                       LocalDateTime fromDate, LocalDateTime toDate) {
+        }
+    }
+}
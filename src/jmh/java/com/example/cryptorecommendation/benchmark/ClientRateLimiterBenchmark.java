@@ -0,0 +1,44 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.rest.ClientRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit overhead per request with many request threads, for one client (all threads take tokens of one
+ * bucket) and for many clients. Capacity is high enough that no request is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class ClientRateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int clients;
+
+    private ClientRateLimiter clientRateLimiter;
+    private String[] clientKeys;
+
+    @Setup
+    public void setUp() {
+        clientRateLimiter = new ClientRateLimiter(1_000_000_000L, Duration.ofSeconds(1), 100_000, 31,
+                new SimpleMeterRegistry());
+        clientKeys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientKeys[i] = "10.0.%d.%d".formatted(i / 256, i % 256);
+        }
+    }
+
+    @Benchmark
+    public long consume() {
+        return clientRateLimiter.consume(clientKeys[ThreadLocalRandom.current().nextInt(clients)], 1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.dto.CryptoIngestResultDto;
+import com.example.cryptorecommendation.mapper.CryptoMapperImpl;
+import com.example.cryptorecommendation.repository.impl.CryptoStatsTemporaryRepository;
+import com.example.cryptorecommendation.repository.impl.CryptoTemporaryRepository;
+import com.example.cryptorecommendation.service.CryptoEpochs;
+import com.example.cryptorecommendation.service.CryptoIngestService;
+import com.example.cryptorecommendation.service.CryptoRecommendationService;
+import com.example.cryptorecommendation.service.RequestCoalescer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained ingest rate of CSV and NDJSON request bodies in ticks per second. Every request holds
+ * {@value #TICKS_PER_REQUEST} ticks of many cryptos, interleaved the way a market feed sends them.
+ * Every invocation ingests into a fresh service, so each one stores new cryptos and then appends to them,
+ * instead of merging the same ticks into the history of previous invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CryptoIngestServiceBenchmark.TICKS_PER_REQUEST)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CryptoIngestServiceBenchmark {
+
+    static final int TICKS_PER_REQUEST = 1 << 20;
+
+    @Param({"10", "1000", "10000"})
+    private int symbols;
+
+    private byte[] csv;
+    private byte[] ndjson;
+    private CryptoIngestService cryptoIngestService;
+
+    @Setup
+    public void setUp() {
+        var csvBuilder = new StringBuilder(TICKS_PER_REQUEST * 32);
+        var ndjsonBuilder = new StringBuilder(TICKS_PER_REQUEST * 64);
+        var random = new Random(1);
+        var prices = new double[symbols];
+        for (int i = 0; i < symbols; i++) {
+            prices[i] = 10 + random.nextDouble() * 1000;
+        }
+
+        var start = BenchmarkData.HISTORY_START.toInstant(ZoneOffset.UTC).toEpochMilli();
+        csvBuilder.append("timestamp,symbol,price\n");
+        for (int tick = 0; tick < TICKS_PER_REQUEST; tick++) {
+            int crypto = tick % symbols;
+            var timestamp = start + (tick / symbols) * BenchmarkData.TICK_MILLIS;
+            prices[crypto] = Math.max(0.0001, prices[crypto] * (1 + random.nextGaussian() * 0.001));
+            var price = String.format(Locale.ROOT, "%.4f", prices[crypto]);
+            var symbol = BenchmarkData.symbol(crypto);
+
+            csvBuilder.append(timestamp).append(',').append(symbol).append(',').append(price).append('\n');
+            ndjsonBuilder.append("{\"timestamp\":").append(timestamp).append(",\"symbol\":\"").append(symbol)
+                    .append("\",\"price\":").append(price).append("}\n");
+        }
+        csv = csvBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        ndjson = ndjsonBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpService() {
+        var cryptoRecommendationService = new CryptoRecommendationService(
+                new CryptoTemporaryRepository(new SimpleMeterRegistry()),
+                new CryptoStatsTemporaryRepository(100_000, new SimpleMeterRegistry()),
+                new CryptoMapperImpl(),
+                new RequestCoalescer(new SimpleMeterRegistry()), new CryptoEpochs());
+        cryptoIngestService = new CryptoIngestService(cryptoRecommendationService, new ObjectMapper(),
+                BenchmarkData.singleNode(), null);
+    }
+
+    @Benchmark
+    public CryptoIngestResultDto ingestCsv() throws IOException {
+        return cryptoIngestService.ingestCsv(new ByteArrayInputStream(csv), false);
+    }
+
+    @Benchmark
+    public CryptoIngestResultDto ingestNdjson() throws IOException {
+        return cryptoIngestService.ingestNdjson(new ByteArrayInputStream(ndjson), false);
+    }
+}
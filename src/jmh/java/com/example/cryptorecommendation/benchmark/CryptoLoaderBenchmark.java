@@ -0,0 +1,48 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.service.CryptoLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of one CSV price file into price series.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CryptoLoaderBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int ticks;
+
+    private CryptoLoader cryptoLoader;
+    private Path directory;
+    private String csvFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        cryptoLoader = new CryptoLoader(null, null, null, new SimpleMeterRegistry(), BenchmarkData.singleNode());
+        directory = Files.createTempDirectory("crypto-loader-benchmark");
+        csvFile = BenchmarkData.writeCsvFile(directory, "BTC", ticks, 1).toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public CryptoPriceSeries loadCryptoPricesFromCsvFile() throws IOException {
+        return cryptoLoader.loadCryptoPricesFromCsvFile(csvFile);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.dto.CryptoCandleListDto;
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeListDto;
+import com.example.cryptorecommendation.entity.CryptoStats;
+import com.example.cryptorecommendation.mapper.CryptoMapperImpl;
+import com.example.cryptorecommendation.repository.impl.CryptoStatsTemporaryRepository;
+import com.example.cryptorecommendation.repository.impl.CryptoTemporaryRepository;
+import com.example.cryptorecommendation.service.CryptoEpochs;
+import com.example.cryptorecommendation.service.CryptoRecommendationService;
+import com.example.cryptorecommendation.service.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths over synthetic data with configurable number of symbols and ticks per symbol.
+ * Cache miss benchmarks use a service whose stats repository never has stats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CryptoRecommendationServiceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int symbols;
+
+    @Param({"1000", "10000"})
+    private int ticksPerSymbol;
+
+    private CryptoRecommendationService cachedService;
+    private CryptoRecommendationService uncachedService;
+    private LocalDateTime dateTimeFrom;
+    private LocalDateTime dateTimeTo;
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+
+    @Setup
+    public void setUp() {
+        var cryptoRepository = new CryptoTemporaryRepository(new SimpleMeterRegistry());
+        cachedService = new CryptoRecommendationService(cryptoRepository,
+                new CryptoStatsTemporaryRepository(100_000, new SimpleMeterRegistry()),
+                new CryptoMapperImpl(),
+                new RequestCoalescer(new SimpleMeterRegistry()), new CryptoEpochs());
+        uncachedService = new CryptoRecommendationService(cryptoRepository,
+                new BenchmarkData.NoCacheStatsRepository(),
+                new CryptoMapperImpl(),
+                new RequestCoalescer(new SimpleMeterRegistry()), new CryptoEpochs());
+
+        for (int i = 0; i < symbols; i++) {
+            cachedService.saveCrypto(BenchmarkData.symbol(i), BenchmarkData.createPriceSeries(ticksPerSymbol, i));
+        }
+
+        dateFrom = BenchmarkData.HISTORY_START.toLocalDate();
+        dateTo = BenchmarkData.HISTORY_START.plusMinutes(ticksPerSymbol / 2).toLocalDate().plusDays(1);
+        dateTimeFrom = dateFrom.atStartOfDay();
+        dateTimeTo = dateTo.atStartOfDay();
+
+        cachedService.getCryptoStats(BenchmarkData.symbol(0), dateTimeFrom, dateTimeTo);
+    }
+
+    @Benchmark
+    public CryptoStats getCryptoStatsCacheHit() {
+        return cachedService.getCryptoStats(BenchmarkData.symbol(0), dateTimeFrom, dateTimeTo);
+    }
+
+    @Benchmark
+    public CryptoStats getCryptoStatsCacheMiss() {
+        return uncachedService.getCryptoStats(BenchmarkData.symbol(0), dateTimeFrom, dateTimeTo);
+    }
+
+    @Benchmark
+    public CryptoNormalizedRangeListDto getNormalizedCryptosListDescendingAllTime() {
+        return cachedService.getNormalizedCryptosListDescending(null, null, 10, 0);
+    }
+
+    @Benchmark
+    public CryptoNormalizedRangeListDto getNormalizedCryptosListDescendingDateRange() {
+        return uncachedService.getNormalizedCryptosListDescending(dateFrom, dateTo, 10, 0);
+    }
+
+    @Benchmark
+    public CryptoCandleListDto getCandlesHourly() {
+        return cachedService.getCandles(BenchmarkData.symbol(0), "1h", null, null, 1000);
+    }
+
+    @Benchmark
+    public CryptoNormalizedRangeDto cryptoWithHighestNormalizedRangeByDay() {
+        return cachedService.cryptoWithHighestNormalizedRangeByDay(dateFrom);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.service.CryptoLoader;
+import com.example.cryptorecommendation.service.CryptoSnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start loading of crypto directory from CSV files compared with loading from binary snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CryptoSnapshotBenchmark {
+
+    @Param({"10"})
+    private int symbols;
+
+    @Param({"1000000"})
+    private int ticksPerSymbol;
+
+    private CryptoLoader cryptoLoader;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("crypto-snapshot-benchmark");
+        var pricesDirectory = Files.createDirectory(directory.resolve("prices"));
+        for (int i = 0; i < symbols; i++) {
+            BenchmarkData.writeCsvFile(pricesDirectory, BenchmarkData.symbol(i), ticksPerSymbol, i);
+        }
+
+        var snapshotStore = new CryptoSnapshotStore(true, directory.resolve("prices.snapshot").toString());
+        cryptoLoader = new CryptoLoader(null, snapshotStore, null, new SimpleMeterRegistry(),
+                BenchmarkData.singleNode());
+        cryptoLoader.writeSnapshot(pricesDirectory.toString(),
+                cryptoLoader.loadCryptoDataFromDirectory(pricesDirectory.toString()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public Map<String, CryptoPriceSeries> loadFromCsv() throws IOException {
+        return cryptoLoader.loadCryptoDataFromDirectory(directory.resolve("prices").toString());
+    }
+
+    @Benchmark
+    public Map<String, CryptoPriceSeries> loadFromSnapshot() throws IOException {
+        return cryptoLoader.loadCryptoDataFromSnapshot(directory.resolve("prices").toString());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cryptorecommendation.benchmark;
+
+import com.example.cryptorecommendation.entity.CryptoStats;
+import com.example.cryptorecommendation.mapper.CryptoMapperImpl;
+import com.example.cryptorecommendation.repository.impl.CryptoTemporaryRepository;
+import com.example.cryptorecommendation.service.CryptoEpochs;
+import com.example.cryptorecommendation.service.CryptoRecommendationService;
+import com.example.cryptorecommendation.service.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of stats calculation for one day range while price history grows.
+ * Stats cache always misses, so every call calculates stats from the price series.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CryptoStatsRangeBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int ticks;
+
+    private CryptoRecommendationService cryptoRecommendationService;
+    private LocalDateTime dateFrom;
+    private LocalDateTime dateTo;
+
+    @Setup
+    public void setUp() {
+        var cryptoRepository = new CryptoTemporaryRepository(new SimpleMeterRegistry());
+        cryptoRecommendationService = new CryptoRecommendationService(
+                cryptoRepository, new BenchmarkData.NoCacheStatsRepository(),
+                new CryptoMapperImpl(),
+                new RequestCoalescer(new SimpleMeterRegistry()), new CryptoEpochs());
+
+        cryptoRecommendationService.saveCrypto("BTC", BenchmarkData.createPriceSeries(ticks, 1));
+
+        dateFrom = BenchmarkData.HISTORY_START.plusMinutes(ticks / 2).withHour(0).withMinute(0);
+        dateTo = dateFrom.plusDays(1);
+    }
+
+    @Benchmark
+    public CryptoStats oneDayRange() {
+        return cryptoRecommendationService.getCryptoStats("BTC", dateFrom, dateTo);
+    }
+}
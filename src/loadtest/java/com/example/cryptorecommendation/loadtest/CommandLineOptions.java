@@ -0,0 +1,89 @@
+package com.example.cryptorecommendation.loadtest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Options given as --name=value arguments. Options without a value are read as true.
+ */
+final class CommandLineOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    CommandLineOptions(String[] args) {
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Invalid option %s, expected --name=value.".formatted(arg));
+            }
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+    }
+
+    String getString(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        return get(name, defaultValue, Integer::parseInt);
+    }
+
+    long getLong(String name, long defaultValue) {
+        return get(name, defaultValue, Long::parseLong);
+    }
+
+    LocalDate getDate(String name, LocalDate defaultValue) {
+        return get(name, defaultValue, LocalDate::parse);
+    }
+
+    /**
+     * Duration in ISO-8601 format (PT30S) or as seconds.
+     */
+    Duration getDuration(String name, Duration defaultValue) {
+        return get(name, defaultValue, value -> value.startsWith("P")
+                ? Duration.parse(value)
+                : Duration.ofSeconds(Long.parseLong(value)));
+    }
+
+    List<String> getList(String name, List<String> defaultValue) {
+        return get(name, defaultValue, value -> List.of(value.split(",")));
+    }
+
+    /**
+     * Comma separated name=weight pairs, in given order.
+     */
+    Map<String, Integer> getWeights(String name, Map<String, Integer> defaultValue) {
+        return get(name, defaultValue, value -> {
+            var weights = new LinkedHashMap<String, Integer>();
+            for (var pair : value.split(",")) {
+                var separator = pair.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid weight %s, expected name=weight.".formatted(pair));
+                }
+                weights.put(pair.substring(0, separator).trim(), Integer.parseInt(pair.substring(separator + 1)));
+            }
+            return weights;
+        });
+    }
+
+    private <T> T get(String name, T defaultValue, Function<String, T> parser) {
+        var value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid value %s of option --%s.".formatted(value, name), e);
+        }
+    }
+}
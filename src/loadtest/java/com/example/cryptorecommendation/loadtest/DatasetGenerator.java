@@ -0,0 +1,181 @@
+package com.example.cryptorecommendation.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Writes synthetic price files of many cryptos, for sizing and load tests with realistic data volumes.
+ * <p>
+ * Every crypto gets its own start price (0.01 to 50000), drift and volatility (30% to 150% a year), and its prices
+ * follow geometric Brownian motion with rare jumps. Ticks are spread over [from, to) with jittered intervals.
+ * Output for the same options and seed is always the same, so datasets can be regenerated instead of shared.
+ * <p>
+ * Formats: csv writes SYMBOL_values.csv files read by the loader (crypto.directory), ndjson writes
+ * SYMBOL_values.ndjson files for the NDJSON ingest endpoint. Options:
+ * <pre>
+ * --directory=target/dataset  --symbols=100  --ticks=100000 (per crypto)
+ * --from=2022-01-01  --to=2023-01-01  --seed=1  --formats=csv,ndjson
+ * </pre>
+ */
+public final class DatasetGenerator {
+
+    private static final double MILLIS_PER_YEAR = TimeUnit.DAYS.toMillis(365);
+    private static final double JUMP_PROBABILITY = 1e-4;
+    private static final int SIGNIFICANT_DIGITS = 8;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+            100_000_000};
+
+    private final Path directory;
+    private final int ticks;
+    private final long fromMillis;
+    private final long toMillis;
+    private final long seed;
+    private final List<String> formats;
+
+    DatasetGenerator(Path directory, int ticks, LocalDate from, LocalDate to, long seed, List<String> formats) {
+        if (ticks <= 0) {
+            throw new IllegalArgumentException("Ticks per crypto must be positive.");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Dataset must start before it ends.");
+        }
+        if (ticks > Duration.between(from.atStartOfDay(), to.atStartOfDay()).toMillis()) {
+            throw new IllegalArgumentException("Dataset span is too short for one tick per millisecond.");
+        }
+        if (!List.of("csv", "ndjson").containsAll(formats)) {
+            throw new IllegalArgumentException("Formats can be csv and ndjson, not %s.".formatted(formats));
+        }
+        this.directory = directory;
+        this.ticks = ticks;
+        this.fromMillis = from.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        this.toMillis = to.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        this.seed = seed;
+        this.formats = formats;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var options = new CommandLineOptions(args);
+        var directory = Paths.get(options.getString("directory", "target/dataset"));
+        var symbols = options.getInt("symbols", 100);
+        var generator = new DatasetGenerator(directory,
+                options.getInt("ticks", 100_000),
+                options.getDate("from", LocalDate.of(2022, 1, 1)),
+                options.getDate("to", LocalDate.of(2023, 1, 1)),
+                options.getLong("seed", 1),
+                options.getList("formats", List.of("csv")));
+
+        var startNanos = System.nanoTime();
+        Files.createDirectories(directory);
+        var bytes = IntStream.range(0, symbols).parallel().mapToLong(generator::writeCrypto).sum();
+        System.out.printf(Locale.ROOT, "Generated %d cryptos with %d ticks each (%.1f MB) in %s in %d ms.%n",
+                symbols, generator.ticks, bytes / (1024.0 * 1024.0), directory.toAbsolutePath(),
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Symbols are short like real tickers and sort in generation order: S0000, S0001, ...
+     */
+    static String symbol(int index) {
+        return "S%04d".formatted(index);
+    }
+
+    /**
+     * Writes price files of one crypto and returns their total size in bytes.
+     */
+    long writeCrypto(int index) {
+        var symbol = symbol(index);
+        var random = new SplittableRandom(seed * 1_000_003 + index);
+        var price = Math.exp(Math.log(0.01) + random.nextDouble() * (Math.log(50_000) - Math.log(0.01)));
+        var drift = -0.5 + random.nextDouble() * 1.5;
+        var volatility = 0.3 + random.nextDouble() * 1.2;
+        var interval = (double) (toMillis - fromMillis) / ticks;
+
+        var csvFile = directory.resolve(symbol + "_values.csv");
+        var ndjsonFile = directory.resolve(symbol + "_values.ndjson");
+        try (var csv = formats.contains("csv") ? Files.newBufferedWriter(csvFile) : null;
+             var ndjson = formats.contains("ndjson") ? Files.newBufferedWriter(ndjsonFile) : null) {
+            if (csv != null) {
+                csv.write("timestamp,symbol,price\n");
+            }
+
+            var previousTimestamp = fromMillis - 1;
+            for (int i = 0; i < ticks; i++) {
+                var timestamp = Math.max(previousTimestamp + 1,
+                        fromMillis + (long) ((i + random.nextDouble() * 0.5) * interval));
+                var years = (timestamp - Math.max(previousTimestamp, fromMillis)) / MILLIS_PER_YEAR;
+                previousTimestamp = timestamp;
+
+                var logReturn = (drift - volatility * volatility / 2) * years
+                        + volatility * Math.sqrt(years) * random.nextGaussian();
+                if (random.nextDouble() < JUMP_PROBABILITY) {
+                    logReturn += random.nextGaussian() * 0.05;
+                }
+                price = Math.min(1e9, Math.max(1e-6, price * Math.exp(logReturn)));
+
+                var formattedPrice = formatPrice(price);
+                if (csv != null) {
+                    writeCsvRow(csv, timestamp, symbol, formattedPrice);
+                }
+                if (ndjson != null) {
+                    writeNdjsonRow(ndjson, timestamp, symbol, formattedPrice);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Prices of %s cannot be written.".formatted(symbol), e);
+        }
+
+        try {
+            return (Files.exists(csvFile) ? Files.size(csvFile) : 0)
+                    + (Files.exists(ndjsonFile) ? Files.size(ndjsonFile) : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Price rounded to {@value #SIGNIFICANT_DIGITS} significant digits with 2 to 8 decimal places, like quotes.
+     * Formatted with long arithmetic, as String.format dominates generation time.
+     */
+    static String formatPrice(double price) {
+        var integerDigits = (int) Math.floor(Math.log10(price)) + 1;
+        var decimals = Math.max(2, Math.min(8, SIGNIFICANT_DIGITS - integerDigits));
+        var unit = POWERS_OF_TEN[decimals];
+        var unscaled = Math.round(price * unit);
+        var fraction = Long.toString(unscaled % unit);
+        return new StringBuilder(24).append(unscaled / unit).append('.')
+                .append("00000000", 0, decimals - fraction.length()).append(fraction).toString();
+    }
+
+    private static void writeCsvRow(BufferedWriter writer, long timestamp, String symbol, String price)
+            throws IOException {
+        writer.write(Long.toString(timestamp));
+        writer.write(',');
+        writer.write(symbol);
+        writer.write(',');
+        writer.write(price);
+        writer.write('\n');
+    }
+
+    private static void writeNdjsonRow(BufferedWriter writer, long timestamp, String symbol, String price)
+            throws IOException {
+        writer.write("{\"timestamp\":");
+        writer.write(Long.toString(timestamp));
+        writer.write(",\"symbol\":\"");
+        writer.write(symbol);
+        writer.write("\",\"price\":");
+        writer.write(price);
+        writer.write("}\n");
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.cryptorecommendation.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of all crypto recommendation endpoints of a running instance.
+ * <p>
+ * Requests are started at --rps regardless of responses and latency is measured from the planned start, so a server
+ * falling behind shows up as growing latency instead of silently lower request rate (coordinated omission).
+ * Endpoints are picked at random by --mix weights, symbols are read from the ranking endpoint and dates are taken
+ * from [--from, --to), which should match the loaded dataset (see {@link DatasetGenerator}).
+ * <p>
+ * Latency percentiles and throughput are reported per endpoint after --warmup, which is not measured.
+ * Rate limited (429) responses are counted separately, so the tested instance should be started with
+ * crypto.rate-limit.capacity above the tested load. Ingest requests send --ingest-key, the crypto.ingest.key of the
+ * tested instance. Options:
+ * <pre>
+ * --url=http://localhost:8080  --rps=200  --duration=PT60S  --warmup=PT10S  --max-in-flight=1000
+ * --timeout=PT10S  --from=2022-01-01  --to=2023-01-01  --ingest-key=
+ * --mix=stats=30,statsRange=20,statsTimeRange=5,candles=10,prices=5,batch=5,ranking=15,byDay=10,ingest=0
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String API_PATH = "/api/crypto-recommend/";
+    private static final List<String> ENDPOINTS = List.of("stats", "statsRange", "statsTimeRange", "candles",
+            "prices", "batch", "ranking", "byDay", "ingest");
+    private static final List<Integer> DEFAULT_WEIGHTS = List.of(30, 20, 5, 10, 5, 5, 15, 10, 0);
+    private static final List<String> CANDLE_INTERVALS = List.of("1m", "5m", "1h", "1d");
+
+    private final String url;
+    private final String ingestKey;
+    private final Duration timeout;
+    private final LocalDate from;
+    private final int days;
+    private final HttpClient httpClient;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final int totalWeight;
+    private final AtomicLong ingestTimestamp;
+    private List<String> symbols;
+
+    LoadTest(String url, String ingestKey, Duration timeout, LocalDate from, LocalDate to, Map<String, Integer> mix) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.ingestKey = ingestKey;
+        this.timeout = timeout;
+        this.from = from;
+        this.days = (int) ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("Tested dates must start before they end.");
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                    var thread = new Thread(runnable, "load-test");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+        this.ingestTimestamp = new AtomicLong(to.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+
+        var weight = 0;
+        for (var endpointWeight : mix.entrySet()) {
+            if (!ENDPOINTS.contains(endpointWeight.getKey())) {
+                throw new IllegalArgumentException("Unknown endpoint %s, known are %s."
+                        .formatted(endpointWeight.getKey(), ENDPOINTS));
+            }
+            if (endpointWeight.getValue() > 0) {
+                weight += endpointWeight.getValue();
+                endpoints.add(new Endpoint(endpointWeight.getKey(), weight));
+            }
+        }
+        if (weight == 0) {
+            throw new IllegalArgumentException("At least one endpoint needs positive weight.");
+        }
+        this.totalWeight = weight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new CommandLineOptions(args);
+        var mix = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < ENDPOINTS.size(); i++) {
+            mix.put(ENDPOINTS.get(i), DEFAULT_WEIGHTS.get(i));
+        }
+        mix.putAll(options.getWeights("mix", Map.of()));
+        var loadTest = new LoadTest(
+                options.getString("url", "http://localhost:8080"),
+                options.getString("ingest-key", ""),
+                options.getDuration("timeout", Duration.ofSeconds(10)),
+                options.getDate("from", LocalDate.of(2022, 1, 1)),
+                options.getDate("to", LocalDate.of(2023, 1, 1)),
+                mix);
+
+        loadTest.loadSymbols();
+        loadTest.run(options.getInt("rps", 200),
+                options.getDuration("warmup", Duration.ofSeconds(10)),
+                options.getDuration("duration", Duration.ofSeconds(60)),
+                options.getInt("max-in-flight", 1000));
+    }
+
+    /**
+     * Symbols of all loaded cryptos, taken from the all-time ranking.
+     */
+    void loadSymbols() throws IOException, InterruptedException {
+        var response = httpClient.send(newRequest(API_PATH + "normalizedPricesDescending").GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Cryptos cannot be listed, status %d.".formatted(response.statusCode()));
+        }
+        var symbolList = new ArrayList<String>();
+        new ObjectMapper().readTree(response.body()).path("cryptoList")
+                .forEach(crypto -> symbolList.add(crypto.path("symbol").asText()));
+        if (symbolList.isEmpty()) {
+            throw new IllegalStateException("Tested instance has no cryptos.");
+        }
+        symbols = symbolList;
+        System.out.printf(Locale.ROOT, "Testing %s with %d cryptos.%n", url, symbols.size());
+    }
+
+    void run(int rps, Duration warmup, Duration duration, int maxInFlight) throws InterruptedException {
+        if (rps <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Request rate and max in-flight requests must be positive.");
+        }
+        var periodNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        var startNanos = System.nanoTime();
+        var measureFromNanos = startNanos + warmup.toNanos();
+        var endNanos = measureFromNanos + duration.toNanos();
+        var random = new SplittableRandom(1);
+        var inFlight = new AtomicInteger();
+        var dropped = 0L;
+
+        for (long i = 0; ; i++) {
+            var plannedNanos = startNanos + i * periodNanos;
+            if (plannedNanos >= endNanos) {
+                break;
+            }
+            var waitNanos = plannedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+
+            var endpoint = pickEndpoint(random);
+            var measured = plannedNanos >= measureFromNanos;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    dropped++;
+                }
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            httpClient.sendAsync(buildRequest(endpoint.name, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        inFlight.decrementAndGet();
+                        if (measured) {
+                            endpoint.record(System.nanoTime() - plannedNanos,
+                                    e != null ? 0 : response.statusCode());
+                        }
+                    });
+        }
+
+        var drainUntilNanos = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntilNanos) {
+            Thread.sleep(10);
+        }
+        report(duration, dropped);
+    }
+
+    private Endpoint pickEndpoint(SplittableRandom random) {
+        var value = random.nextInt(totalWeight);
+        for (var endpoint : endpoints) {
+            if (value < endpoint.cumulativeWeight) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private HttpRequest buildRequest(String endpoint, SplittableRandom random) {
+        var symbol = symbols.get(random.nextInt(symbols.size()));
+        var day = from.plusDays(random.nextInt(days));
+        var rangeEnd = day.plusDays(1 + random.nextInt(Math.min(30, days)));
+        var dateTimeFrom = day.atStartOfDay().plusHours(random.nextInt(24));
+        var dateTimeTo = dateTimeFrom.plusHours(1 + random.nextInt(72));
+
+        return switch (endpoint) {
+            case "stats" -> newRequest(API_PATH + "cryptoStats/" + symbol).GET().build();
+            case "statsRange" -> newRequest(API_PATH + "cryptoStats/%s?dateFrom=%s&dateTo=%s"
+                    .formatted(symbol, day, rangeEnd)).GET().build();
+            case "statsTimeRange" -> newRequest(API_PATH + "cryptoStats/%s?dateTimeFrom=%s&dateTimeTo=%s"
+                    .formatted(symbol, dateTimeFrom, dateTimeTo)).GET().build();
+            case "candles" -> newRequest(API_PATH + "candles/%s?interval=%s&dateTimeFrom=%s&dateTimeTo=%s"
+                    .formatted(symbol, CANDLE_INTERVALS.get(random.nextInt(CANDLE_INTERVALS.size())),
+                            dateTimeFrom, rangeEnd.atStartOfDay())).GET().build();
+            case "prices" -> newRequest(API_PATH + "prices/%s?points=500&dateTimeFrom=%s&dateTimeTo=%s"
+                    .formatted(symbol, day.atStartOfDay(), rangeEnd.atStartOfDay())).GET().build();
+            case "batch" -> newRequest(API_PATH + "cryptoStats/batch")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(buildBatch(random))).build();
+            case "ranking" -> newRequest((random.nextBoolean()
+                    ? API_PATH + "normalizedPricesDescending?limit=10"
+                    : API_PATH + "normalizedPricesDescending?limit=10&dateFrom=%s&dateTo=%s"
+                    .formatted(day, rangeEnd))
+                    + (random.nextInt(4) == 0 ? "&orderBy=volatility" : "")).GET().build();
+            case "byDay" -> newRequest(API_PATH + "highestCryptoNormalizedRange/byDay/" + day).GET().build();
+            case "ingest" -> newRequest(API_PATH + "prices")
+                    .header("Content-Type", "text/csv")
+                    .header("X-Crypto-Ingest-Key", ingestKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(buildIngest(symbol, random))).build();
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    /**
+     * Ten queries of random cryptos and date ranges.
+     */
+    private String buildBatch(SplittableRandom random) {
+        var batch = new StringBuilder("{\"queries\":[");
+        for (int i = 0; i < 10; i++) {
+            var day = from.plusDays(random.nextInt(days));
+            batch.append(i > 0 ? "," : "")
+                    .append("{\"symbol\":\"").append(symbols.get(random.nextInt(symbols.size())))
+                    .append("\",\"dateFrom\":\"").append(day)
+                    .append("\",\"dateTo\":\"").append(day.plusDays(1 + random.nextInt(7))).append("\"}");
+        }
+        return batch.append("]}").toString();
+    }
+
+    /**
+     * Hundred new prices of the crypto after the tested dates, so tested ranges keep their stats.
+     */
+    private String buildIngest(String symbol, SplittableRandom random) {
+        var csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append(ingestTimestamp.incrementAndGet()).append(',').append(symbol).append(',')
+                    .append(DatasetGenerator.formatPrice(1 + random.nextDouble() * 100)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private HttpRequest.Builder newRequest(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(url + pathAndQuery))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+    }
+
+    private void report(Duration duration, long dropped) {
+        var seconds = duration.toNanos() / 1e9;
+        var total = new Endpoint("total", 0);
+        System.out.printf(Locale.ROOT, "%n%-16s %9s %9s %7s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "429", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (var endpoint : endpoints) {
+            endpoint.print(seconds);
+            total.add(endpoint);
+        }
+        total.print(seconds);
+        if (dropped > 0) {
+            System.out.printf(Locale.ROOT, "%d requests were not sent, as max in-flight requests were reached.%n",
+                    dropped);
+        }
+        if (total.rateLimited.get() > 0) {
+            System.out.println("Requests were rate limited, start tested instance with higher "
+                    + "crypto.rate-limit.capacity.");
+        }
+        printHeapUsed();
+    }
+
+    /**
+     * Heap used by the tested instance after the test, for sizing of its memory.
+     */
+    private void printHeapUsed() {
+        try {
+            var response = httpClient.send(
+                    newRequest("/actuator/metrics/jvm.memory.used?tag=area:heap").GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 200) {
+                var bytes = new ObjectMapper().readTree(response.body()).path("measurements").path(0)
+                        .path("value").asDouble();
+                System.out.printf(Locale.ROOT, "Heap used by tested instance: %.1f MB.%n", bytes / (1024 * 1024));
+            }
+        } catch (IOException e) {
+            System.out.println("Heap used by tested instance is not available: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Endpoint with cumulative weight of the mix and latencies of its measured requests in microseconds.
+     */
+    private static final class Endpoint {
+
+        private final String name;
+        private final int cumulativeWeight;
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+
+        private Endpoint(String name, int cumulativeWeight) {
+            this.name = name;
+            this.cumulativeWeight = cumulativeWeight;
+        }
+
+        /**
+         * Status 0 means the request failed without response, e.g. on timeout.
+         */
+        void record(long latencyNanos, int status) {
+            latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+            if (status == 429) {
+                rateLimited.incrementAndGet();
+            } else if (status != 200 && status != 304) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void add(Endpoint endpoint) {
+            latencies.add(endpoint.latencies);
+            errors.addAndGet(endpoint.errors.get());
+            rateLimited.addAndGet(endpoint.rateLimited.get());
+        }
+
+        void print(double seconds) {
+            System.out.printf(Locale.ROOT, "%-16s %9d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f%n",
+                    name, latencies.getTotalCount(), latencies.getTotalCount() / seconds, errors.get(),
+                    rateLimited.get(), toMillis(latencies.getValueAtPercentile(50)),
+                    toMillis(latencies.getValueAtPercentile(99)), toMillis(latencies.getValueAtPercentile(99.9)),
+                    toMillis(latencies.getMaxValue()));
+        }
+
+        private static double toMillis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.cryptorecommendation.configuration;
+
+import com.example.cryptorecommendation.rest.ClientRateLimiter;
+import com.example.cryptorecommendation.rest.IngestKeyInterceptor;
+import com.example.cryptorecommendation.rest.RateLimitInterceptor;
+import com.example.cryptorecommendation.service.CryptoCluster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web configuration. All API endpoints are rate limited per client address, and endpoints changing prices need
+ * crypto.ingest.key, checked before rate limits so rejected requests take no token.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final CryptoCluster cryptoCluster;
+    @Value("${crypto.ingest.key}")
+    private String ingestKey;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new IngestKeyInterceptor(ingestKey, cryptoCluster)).addPathPatterns("/api/**");
+        registry.addInterceptor(new RateLimitInterceptor(clientRateLimiter, cryptoCluster)).addPathPatterns("/api/**");
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.cryptorecommendation.controller;
 
 
+import com.example.cryptorecommendation.dto.CryptoCandleListDto;
+import com.example.cryptorecommendation.dto.CryptoIngestResultDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeListDto;
+import com.example.cryptorecommendation.dto.CryptoPriceSeriesDto;
+import com.example.cryptorecommendation.dto.CryptoStatsBatchDto;
+import com.example.cryptorecommendation.dto.CryptoStatsBatchRequestDto;
 import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.rest.ClientRateLimiter;
+import com.example.cryptorecommendation.rest.IngestKeyRequired;
+import com.example.cryptorecommendation.rest.RateLimitCost;
+import com.example.cryptorecommendation.rest.RateLimitInterceptor;
+import com.example.cryptorecommendation.service.CryptoClusterService;
+import com.example.cryptorecommendation.service.CryptoIngestService;
 import com.example.cryptorecommendation.service.CryptoRecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,25 +24,48 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * REST controller - Crypto Recommendation
  */
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("api/crypto-recommend")
 public class CryptoRecommendationController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final long BATCH_COST = 10;
+
     private final CryptoRecommendationService cryptoRecommendationService;
+    private final CryptoIngestService cryptoIngestService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final CryptoResponseCache cryptoResponseCache;
+    private final CryptoShardRouter cryptoShardRouter;
+    private final CryptoClusterService cryptoClusterService;
 
-    @Operation(summary = "Get Stats (oldest/newest/min/max values) for specific Crypto.",
+    @Operation(summary = "Get Stats (oldest/newest/min/max/average values, return, volatility) for specific Crypto.",
                description = """
+                    Standard deviation is of prices in the range, return is (newest - oldest) / oldest and
+                    volatility is realized volatility of the range annualized to a 365-day year.
                     Optionally provide dateFrom and dateTo request parameters in ISO date format: yyyy-MM-dd.
                     If provided, endpoint will return stats of Crypto for that specific date range.
+                    For sub-day ranges provide dateTimeFrom and dateTimeTo instead, in ISO date time format
+                    (UTC): yyyy-MM-ddTHH:mm:ss.SSS. Both are required and take precedence over dates.
                     """)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK",
@@ -40,11 +74,113 @@ public class CryptoRecommendationController {
             @ApiResponse(responseCode = "404", description = "Crypto Not Found/Supported",
                     content = @Content) })
     @GetMapping("cryptoStats/{crypto}")
-    public ResponseEntity<CryptoStatsDto> specificCryptoStats(
+    public ResponseEntity<byte[]> specificCryptoStats(
             @PathVariable String crypto,
             @RequestParam(name = "dateFrom", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateFrom,
-            @RequestParam(name = "dateTo", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateTo){
-        return ResponseEntity.ok(cryptoRecommendationService.getSpecificCryptoStats(crypto,dateFrom,dateTo));
+            @RequestParam(name = "dateTo", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateTo,
+            @RequestParam(name = "dateTimeFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeFrom,
+            @RequestParam(name = "dateTimeTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeTo,
+            ServletWebRequest webRequest){
+        var ownerResponse = cryptoShardRouter.forwardToOwner(crypto, webRequest.getRequest());
+        if (ownerResponse != null) {
+            return ownerResponse;
+        }
+        if (dateTimeFrom != null || dateTimeTo != null) {
+            return cryptoResponseCache.getResponse(webRequest,
+                    () -> cryptoRecommendationService.getCryptoStatsForTimeRange(crypto, dateTimeFrom, dateTimeTo));
+        }
+        return cryptoResponseCache.getResponse(webRequest,
+                () -> cryptoRecommendationService.getSpecificCryptoStats(crypto,dateFrom,dateTo));
+    }
+
+    @Operation(summary = "Get OHLC candles (open/close/min/max/count) for specific Crypto.",
+               description = """
+                    Interval is one of 1m, 5m, 1h, 1d, intervals are aligned to UTC.
+                    Optionally provide dateTimeFrom and dateTimeTo in ISO date time format (UTC):
+                    yyyy-MM-ddTHH:mm:ss.SSS, to return only candles starting in that range.
+                    Intervals without prices have no candle.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CryptoCandleListDto.class)) }),
+            @ApiResponse(responseCode = "404", description = "Crypto Not Found/Supported",
+                    content = @Content) })
+    @GetMapping("candles/{crypto}")
+    @RateLimitCost(20)
+    public ResponseEntity<byte[]> candles(
+            @PathVariable String crypto,
+            @RequestParam(name = "interval", defaultValue = "1h") String interval,
+            @RequestParam(name = "dateTimeFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeFrom,
+            @RequestParam(name = "dateTimeTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeTo,
+            @Parameter(description = "Max number of candles to return")
+            @RequestParam(name = "limit", defaultValue = "1000") @Min(1) @Max(10000) int limit,
+            ServletWebRequest webRequest){
+        var ownerResponse = cryptoShardRouter.forwardToOwner(crypto, webRequest.getRequest());
+        if (ownerResponse != null) {
+            return ownerResponse;
+        }
+        return cryptoResponseCache.getResponse(webRequest,
+                () -> cryptoRecommendationService.getCandles(crypto, interval, dateTimeFrom, dateTimeTo, limit));
+    }
+
+    @Operation(summary = "Get downsampled price series for specific Crypto.",
+               description = """
+                    Returns at most points prices as columns of timestamps (epoch millis) and prices, selected
+                    so that peaks and drops of the price chart stay visible. Optionally provide dateTimeFrom and
+                    dateTimeTo in ISO date time format (UTC): yyyy-MM-ddTHH:mm:ss.SSS.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CryptoPriceSeriesDto.class)) }),
+            @ApiResponse(responseCode = "404", description = "Crypto Not Found/Supported",
+                    content = @Content) })
+    @GetMapping("prices/{crypto}")
+    @RateLimitCost(50)
+    public ResponseEntity<byte[]> downsampledPrices(
+            @PathVariable String crypto,
+            @RequestParam(name = "dateTimeFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeFrom,
+            @RequestParam(name = "dateTimeTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTimeTo,
+            @Parameter(description = "Max number of prices to return")
+            @RequestParam(name = "points", defaultValue = "1000") @Min(2) @Max(10000) int points,
+            ServletWebRequest webRequest){
+        var ownerResponse = cryptoShardRouter.forwardToOwner(crypto, webRequest.getRequest());
+        if (ownerResponse != null) {
+            return ownerResponse;
+        }
+        return cryptoResponseCache.getResponse(webRequest,
+                () -> cryptoRecommendationService.getDownsampledPrices(crypto, dateTimeFrom, dateTimeTo, points));
+    }
+
+    @Operation(summary = "Get Stats for many Cryptos and date ranges in one call.",
+               description = """
+                    Each query has Crypto symbol and optional dateFrom and dateTo in ISO date format: yyyy-MM-dd.
+                    Stats are returned in query order. Request takes 10 rate limit tokens and each query takes
+                    one more token per started month of its date range, all at once.
+                    """)
+    @PostMapping("cryptoStats/batch")
+    @RateLimitCost(value = BATCH_COST, takenByEndpoint = true)
+    public ResponseEntity<CryptoStatsBatchDto> cryptoStatsBatch(
+            @RequestBody @Valid CryptoStatsBatchRequestDto batchRequest,
+            HttpServletRequest request){
+        var response = ResponseEntity.ok();
+        if (!cryptoShardRouter.isShardRequest(request)) {
+            var remaining = clientRateLimiter.consume(request.getRemoteAddr(), BATCH_COST, batchRequest.getQueries());
+            response.header(RateLimitInterceptor.REMAINING_HEADER, Long.toString(remaining));
+        }
+        if (cryptoShardRouter.isClusterRequest(request)) {
+            return response.body(
+                    new CryptoStatsBatchDto(cryptoClusterService.getCryptoStatsBatch(batchRequest.getQueries())));
+        }
+        return response.body(
+                new CryptoStatsBatchDto(cryptoRecommendationService.getCryptoStatsBatch(batchRequest.getQueries())));
     }
 
     @Operation(summary = "Get list of all Cryptos sorted by Normalized Range Descending.",
@@ -52,23 +188,79 @@ public class CryptoRecommendationController {
                     Optionally provide dateFrom and dateTo request parameters in ISO date format: yyyy-MM-dd.
                     If provided, endpoint will return list of all Cryptos sorted by Normalized Range Descending
                     for that specific date range.
+                    Optionally provide limit and offset request parameters to return only one page of the list.
+                    Optionally provide orderBy=volatility to sort by annualized realized volatility descending
+                    instead. Volatility of every Crypto is returned in both orders.
                     """)
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = CryptoNormalizedRangeListDto.class)))
     @GetMapping("normalizedPricesDescending")
-    public ResponseEntity<CryptoNormalizedRangeListDto> normalizedCryptosDescending(
+    @RateLimitCost(50)
+    public ResponseEntity<byte[]> normalizedCryptosDescending(
             @RequestParam(name = "dateFrom", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateFrom,
-            @RequestParam(name = "dateTo", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateTo
+            @RequestParam(name = "dateTo", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateTo,
+            @Parameter(description = "Max number of Cryptos to return, all if not provided")
+            @RequestParam(name = "limit", required = false) @Min(1) Integer limit,
+            @Parameter(description = "Number of top Cryptos to skip")
+            @RequestParam(name = "offset", defaultValue = "0") @Min(0) int offset,
+            @Parameter(description = "normalizedRange or volatility")
+            @RequestParam(name = "orderBy", defaultValue = "normalizedRange") String orderBy,
+            ServletWebRequest webRequest
             ){
-        return ResponseEntity.ok(
-                cryptoRecommendationService.getNormalizedCryptosListDescending(dateFrom,dateTo)
-        );
+        if (cryptoShardRouter.isClusterRequest(webRequest.getRequest())) {
+            return cryptoResponseCache.getUncachedResponse(() -> cryptoClusterService
+                    .getNormalizedCryptosListDescending(dateFrom, dateTo, limit, offset, orderBy));
+        }
+        return cryptoResponseCache.getResponse(webRequest, () -> cryptoRecommendationService
+                .getNormalizedCryptosListDescending(dateFrom, dateTo, limit, offset, orderBy));
     }
 
     @Operation(summary = "Get Crypto with highest Normalized Range for specific day.")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = CryptoNormalizedRangeDto.class)))
     @GetMapping("highestCryptoNormalizedRange/byDay/{date}")
-    public ResponseEntity<CryptoNormalizedRangeDto> highestCryptoNormalizedRangeByDay(
+    public ResponseEntity<byte[]> highestCryptoNormalizedRangeByDay(
             @Parameter(description = "ISO date format: yyyy-MM-dd")
-            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date){
-        return ResponseEntity.ok(cryptoRecommendationService.cryptoWithHighestNormalizedRangeByDay(date));
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            ServletWebRequest webRequest){
+        if (cryptoShardRouter.isClusterRequest(webRequest.getRequest())) {
+            return cryptoResponseCache.getUncachedResponse(
+                    () -> cryptoClusterService.cryptoWithHighestNormalizedRangeByDay(date));
+        }
+        return cryptoResponseCache.getResponse(webRequest,
+                () -> cryptoRecommendationService.cryptoWithHighestNormalizedRangeByDay(date));
+    }
+
+    @Operation(summary = "Ingest Crypto prices from CSV.",
+               description = """
+                    Streams prices of one or many Cryptos as timestamp,symbol,price rows, timestamp in epoch millis.
+                    Header row is optional. Prices are appended to stored Cryptos and new Cryptos are added.
+                    Needs the ingest key in X-Crypto-Ingest-Key header. Prices are stored in batches of 65536 rows
+                    as they are read: if a row is invalid, batches before it stay stored and the error tells
+                    how many prices were stored.
+                    """)
+    @PostMapping(value = "prices", consumes = TEXT_CSV_VALUE)
+    @IngestKeyRequired
+    @RateLimitCost(50)
+    public ResponseEntity<CryptoIngestResultDto> ingestCsvPrices(InputStream body, HttpServletRequest request)
+            throws IOException {
+        return ResponseEntity.ok(cryptoIngestService.ingestCsv(body, cryptoShardRouter.isClusterRequest(request)));
+    }
+
+    @Operation(summary = "Ingest Crypto prices from NDJSON.",
+               description = """
+                    Streams prices of one or many Cryptos as one JSON object per line with timestamp (epoch millis),
+                    symbol and price fields. Prices are appended to stored Cryptos and new Cryptos are added.
+                    Needs the ingest key and stores prices in batches like CSV ingest.
+                    """)
+    @PostMapping(value = "prices", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @IngestKeyRequired
+    @RateLimitCost(50)
+    public ResponseEntity<CryptoIngestResultDto> ingestNdjsonPrices(InputStream body, HttpServletRequest request)
+            throws IOException {
+        return ResponseEntity.ok(cryptoIngestService.ingestNdjson(body, cryptoShardRouter.isClusterRequest(request)));
     }
 
 }
@@ -0,0 +1,95 @@
+package com.example.cryptorecommendation.controller;
+
+import com.example.cryptorecommendation.service.CryptoEpochs;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET support and cache of encoded JSON responses.
+ * <p>
+ * ETag is derived from version of the current crypto epoch and request path with query, so it changes whenever
+ * prices change. Version is read before the response is built, so response is never older than its version.
+ * If-None-Match with current ETag is answered with 304 before the service is called. Other responses are kept
+ * as encoded JSON bytes per data version and request, so repeated requests do no serialization.
+ * Responses of older data versions are never read again and are evicted when cache is full. Cache is bounded by
+ * crypto.response-cache.maximum-bytes of encoded bodies, as price series and candle responses can be large.
+ */
+@Component
+public class CryptoResponseCache {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
+    private final CryptoEpochs cryptoEpochs;
+    private final ObjectMapper objectMapper;
+    private final Cache<ResponseKey, byte[]> responses;
+
+    public CryptoResponseCache(CryptoEpochs cryptoEpochs, ObjectMapper objectMapper,
+                               @Value("${crypto.response-cache.maximum-bytes}") DataSize maximumBytes) {
+        this.cryptoEpochs = cryptoEpochs;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes.toBytes())
+                .weigher((ResponseKey key, byte[] body) -> body.length)
+                .build();
+    }
+
+    /**
+     * Returns null if client already has current response, as Spring then sends 304 Not Modified.
+     */
+    public ResponseEntity<byte[]> getResponse(ServletWebRequest webRequest, Supplier<?> responseSupplier) {
+        var request = webRequest.getRequest();
+        var key = new ResponseKey(cryptoEpochs.getVersion(),
+                request.getRequestURI() + '?' + Objects.toString(request.getQueryString(), ""));
+        var eTag = "\"%x-%08x\"".formatted(key.dataVersion(), key.query().hashCode());
+
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        var body = responses.getIfPresent(key);
+        if (body == null) {
+            body = encode(responseSupplier.get());
+            responses.put(key, body);
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .body(body);
+    }
+
+    /**
+     * Response built on every request, for answers gathered from other nodes whose data version is not known here.
+     */
+    public ResponseEntity<byte[]> getUncachedResponse(Supplier<?> responseSupplier) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .body(encode(responseSupplier.get()));
+    }
+
+    private byte[] encode(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record ResponseKey(long dataVersion, String query) {
+    }
+}
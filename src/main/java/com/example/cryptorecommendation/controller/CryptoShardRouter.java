@@ -0,0 +1,56 @@
+package com.example.cryptorecommendation.controller;
+
+import com.example.cryptorecommendation.service.CryptoCluster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Routing of client requests in a sharded deployment, see {@link CryptoCluster}.
+ * Requests of other nodes are always answered locally, so a request is routed at most once.
+ */
+@Component
+@RequiredArgsConstructor
+public class CryptoShardRouter {
+
+    private final CryptoCluster cryptoCluster;
+
+    /**
+     * Whether request was sent by another node of the cluster.
+     */
+    public boolean isShardRequest(HttpServletRequest request) {
+        return cryptoCluster.isShardRequest(request.getHeader(CryptoCluster.SHARD_TOKEN_HEADER));
+    }
+
+    /**
+     * Whether request has to be answered by all nodes: cluster is enabled and request was sent by a client.
+     */
+    public boolean isClusterRequest(HttpServletRequest request) {
+        return cryptoCluster.isEnabled() && !isShardRequest(request);
+    }
+
+    /**
+     * Response of the owner of the crypto, or null if request is answered by this node.
+     * Status, ETag and body of the owner are returned as they are, so conditional GET works across nodes.
+     */
+    public ResponseEntity<byte[]> forwardToOwner(String cryptoSymbol, HttpServletRequest request) {
+        if (!isClusterRequest(request) || cryptoCluster.isOwned(cryptoSymbol)) {
+            return null;
+        }
+
+        var pathAndQuery = request.getQueryString() != null
+                ? request.getRequestURI() + '?' + request.getQueryString()
+                : request.getRequestURI();
+        var ownerResponse = CryptoCluster.join(cryptoCluster.forward(cryptoCluster.getOwner(cryptoSymbol),
+                pathAndQuery, request.getHeader(HttpHeaders.IF_NONE_MATCH)));
+
+        var response = ResponseEntity.status(ownerResponse.statusCode());
+        for (var header : new String[]{HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL}) {
+            ownerResponse.headers().firstValue(header).ifPresent(value -> response.header(header, value));
+        }
+        return response.body(ownerResponse.body());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoCandleDto {
+    private LocalDateTime openTime;
+    private BigDecimal open;
+    private BigDecimal close;
+    private BigDecimal min;
+    private BigDecimal max;
+    private int count;
+}
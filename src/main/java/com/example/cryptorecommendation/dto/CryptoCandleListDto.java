@@ -0,0 +1,18 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class CryptoCandleListDto {
+    private String symbol;
+    private String interval;
+    private List<CryptoCandleDto> candles;
+}
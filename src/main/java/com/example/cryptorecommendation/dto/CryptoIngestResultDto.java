@@ -0,0 +1,17 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoIngestResultDto {
+    private long ingestedPrices;
+    private List<String> cryptos;
+}
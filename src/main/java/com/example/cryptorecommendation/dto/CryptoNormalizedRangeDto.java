@@ -1,5 +1,6 @@
 package com.example.cryptorecommendation.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,4 +15,14 @@ import java.math.BigDecimal;
 public class CryptoNormalizedRangeDto {
     private String symbol;
     private BigDecimal normalizedPrice;
+
+    /**
+     * Annualized realized volatility of the range, returned only in rankings.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal volatility;
+
+    public CryptoNormalizedRangeDto(String symbol, BigDecimal normalizedPrice) {
+        this(symbol, normalizedPrice, null);
+    }
 }
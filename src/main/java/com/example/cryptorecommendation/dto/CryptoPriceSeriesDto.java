@@ -0,0 +1,16 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoPriceSeriesDto {
+    private String symbol;
+    private long[] timestamps;
+    private double[] prices;
+}
@@ -0,0 +1,16 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoPriceTickDto {
+    private Long timestamp;
+    private String symbol;
+    private Double price;
+}
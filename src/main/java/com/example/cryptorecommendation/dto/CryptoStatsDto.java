@@ -15,4 +15,8 @@ public class CryptoStatsDto {
     private BigDecimal newest;
     private BigDecimal min;
     private BigDecimal max;
+    private BigDecimal average;
+    private BigDecimal standardDeviation;
+    private BigDecimal priceReturn;
+    private BigDecimal volatility;
 }
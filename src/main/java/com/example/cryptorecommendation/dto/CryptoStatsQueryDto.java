@@ -0,0 +1,20 @@
+package com.example.cryptorecommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotBlank;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoStatsQueryDto {
+    @NotBlank
+    private String symbol;
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+}
@@ -0,0 +1,15 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Prices of one crypto aggregated for one candle interval. Prices are unscaled values of the series scale.
+ *
+ * @param openTime Start of the interval in epoch millis (UTC).
+ * @param open     First price of the interval.
+ * @param close    Last price of the interval.
+ * @param min      Min price of the interval.
+ * @param max      Max price of the interval.
+ * @param count    Number of prices in the interval.
+ * @param scale    Number of decimal places of prices.
+ */
+public record Candle(long openTime, long open, long close, long min, long max, int count, int scale) {
+}
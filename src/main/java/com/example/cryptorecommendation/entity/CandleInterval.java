@@ -0,0 +1,29 @@
+package com.example.cryptorecommendation.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Supported candle intervals. Intervals are aligned to UTC epoch, so every candle starts at a multiple of its length.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CandleInterval {
+
+    ONE_MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 300_000L),
+    ONE_HOUR("1h", 3_600_000L),
+    ONE_DAY("1d", 86_400_000L);
+
+    private final String code;
+    private final long millis;
+
+    public static CandleInterval fromCode(String code) {
+        for (var interval : values()) {
+            if (interval.code.equals(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported candle interval: %s.".formatted(code));
+    }
+}
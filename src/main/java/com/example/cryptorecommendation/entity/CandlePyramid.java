@@ -0,0 +1,200 @@
+package com.example.cryptorecommendation.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Multi-resolution candle index of ticks a price series keeps in heap, by their index in the series tail, with
+ * one level per {@link CandleInterval}.
+ * <p>
+ * Every level stores only intervals that have ticks: open time, index of the first tick and min/max unscaled
+ * price (28 bytes per interval). A level is built from all ticks of the tail on the first candle query of its
+ * interval and then updated on every append, so candles of any interval are read from their own level and a day
+ * candle never touches the minute ticks it was built from. Series whose fine candles are never asked for do not
+ * keep their levels, which are the largest ones for ticks a minute or more apart.
+ * <p>
+ * Open and close prices and tick count follow from tick indexes. Min/max of the last interval a reader sees
+ * can still change while ticks are appended, so it is read from the series {@link RangeMinMaxIndex} for the
+ * series size the reader has seen, which keeps candles consistent with that size.
+ */
+class CandlePyramid {
+
+    static final int BYTES_PER_INTERVAL = 3 * Long.BYTES + Integer.BYTES;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CryptoPriceSeries series;
+    private final AtomicReferenceArray<Level> levels = new AtomicReferenceArray<>(CandleInterval.values().length);
+
+    CandlePyramid(CryptoPriceSeries series) {
+        this.series = series;
+    }
+
+    /**
+     * Called by series for every appended tick, before the new size is published, while holding the series lock.
+     */
+    void onAppend(int index, long timestamp, long price) {
+        for (int i = 0; i < levels.length(); i++) {
+            var level = levels.get(i);
+            if (level != null) {
+                level.onAppend(index, timestamp, price);
+            }
+        }
+    }
+
+    /**
+     * Candles of intervals starting in [from, to), from rounded down to the interval start, at most limit candles.
+     */
+    List<Candle> candles(CandleInterval interval, long from, long to, int limit, int size) {
+        if (size == 0) {
+            return List.of();
+        }
+        var level = levels.get(interval.ordinal());
+        return (level != null ? level : buildLevel(interval)).candles(from, to, limit, size);
+    }
+
+    /**
+     * Heap used by intervals of all built levels that have any of the first size ticks, without unused capacity.
+     */
+    long getMemoryBytes(int size) {
+        long bytes = 0;
+        for (int i = 0; i < levels.length(); i++) {
+            var level = levels.get(i);
+            if (level != null) {
+                bytes += (long) level.count(size) * BYTES_PER_INTERVAL;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds level of the interval from all ticks of the tail. Holding the series lock, no tick is appended while
+     * the level is built, and every later one is added by {@link #onAppend} once the level is set.
+     */
+    private Level buildLevel(CandleInterval interval) {
+        synchronized (series) {
+            var level = levels.get(interval.ordinal());
+            if (level == null) {
+                level = new Level(interval.getMillis());
+                for (int i = 0, size = series.getTailSize(); i < size; i++) {
+                    level.onAppend(i, series.getTailTimestamp(i), series.getTailUnscaledPrice(i));
+                }
+                levels.set(interval.ordinal(), level);
+            }
+            return level;
+        }
+    }
+
+    private class Level {
+
+        private final long intervalMillis;
+        private volatile Buckets buckets = new Buckets(0);
+        private volatile int count;
+
+        Level(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        void onAppend(int index, long timestamp, long price) {
+            var openTime = Math.floorDiv(timestamp, intervalMillis) * intervalMillis;
+            int bucketCount = count;
+            var current = buckets;
+
+            if (bucketCount > 0 && current.openTimes[bucketCount - 1] == openTime) {
+                current.mins[bucketCount - 1] = Math.min(current.mins[bucketCount - 1], price);
+                current.maxs[bucketCount - 1] = Math.max(current.maxs[bucketCount - 1], price);
+                return;
+            }
+
+            if (bucketCount == current.openTimes.length) {
+                current = current.grow(Math.max(INITIAL_CAPACITY, bucketCount * 2));
+            }
+            current.openTimes[bucketCount] = openTime;
+            current.firstIndexes[bucketCount] = index;
+            current.mins[bucketCount] = price;
+            current.maxs[bucketCount] = price;
+
+            buckets = current;
+            count = bucketCount + 1;
+        }
+
+        List<Candle> candles(long from, long to, int limit, int size) {
+            int bucketCount = count;
+            var current = buckets;
+            bucketCount = countBelow(current, bucketCount, size);
+
+            var alignedFrom = from == Long.MIN_VALUE ? from : Math.floorDiv(from, intervalMillis) * intervalMillis;
+            var candles = new ArrayList<Candle>();
+            for (int i = lowerBound(current.openTimes, bucketCount, alignedFrom);
+                 i < bucketCount && current.openTimes[i] < to && candles.size() < limit; i++) {
+                int fromIndex = current.firstIndexes[i];
+                boolean closed = i + 1 < bucketCount;
+                int toIndex = closed ? current.firstIndexes[i + 1] : size;
+                candles.add(new Candle(current.openTimes[i],
+                        series.getTailUnscaledPrice(fromIndex), series.getTailUnscaledPrice(toIndex - 1),
+                        closed ? current.mins[i] : series.getTailMinUnscaledPrice(fromIndex, toIndex),
+                        closed ? current.maxs[i] : series.getTailMaxUnscaledPrice(fromIndex, toIndex),
+                        toIndex - fromIndex, series.getScale()));
+            }
+            return candles;
+        }
+
+        int count(int size) {
+            int bucketCount = count;
+            return countBelow(buckets, bucketCount, size);
+        }
+
+        /**
+         * Number of the first bucketCount intervals having any of the first size ticks.
+         */
+        private static int countBelow(Buckets current, int bucketCount, int size) {
+            while (bucketCount > 0 && current.firstIndexes[bucketCount - 1] >= size) {
+                bucketCount--;
+            }
+            return bucketCount;
+        }
+
+        private static int lowerBound(long[] openTimes, int bucketCount, long openTime) {
+            int low = 0;
+            int high = bucketCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (openTimes[middle] < openTime) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Interval columns of one level. Replaced as a whole when growing, so readers never see partially copied columns.
+     */
+    private static class Buckets {
+
+        final long[] openTimes;
+        final int[] firstIndexes;
+        final long[] mins;
+        final long[] maxs;
+
+        Buckets(int capacity) {
+            this(new long[capacity], new int[capacity], new long[capacity], new long[capacity]);
+        }
+
+        private Buckets(long[] openTimes, int[] firstIndexes, long[] mins, long[] maxs) {
+            this.openTimes = openTimes;
+            this.firstIndexes = firstIndexes;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        Buckets grow(int capacity) {
+            return new Buckets(Arrays.copyOf(openTimes, capacity), Arrays.copyOf(firstIndexes, capacity),
+                    Arrays.copyOf(mins, capacity), Arrays.copyOf(maxs, capacity));
+        }
+    }
+}
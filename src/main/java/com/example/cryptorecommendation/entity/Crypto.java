@@ -5,13 +5,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.util.List;
-
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Crypto {
     String symbol;
-    List<CryptoPrice> prices;
+    CryptoPriceSeries prices;
 }
@@ -0,0 +1,27 @@
+package com.example.cryptorecommendation.entity;
+
+import lombok.*;
+
+/**
+ * Normalized range of crypto, as unscaled value of the scale. Rankings also carry annualized realized volatility
+ * of the range, daily leaders keep it zero.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CryptoNormalizedRange {
+    private String symbol;
+    private long normalizedPrice;
+    private int scale;
+    private double volatility;
+
+    public CryptoNormalizedRange(String symbol, long normalizedPrice, int scale) {
+        this(symbol, normalizedPrice, scale, 0);
+    }
+
+    public int compareNormalizedPriceTo(CryptoNormalizedRange other) {
+        return FixedPoint.compare(normalizedPrice, scale, other.normalizedPrice, other.scale);
+    }
+}
@@ -0,0 +1,484 @@
+package com.example.cryptorecommendation.entity;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, append-only store of crypto prices sorted by time.
+ * <p>
+ * Timestamps (epoch millis, UTC) and prices are kept in primitive arrays split into chunks of
+ * {@value #CHUNK_SIZE} ticks. The series grows chunk by chunk, so full chunks are never copied again
+ * and no single huge array has to be allocated.
+ * <p>
+ * Prices are stored as fixed-point longs of the series scale (see {@link FixedPoint}), so min/max and
+ * normalized range math runs on primitives and decimal values are exact.
+ * <p>
+ * Memory per tick is {@value #BYTES_PER_TICK} bytes (8 byte timestamp + 8 byte price + 24 byte prefix sums),
+ * plus indexes: {@value CandlePyramid#BYTES_PER_INTERVAL} bytes per candle interval having ticks on each candle
+ * level built so far, which adds up to about 34 bytes per tick for ticks a minute or more apart, 28 of them for
+ * the minute level, and under a byte per tick for range min/max tables, prefix sum blocks and day starts.
+ * See {@link #getMemoryBytes()}.
+ * The previous List&lt;CryptoPrice&gt; representation needed roughly 140 bytes per tick on a 64-bit JVM with
+ * compressed oops (CryptoPrice 24, LocalDateTime 24, LocalDate 24, LocalTime 24, BigDecimal 40, list slot 4).
+ * <p>
+ * Min and max price of any index range are answered by {@link RangeMinMaxIndex}, tick ranges of UTC days by
+ * {@link DailyRollupIndex}, candles of every {@link CandleInterval} by {@link CandlePyramid}, and mean, standard
+ * deviation and volatility of any index range by {@link PrefixAggregateIndex}. All of them are extended on every
+ * append, except candle levels, which are built on the first candle query of their interval.
+ * <p>
+ * Series can start with a {@link PriceHistory} of sealed ticks kept outside heap, e.g. in memory-mapped files.
+ * Only ticks appended after the history are kept in heap columns and indexes, the tail of the series, and queries
+ * spanning both are split at the first tail tick. Tick indexes of the series count history ticks first.
+ * <p>
+ * One writer and many readers are supported: appends are synchronized and the size is published last,
+ * so readers always see fully written ticks below {@link #size()}. Readers needing the same ticks across
+ * several calls use {@link #freeze()}.
+ */
+public class CryptoPriceSeries {
+
+    public static final int BYTES_PER_TICK = 2 * Long.BYTES + PrefixAggregateIndex.BYTES_PER_TICK;
+
+    static final int CHUNK_SHIFT = 14;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNK_CAPACITY = 64;
+    private static final double MILLIS_PER_YEAR = 365 * DailyRollupIndex.MILLIS_PER_DAY;
+
+    private volatile long[][] timestampChunks = new long[0][];
+    private volatile long[][] priceChunks = new long[0][];
+    private volatile int tailSize;
+    private final int scale;
+    private final PriceHistory history;
+    private final int historySize;
+
+    private final RangeMinMaxIndex rangeIndex;
+    private final DailyRollupIndex dailyIndex;
+    private final CandlePyramid candlePyramid;
+    private final PrefixAggregateIndex aggregateIndex;
+    private final boolean frozen;
+
+    /**
+     * Creates series rounding prices to {@value FixedPoint#MAX_SCALE} decimal places.
+     */
+    public CryptoPriceSeries() {
+        this(FixedPoint.MAX_SCALE);
+    }
+
+    /**
+     * Creates series storing prices with provided number of decimal places.
+     */
+    public CryptoPriceSeries(int scale) {
+        this(scale, null);
+    }
+
+    /**
+     * Creates series starting with ticks of history, whose unscaled prices have provided number of decimal places.
+     * Appended ticks follow the last history tick.
+     */
+    public CryptoPriceSeries(int scale, PriceHistory history) {
+        if (scale < 0 || scale > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("Crypto price scale must be between 0 and %d."
+                    .formatted(FixedPoint.MAX_SCALE));
+        }
+        this.scale = scale;
+        this.history = history;
+        this.historySize = history == null ? 0 : history.size();
+        this.rangeIndex = new RangeMinMaxIndex(this);
+        this.dailyIndex = new DailyRollupIndex();
+        this.candlePyramid = new CandlePyramid(this);
+        this.aggregateIndex = new PrefixAggregateIndex();
+        this.frozen = false;
+    }
+
+    /**
+     * Creates frozen view of series. Size is read first, so chunk tables read after it hold all ticks below size.
+     */
+    private CryptoPriceSeries(CryptoPriceSeries series) {
+        this.tailSize = series.tailSize;
+        this.timestampChunks = series.timestampChunks;
+        this.priceChunks = series.priceChunks;
+        this.scale = series.scale;
+        this.history = series.history;
+        this.historySize = series.historySize;
+        this.rangeIndex = series.rangeIndex;
+        this.dailyIndex = series.dailyIndex;
+        this.candlePyramid = series.candlePyramid;
+        this.aggregateIndex = series.aggregateIndex;
+        this.frozen = true;
+    }
+
+    /**
+     * Creates series from prices already sorted by date time, with the smallest scale fitting all prices.
+     */
+    public static CryptoPriceSeries fromPrices(List<CryptoPrice> prices) {
+        int scale = 0;
+        for (var price : prices) {
+            scale = FixedPoint.scaleOf(price.getPrice().doubleValue(), scale);
+        }
+
+        var series = new CryptoPriceSeries(scale);
+        for (var price : prices) {
+            series.append(price.getDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    price.getPrice().doubleValue());
+        }
+        return series;
+    }
+
+    /**
+     * Merges two sorted series into a new series in linear time. On equal timestamps first series goes first.
+     * Merged series has the larger scale of both series.
+     * History ticks of the first series older than the second series are not copied: the merged series starts with
+     * the longest prefix of the history holding only them, see {@link PriceHistory#getPrefix(int)}, and only later
+     * ticks are merged into its tail. History is not kept if the second series has more decimal places.
+     */
+    public static CryptoPriceSeries merge(CryptoPriceSeries first, CryptoPriceSeries second) {
+        var history = first.history == null || second.isEmpty() || second.scale > first.scale ? null
+                : first.history.getPrefix(first.history.firstIndexAtOrAfter(second.getFirstTimestamp()));
+        var merged = history == null ? new CryptoPriceSeries(Math.max(first.scale, second.scale))
+                : new CryptoPriceSeries(first.scale, history);
+        int firstSize = first.size();
+        int secondSize = second.size();
+        int i = merged.size();
+        int j = 0;
+        while (i < firstSize || j < secondSize) {
+            if (j >= secondSize || (i < firstSize && first.getTimestamp(i) <= second.getTimestamp(j))) {
+                merged.appendUnscaled(first.getTimestamp(i),
+                        FixedPoint.rescale(first.getUnscaledPrice(i++), first.scale, merged.scale));
+            } else {
+                merged.appendUnscaled(second.getTimestamp(j),
+                        FixedPoint.rescale(second.getUnscaledPrice(j++), second.scale, merged.scale));
+            }
+        }
+        return merged;
+    }
+
+    public int size() {
+        return historySize + tailSize;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public long getTimestamp(int index) {
+        if (index < historySize) {
+            return history.getTimestamp(index);
+        }
+        return getTailTimestamp(index - historySize);
+    }
+
+    /**
+     * Number of decimal places of stored prices.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * History the series starts with, or null if all ticks are in heap.
+     */
+    public PriceHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Number of ticks of the history, the index of the first tick kept in heap.
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Price as number of units of the series scale.
+     */
+    public long getUnscaledPrice(int index) {
+        if (index < historySize) {
+            return history.getUnscaledPrice(index);
+        }
+        return getTailUnscaledPrice(index - historySize);
+    }
+
+    public double getPrice(int index) {
+        return FixedPoint.toDouble(getUnscaledPrice(index), scale);
+    }
+
+    public long getFirstTimestamp() {
+        return getTimestamp(0);
+    }
+
+    public long getLastTimestamp() {
+        return getTimestamp(size() - 1);
+    }
+
+    /**
+     * Binary search for index of the first tick at or after provided timestamp.
+     * Returns size() if all ticks are older than timestamp.
+     * Start of UTC day is looked up in daily index without searching.
+     */
+    public int firstIndexAtOrAfter(long timestamp) {
+        return firstIndexAtOrAfter(timestamp, tailSize);
+    }
+
+    /**
+     * Min unscaled price of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    public long getMinUnscaledPrice(int fromIndex, int toIndex) {
+        if (toIndex <= historySize) {
+            return history.getMinUnscaledPrice(fromIndex, toIndex);
+        }
+        if (fromIndex >= historySize) {
+            return rangeIndex.min(fromIndex - historySize, toIndex - historySize);
+        }
+        return Math.min(history.getMinUnscaledPrice(fromIndex, historySize), rangeIndex.min(0, toIndex - historySize));
+    }
+
+    /**
+     * Max unscaled price of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    public long getMaxUnscaledPrice(int fromIndex, int toIndex) {
+        if (toIndex <= historySize) {
+            return history.getMaxUnscaledPrice(fromIndex, toIndex);
+        }
+        if (fromIndex >= historySize) {
+            return rangeIndex.max(fromIndex - historySize, toIndex - historySize);
+        }
+        return Math.max(history.getMaxUnscaledPrice(fromIndex, historySize), rangeIndex.max(0, toIndex - historySize));
+    }
+
+    /**
+     * Mean unscaled price of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    public double getMeanUnscaledPrice(int fromIndex, int toIndex) {
+        return getMoments(fromIndex, toIndex).mean();
+    }
+
+    /**
+     * Population standard deviation of unscaled prices of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    public double getUnscaledPriceStandardDeviation(int fromIndex, int toIndex) {
+        return Math.sqrt(getMoments(fromIndex, toIndex).variance());
+    }
+
+    /**
+     * Annualized realized volatility of ticks in [fromIndex, toIndex): square root of the sum of squared log returns
+     * between consecutive ticks, scaled from the time span of the range to a 365-day year. Independent of tick
+     * frequency, so cryptos with different tick rates are comparable. Zero if the range spans no time.
+     */
+    public double getVolatility(int fromIndex, int toIndex) {
+        var spanMillis = getTimestamp(toIndex - 1) - getTimestamp(fromIndex);
+        if (spanMillis <= 0) {
+            return 0;
+        }
+        return Math.sqrt(getSquaredReturnSum(fromIndex, toIndex) * MILLIS_PER_YEAR / spanMillis);
+    }
+
+    /**
+     * Open/close/min/max/count of unscaled prices in UTC day, or null if there are no prices in that day.
+     */
+    public DailyRollup getDailyRollup(long epochDay) {
+        int currentTailSize = tailSize;
+        int fromIndex = firstIndexAtOrAfter(epochDay * DailyRollupIndex.MILLIS_PER_DAY, currentTailSize);
+        int toIndex = firstIndexAtOrAfter((epochDay + 1) * DailyRollupIndex.MILLIS_PER_DAY, currentTailSize);
+        if (fromIndex >= toIndex) {
+            return null;
+        }
+        return new DailyRollup(epochDay, getUnscaledPrice(fromIndex), getUnscaledPrice(toIndex - 1),
+                getMinUnscaledPrice(fromIndex, toIndex), getMaxUnscaledPrice(fromIndex, toIndex),
+                toIndex - fromIndex, scale);
+    }
+
+    /**
+     * Candles of intervals starting in [from, to), from rounded down to the interval start, in time order.
+     * At most limit candles are returned. Candles opening in the history are built from its range queries,
+     * the candle of the first tail tick included, and later candles are read from the candle levels of the tail.
+     */
+    public List<Candle> getCandles(CandleInterval interval, long from, long to, int limit) {
+        int currentTailSize = tailSize;
+        var intervalMillis = interval.getMillis();
+        var candles = new ArrayList<Candle>();
+
+        int index = historySize == 0 ? 0 : firstIndexAtOrAfter(
+                from == Long.MIN_VALUE ? from : Math.floorDiv(from, intervalMillis) * intervalMillis, currentTailSize);
+        while (index < historySize && candles.size() < limit) {
+            var openTime = Math.floorDiv(getTimestamp(index), intervalMillis) * intervalMillis;
+            if (openTime >= to) {
+                return candles;
+            }
+            int toIndex = firstIndexAtOrAfter(openTime + intervalMillis, currentTailSize);
+            candles.add(new Candle(openTime, getUnscaledPrice(index), getUnscaledPrice(toIndex - 1),
+                    getMinUnscaledPrice(index, toIndex), getMaxUnscaledPrice(index, toIndex),
+                    toIndex - index, scale));
+            index = toIndex;
+            from = openTime + intervalMillis;
+        }
+
+        candles.addAll(candlePyramid.candles(interval, from, to, limit - candles.size(), currentTailSize));
+        return candles;
+    }
+
+    /**
+     * Ticks in [fromIndex, toIndex) downsampled to at most points ticks with {@link LttbDownsampler},
+     * keeping shape of the price chart.
+     */
+    public DownsampledPrices downsample(int fromIndex, int toIndex, int points) {
+        return LttbDownsampler.downsample(this, fromIndex, toIndex, points);
+    }
+
+    /**
+     * Read-only view of ticks appended so far. View shares chunks and indexes with this series and keeps its own
+     * size, so all its answers stay the same while ticks are appended to this series. Appending to view fails.
+     */
+    public CryptoPriceSeries freeze() {
+        return frozen ? this : new CryptoPriceSeries(this);
+    }
+
+    /**
+     * Approximate heap used by stored ticks and all their indexes, without the unused capacity of arrays.
+     * History ticks are not in heap, only summaries of the history are counted.
+     */
+    public long getMemoryBytes() {
+        int currentTailSize = tailSize;
+        return (long) currentTailSize * 2 * Long.BYTES
+                + aggregateIndex.getMemoryBytes(currentTailSize)
+                + rangeIndex.getMemoryBytes(currentTailSize)
+                + dailyIndex.getMemoryBytes(currentTailSize)
+                + candlePyramid.getMemoryBytes(currentTailSize)
+                + (history == null ? 0 : history.getMemoryBytes());
+    }
+
+    /**
+     * Appends price at the end of the series, rounded to the series scale.
+     * Timestamps have to be appended in time order.
+     */
+    public void append(long timestamp, double price) {
+        appendUnscaled(timestamp, FixedPoint.toUnscaled(price, scale));
+    }
+
+    /**
+     * Appends price given as number of units of the series scale. Timestamps have to be appended in time order.
+     */
+    public synchronized void appendUnscaled(long timestamp, long price) {
+        if (frozen) {
+            throw new IllegalStateException("Frozen crypto price series cannot be appended.");
+        }
+        int index = tailSize;
+        if ((index > 0 || historySize > 0) && timestamp < getTimestamp(historySize + index - 1)) {
+            throw new IllegalArgumentException("Crypto prices must be appended in time order.");
+        }
+        ensureCapacity(index);
+
+        timestampChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = timestamp;
+        priceChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = price;
+        rangeIndex.onAppend(index, price);
+        dailyIndex.onAppend(index, timestamp);
+        candlePyramid.onAppend(index, timestamp, price);
+        aggregateIndex.onAppend(index, price);
+        tailSize = index + 1;
+    }
+
+    /**
+     * Number of ticks appended after the history. Used by tail indexes built after ticks were appended.
+     */
+    int getTailSize() {
+        return tailSize;
+    }
+
+    long getTailTimestamp(int tailIndex) {
+        return timestampChunks[tailIndex >>> CHUNK_SHIFT][tailIndex & CHUNK_MASK];
+    }
+
+    /**
+     * Price of tick appended after the history, by its index in the tail. Used by tail indexes.
+     */
+    long getTailUnscaledPrice(int tailIndex) {
+        return priceChunks[tailIndex >>> CHUNK_SHIFT][tailIndex & CHUNK_MASK];
+    }
+
+    long getTailMinUnscaledPrice(int fromTailIndex, int toTailIndex) {
+        return rangeIndex.min(fromTailIndex, toTailIndex);
+    }
+
+    long getTailMaxUnscaledPrice(int fromTailIndex, int toTailIndex) {
+        return rangeIndex.max(fromTailIndex, toTailIndex);
+    }
+
+    /**
+     * Timestamps at or before the first tail tick are searched in the history, as all tail ticks are at or after
+     * them. Start of UTC day in the tail is looked up in daily index without searching.
+     */
+    private int firstIndexAtOrAfter(long timestamp, int currentTailSize) {
+        if (historySize > 0 && (currentTailSize == 0 || timestamp <= getTailTimestamp(0))) {
+            return history.firstIndexAtOrAfter(timestamp);
+        }
+        if (timestamp % DailyRollupIndex.MILLIS_PER_DAY == 0) {
+            return historySize + dailyIndex.firstIndexOfDay(timestamp / DailyRollupIndex.MILLIS_PER_DAY,
+                    currentTailSize);
+        }
+
+        int low = 0;
+        int high = currentTailSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTailTimestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return historySize + low;
+    }
+
+    private PriceMoments getMoments(int fromIndex, int toIndex) {
+        if (toIndex <= historySize) {
+            return history.getMoments(fromIndex, toIndex);
+        }
+        if (fromIndex >= historySize) {
+            return aggregateIndex.moments(fromIndex - historySize, toIndex - historySize);
+        }
+        return history.getMoments(fromIndex, historySize).plus(aggregateIndex.moments(0, toIndex - historySize));
+    }
+
+    /**
+     * Sum of squared log returns into ticks of (fromIndex, toIndex), including the return from the last history
+     * tick into the first tail tick.
+     */
+    private double getSquaredReturnSum(int fromIndex, int toIndex) {
+        if (toIndex <= historySize) {
+            return history.getSquaredReturnSum(fromIndex, toIndex);
+        }
+        if (fromIndex >= historySize) {
+            return aggregateIndex.squaredReturnSum(fromIndex - historySize, toIndex - historySize);
+        }
+        return history.getSquaredReturnSum(fromIndex, historySize)
+                + FixedPoint.squaredLogReturn(history.getUnscaledPrice(historySize - 1), getTailUnscaledPrice(0))
+                + aggregateIndex.squaredReturnSum(0, toIndex - historySize);
+    }
+
+    /**
+     * Chunks start small and double until they reach CHUNK_SIZE, so series with few ticks stay small.
+     * Chunk tables are replaced as a whole, so readers never see a partially copied chunk.
+     */
+    private void ensureCapacity(int index) {
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = index & CHUNK_MASK;
+
+        if (chunk == timestampChunks.length) {
+            var newTimestampChunks = Arrays.copyOf(timestampChunks, chunk + 1);
+            var newPriceChunks = Arrays.copyOf(priceChunks, chunk + 1);
+            newTimestampChunks[chunk] = new long[INITIAL_CHUNK_CAPACITY];
+            newPriceChunks[chunk] = new long[INITIAL_CHUNK_CAPACITY];
+            timestampChunks = newTimestampChunks;
+            priceChunks = newPriceChunks;
+        } else if (offset == timestampChunks[chunk].length) {
+            int capacity = Math.min(offset * 2, CHUNK_SIZE);
+            var newTimestampChunks = timestampChunks.clone();
+            var newPriceChunks = priceChunks.clone();
+            newTimestampChunks[chunk] = Arrays.copyOf(timestampChunks[chunk], capacity);
+            newPriceChunks[chunk] = Arrays.copyOf(priceChunks[chunk], capacity);
+            timestampChunks = newTimestampChunks;
+            priceChunks = newPriceChunks;
+        }
+    }
+}
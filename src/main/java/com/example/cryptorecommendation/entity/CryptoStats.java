@@ -2,8 +2,10 @@ package com.example.cryptorecommendation.entity;
 
 import lombok.*;
 
-import java.math.BigDecimal;
-
+/**
+ * Stats of crypto prices in a range. Prices are unscaled values of the scale, all zero if there are no prices.
+ * Average and standard deviation are rounded to whole units, volatility is annualized realized volatility.
+ */
 @Getter
 @Setter
 @AllArgsConstructor
@@ -11,8 +13,12 @@ import java.math.BigDecimal;
 @Data
 public class CryptoStats {
     private String symbol;
-    private BigDecimal oldest;
-    private BigDecimal newest;
-    private BigDecimal min;
-    private BigDecimal max;
+    private long oldest;
+    private long newest;
+    private long min;
+    private long max;
+    private long average;
+    private long standardDeviation;
+    private double volatility;
+    private int scale;
 }
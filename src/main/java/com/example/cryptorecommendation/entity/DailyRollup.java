@@ -0,0 +1,15 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Prices of one crypto aggregated for one UTC day. Prices are unscaled values of the series scale.
+ *
+ * @param epochDay Day as number of days since 1970-01-01.
+ * @param open     First price of the day.
+ * @param close    Last price of the day.
+ * @param min      Min price of the day.
+ * @param max      Max price of the day.
+ * @param count    Number of prices in the day.
+ * @param scale    Number of decimal places of prices.
+ */
+public record DailyRollup(long epochDay, long open, long close, long min, long max, int count, int scale) {
+}
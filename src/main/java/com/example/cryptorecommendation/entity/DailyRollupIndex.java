@@ -0,0 +1,79 @@
+package com.example.cryptorecommendation.entity;
+
+import java.util.Arrays;
+
+/**
+ * Daily rollup index of ticks a price series keeps in heap, by their index in the series tail.
+ * <p>
+ * For every UTC day between first and last tick it stores index of the first tick of that day (4 bytes per day).
+ * Tick range of any day is then known without searching, and open/close/min/max/count of a day follow in
+ * constant time from the series and its {@link RangeMinMaxIndex}. As rollups are derived from tick indexes,
+ * they are always consistent with the series size a reader has seen.
+ */
+class DailyRollupIndex {
+
+    static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private long firstDay;
+    private volatile int[] dayStartIndexes = new int[0];
+    private volatile int days;
+
+    /**
+     * Called by series for every appended tick, before the new size is published.
+     * Days without ticks start at the same index as the next day, so they have no ticks.
+     */
+    void onAppend(int index, long timestamp) {
+        var day = Math.floorDiv(timestamp, MILLIS_PER_DAY);
+        int dayCount = days;
+
+        if (dayCount == 0) {
+            firstDay = day;
+        }
+        if (day < firstDay + dayCount) {
+            return;
+        }
+
+        int newDayCount = Math.toIntExact(day - firstDay + 1);
+        var starts = dayStartIndexes;
+        if (newDayCount > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(newDayCount, starts.length * 2));
+        }
+        Arrays.fill(starts, dayCount, newDayCount, index);
+
+        dayStartIndexes = starts;
+        days = newDayCount;
+    }
+
+    /**
+     * Heap used by start indexes of days up to the day of the last of the first size ticks.
+     */
+    long getMemoryBytes(int size) {
+        int dayCount = days;
+        var starts = dayStartIndexes;
+        int low = 0;
+        int high = dayCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < size) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (long) low * Integer.BYTES;
+    }
+
+    /**
+     * Index of the first tick at or after start of the epoch day, or size if there is none.
+     */
+    int firstIndexOfDay(long epochDay, int size) {
+        int dayCount = days;
+        if (dayCount == 0 || epochDay <= firstDay) {
+            return 0;
+        }
+        if (epochDay >= firstDay + dayCount) {
+            return size;
+        }
+        return Math.min(dayStartIndexes[(int) (epochDay - firstDay)], size);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Prices selected from a price series, as columns in time order.
+ *
+ * @param timestamps Timestamps in epoch millis (UTC).
+ * @param prices     Prices at the same positions.
+ */
+public record DownsampledPrices(long[] timestamps, double[] prices) {
+}
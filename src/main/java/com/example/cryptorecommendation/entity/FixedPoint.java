@@ -0,0 +1,179 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Fixed-point decimal arithmetic on scaled longs, where value = unscaled / 10^scale.
+ * <p>
+ * Prices are parsed as doubles, so the exact decimal they were written with is recovered by finding the smallest
+ * scale at which the double is a whole number of units. Prices with more than {@value #MAX_SCALE} decimal places
+ * are rounded to {@value #MAX_SCALE} places.
+ * <p>
+ * Unscaled values must stay below 2^59 in magnitude, see {@link #divide(long, long, int)}. Prices beyond that,
+ * and positive prices that would round to zero units, are rejected with IllegalArgumentException instead of
+ * being stored saturated or as zero, which would read as "no prices".
+ * <p>
+ * Normalized ranges were calculated as (max - min) / min of BigDecimal.valueOf(double) prices, rounded HALF_EVEN
+ * at the larger scale of both prices. {@link #decimalScale(long, int)} and {@link #divide(long, long, int)}
+ * reproduce exactly that, so results do not change, but no BigDecimal is created.
+ */
+public final class FixedPoint {
+
+    public static final int MAX_SCALE = 8;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L};
+    private static final double MAX_EXACT_UNITS = 0x1p53;
+    private static final long MAX_UNSCALED = 1L << 59;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Smallest scale, not lower than minScale, at which price is a whole number of units. Usually the first
+     * checked scale fits, so finding scale of a whole series costs one check per price.
+     */
+    public static int scaleOf(double price, int minScale) {
+        for (int scale = minScale; scale < MAX_SCALE; scale++) {
+            var units = price * POWERS_OF_TEN[scale];
+            if (Math.abs(units) >= MAX_EXACT_UNITS || Math.rint(units) / POWERS_OF_TEN[scale] == price) {
+                return scale;
+            }
+        }
+        return Math.max(minScale, MAX_SCALE);
+    }
+
+    /**
+     * Price as whole number of units of the scale, rounded HALF_EVEN if it has more decimal places.
+     * Throws IllegalArgumentException if the price does not fit or is positive and rounds to zero.
+     */
+    public static long toUnscaled(double price, int scale) {
+        var units = Math.rint(price * POWERS_OF_TEN[scale]);
+        if (!(Math.abs(units) < MAX_UNSCALED)) {
+            throw new IllegalArgumentException("Crypto price %s is too large for %d decimal places."
+                    .formatted(price, scale));
+        }
+        if (units == 0 && price > 0) {
+            throw new IllegalArgumentException("Crypto price %s is below the smallest unit of %d decimal places."
+                    .formatted(price, scale));
+        }
+        return (long) units;
+    }
+
+    /**
+     * Nearest double to the decimal value, which is the double the price was parsed as.
+     */
+    public static double toDouble(long unscaled, int scale) {
+        return unscaled / (double) POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Value converted to a higher or equal scale. Throws IllegalArgumentException if it does not fit the new scale,
+     * e.g. when a large price is merged into a series with more decimal places.
+     */
+    public static long rescale(long unscaled, int scale, int newScale) {
+        var factor = POWERS_OF_TEN[newScale - scale];
+        if (Math.abs(unscaled) >= MAX_UNSCALED / factor) {
+            throw new IllegalArgumentException("Crypto price %s is too large for %d decimal places."
+                    .formatted(toDouble(unscaled, scale), newScale));
+        }
+        return unscaled * factor;
+    }
+
+    /**
+     * Scale of BigDecimal.valueOf(double) of the value, which follows Double.toString: plain notation between
+     * 10^-3 and 10^7 keeps at least one decimal place, scientific notation keeps at least one digit after the point.
+     */
+    public static int decimalScale(long unscaled, int scale) {
+        if (unscaled == 0) {
+            return 1;
+        }
+
+        var digits = unscaled;
+        var decimalPlaces = scale;
+        while (digits % 10 == 0) {
+            digits /= 10;
+            decimalPlaces--;
+        }
+
+        var magnitude = Math.abs(toDouble(unscaled, scale));
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            return Math.max(decimalPlaces, 1);
+        }
+        return digits / 10 == 0 ? decimalPlaces + 1 : decimalPlaces;
+    }
+
+    /**
+     * dividend / divisor as unscaled value of the scale, rounded HALF_EVEN. Scale can be negative.
+     * Digits are produced by long division, so no intermediate value overflows for dividends and divisors
+     * below 2^59.
+     */
+    public static long divide(long dividend, long divisor, int scale) {
+        var negative = (dividend < 0) != (divisor < 0);
+        var absoluteDividend = Math.abs(dividend);
+        var absoluteDivisor = Math.abs(divisor);
+        var quotient = absoluteDividend / absoluteDivisor;
+        var remainder = absoluteDividend % absoluteDivisor;
+
+        int comparedToHalf;
+        if (scale >= 0) {
+            for (int i = 0; i < scale; i++) {
+                remainder *= 10;
+                quotient = Math.addExact(Math.multiplyExact(quotient, 10), remainder / absoluteDivisor);
+                remainder %= absoluteDivisor;
+            }
+            comparedToHalf = Long.compare(remainder, absoluteDivisor - remainder);
+        } else if (-scale >= POWERS_OF_TEN.length) {
+            return 0;
+        } else {
+            var unit = POWERS_OF_TEN[-scale];
+            var unitRemainder = quotient % unit;
+            quotient /= unit;
+            comparedToHalf = Long.compare(unitRemainder, unit - unitRemainder);
+            if (comparedToHalf == 0 && remainder > 0) {
+                comparedToHalf = 1;
+            }
+        }
+
+        if (comparedToHalf > 0 || (comparedToHalf == 0 && (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return negative ? -quotient : quotient;
+    }
+
+    /**
+     * Squared log return between unscaled prices of the same scale. Prices rounded to zero have no defined return
+     * and add nothing.
+     */
+    public static double squaredLogReturn(long previousUnscaled, long unscaled) {
+        if (previousUnscaled <= 0 || unscaled <= 0) {
+            return 0;
+        }
+        var logReturn = Math.log((double) unscaled / previousUnscaled);
+        return logReturn * logReturn;
+    }
+
+    /**
+     * Compares values of possibly different scales without overflow.
+     */
+    public static int compare(long unscaled, int scale, long otherUnscaled, int otherScale) {
+        if (scale == otherScale) {
+            return Long.compare(unscaled, otherUnscaled);
+        }
+        if (scale < otherScale) {
+            return -compare(otherUnscaled, otherScale, unscaled, scale);
+        }
+        if (scale - otherScale >= POWERS_OF_TEN.length) {
+            return otherUnscaled == 0 ? Long.signum(unscaled) : -Long.signum(otherUnscaled);
+        }
+
+        var factor = POWERS_OF_TEN[scale - otherScale];
+        var high = Math.multiplyHigh(otherUnscaled, factor);
+        var low = otherUnscaled * factor;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return Long.compare(unscaled, low);
+        }
+        return high < 0 ? 1 : -1;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a price series range.
+ * <p>
+ * First and last ticks are always kept. Ticks in between are split into points - 2 buckets and from every bucket
+ * the tick forming the largest triangle with the tick selected from the previous bucket and the average of the
+ * next bucket is selected, so peaks and drops of the chart stay visible.
+ * <p>
+ * Ticks are read directly from the series in one pass over the buckets, the average of the next bucket is carried
+ * over as the candidate bucket of the next step, so every tick is read at most twice and nothing but the result
+ * columns is allocated.
+ */
+final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Downsamples ticks in [fromIndex, toIndex) to at most points ticks. Ranges with at most points ticks are
+     * returned as they are.
+     */
+    static DownsampledPrices downsample(CryptoPriceSeries series, int fromIndex, int toIndex, int points) {
+        int ticks = Math.max(toIndex - fromIndex, 0);
+        if (ticks <= points || points < 3) {
+            int count = ticks <= points ? ticks : Math.min(points, 2);
+            var result = new DownsampledPrices(new long[count], new double[count]);
+            for (int i = 0; i < count; i++) {
+                put(series, result, i, i == count - 1 ? toIndex - 1 : fromIndex + i);
+            }
+            return result;
+        }
+
+        var result = new DownsampledPrices(new long[points], new double[points]);
+        var origin = series.getTimestamp(fromIndex);
+
+        int selected = fromIndex;
+        put(series, result, 0, selected);
+
+        int bucketFrom = fromIndex + 1;
+        int bucketTo = fromIndex + bucketStart(1, ticks, points);
+        for (int bucket = 0; bucket < points - 2; bucket++) {
+            int nextBucketTo = fromIndex + Math.min(bucketStart(bucket + 2, ticks, points), ticks);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = bucketTo; i < nextBucketTo; i++) {
+                averageX += series.getTimestamp(i) - origin;
+                averageY += series.getPrice(i);
+            }
+            averageX /= nextBucketTo - bucketTo;
+            averageY /= nextBucketTo - bucketTo;
+
+            double selectedX = series.getTimestamp(selected) - origin;
+            double selectedY = series.getPrice(selected);
+            double maxArea = -1;
+            int next = bucketFrom;
+            for (int i = bucketFrom; i < bucketTo; i++) {
+                double area = Math.abs((selectedX - averageX) * (series.getPrice(i) - selectedY)
+                        - (selectedX - (series.getTimestamp(i) - origin)) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+
+            selected = next;
+            put(series, result, bucket + 1, selected);
+            bucketFrom = bucketTo;
+            bucketTo = nextBucketTo;
+        }
+
+        put(series, result, points - 1, toIndex - 1);
+        return result;
+    }
+
+    /**
+     * Offset of the first tick of the bucket. Bucket points - 2 starts at the last tick.
+     */
+    private static int bucketStart(int bucket, int ticks, int points) {
+        return 1 + (int) ((long) bucket * (ticks - 2) / (points - 2));
+    }
+
+    private static void put(CryptoPriceSeries series, DownsampledPrices result, int position, int index) {
+        result.timestamps()[position] = series.getTimestamp(index);
+        result.prices()[position] = series.getPrice(index);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.cryptorecommendation.entity;
+
+import java.util.Arrays;
+
+/**
+ * Prefix aggregate index of ticks a price series keeps in heap, by their index in the series tail.
+ * <p>
+ * For every tick it stores running sums up to it: sum and sum of squares of unscaled prices, and sum of squared log
+ * returns between consecutive ticks. Sums of a range are the difference of two entries, so mean, variance and
+ * realized volatility of any range take constant time after the range is found. Tick count of a range follows from
+ * its indexes and is not stored.
+ * <p>
+ * Running sums of squares over a whole series grow so large that variance of a short range would be lost to
+ * cancellation. Price sums therefore restart in every block of {@value #BLOCK_SIZE} ticks, as deviations from
+ * the first price of the block. For every completed block the count/mean/M2 moments of all blocks before it are
+ * stored, and whole blocks inside a range are combined with partial blocks at its edges using Chan's parallel
+ * variance formula. Squared log returns are small, so their running sum is kept over the whole series.
+ * <p>
+ * Tick sums are kept in chunks growing like the series chunks. The index needs {@value #BYTES_PER_TICK} bytes per
+ * tick plus {@value #BYTES_PER_BLOCK} bytes per block, and is extended incrementally on every append.
+ */
+class PrefixAggregateIndex {
+
+    static final int BYTES_PER_TICK = 3 * Double.BYTES;
+    static final int BYTES_PER_BLOCK = 3 * Double.BYTES;
+    static final int BLOCK_SHIFT = 8;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int COLUMNS = 3;
+    private static final int SUM = 0;
+    private static final int SQUARE_SUM = 1;
+    private static final int SQUARED_RETURN_SUM = 2;
+
+    private static final int CHUNK_SHIFT = CryptoPriceSeries.CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CryptoPriceSeries.CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNK_CAPACITY = 64;
+    private static final int INITIAL_BLOCK_CAPACITY = 16;
+
+    private volatile double[][] chunks = new double[0][];
+    private volatile double[] blockReferences = new double[INITIAL_BLOCK_CAPACITY];
+    private volatile double[] blockPrefixes = new double[2 * (INITIAL_BLOCK_CAPACITY + 1)];
+
+    private long previousPrice;
+    private double sum;
+    private double squareSum;
+    private double squaredReturnSum;
+
+    /**
+     * Called by series for every appended price, before the new size is published.
+     */
+    void onAppend(int index, long price) {
+        int block = index >>> BLOCK_SHIFT;
+        if ((index & (BLOCK_SIZE - 1)) == 0) {
+            startBlock(block, price);
+        }
+        if (index > 0) {
+            squaredReturnSum += FixedPoint.squaredLogReturn(previousPrice, price);
+        }
+        var deviation = price - blockReferences[block];
+        sum += deviation;
+        squareSum += deviation * deviation;
+        previousPrice = price;
+
+        ensureCapacity(index);
+        var chunk = chunks[index >>> CHUNK_SHIFT];
+        int offset = (index & CHUNK_MASK) * COLUMNS;
+        chunk[offset + SUM] = sum;
+        chunk[offset + SQUARE_SUM] = squareSum;
+        chunk[offset + SQUARED_RETURN_SUM] = squaredReturnSum;
+
+        if (((index + 1) & (BLOCK_SIZE - 1)) == 0) {
+            var moments = prefix(block).plus(blockMoments(index + 1 - BLOCK_SIZE, index + 1));
+            var prefixes = blockPrefixes;
+            prefixes[2 * (block + 1)] = moments.mean();
+            prefixes[2 * (block + 1) + 1] = moments.m2();
+        }
+    }
+
+    /**
+     * Sum of squared log returns between consecutive ticks in [fromIndex, toIndex). Range must not be empty.
+     * Return into the first tick of the range comes from a tick outside of it, so it is not included.
+     */
+    double squaredReturnSum(int fromIndex, int toIndex) {
+        return Math.max(0, column(SQUARED_RETURN_SUM, toIndex - 1) - column(SQUARED_RETURN_SUM, fromIndex));
+    }
+
+    /**
+     * Count, mean and M2 of unscaled prices of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    PriceMoments moments(int fromIndex, int toIndex) {
+        int firstBlock = fromIndex >>> BLOCK_SHIFT;
+        int lastBlock = (toIndex - 1) >>> BLOCK_SHIFT;
+        if (firstBlock == lastBlock) {
+            return blockMoments(fromIndex, toIndex);
+        }
+
+        int firstWholeBlock = firstBlock + 1;
+        return blockMoments(fromIndex, firstWholeBlock << BLOCK_SHIFT)
+                .plus(prefix(lastBlock).minus(prefix(firstWholeBlock)))
+                .plus(blockMoments(lastBlock << BLOCK_SHIFT, toIndex));
+    }
+
+    /**
+     * Heap used by running sums of the first size ticks and by their blocks, without unused capacity.
+     */
+    long getMemoryBytes(int size) {
+        long blocks = (size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        return (long) size * BYTES_PER_TICK + blocks * BYTES_PER_BLOCK;
+    }
+
+    /**
+     * Moments of ticks in [fromIndex, toIndex) of one block, from its running sums of deviations.
+     */
+    private PriceMoments blockMoments(int fromIndex, int toIndex) {
+        int count = toIndex - fromIndex;
+        var deviationSum = column(SUM, toIndex - 1);
+        var squareDeviationSum = column(SQUARE_SUM, toIndex - 1);
+        if ((fromIndex & (BLOCK_SIZE - 1)) != 0) {
+            deviationSum -= column(SUM, fromIndex - 1);
+            squareDeviationSum -= column(SQUARE_SUM, fromIndex - 1);
+        }
+        return new PriceMoments(count, blockReferences[fromIndex >>> BLOCK_SHIFT] + deviationSum / count,
+                Math.max(0, squareDeviationSum - deviationSum * deviationSum / count));
+    }
+
+    /**
+     * Moments of all blocks before the block.
+     */
+    private PriceMoments prefix(int block) {
+        var prefixes = blockPrefixes;
+        return new PriceMoments((long) block << BLOCK_SHIFT, prefixes[2 * block], prefixes[2 * block + 1]);
+    }
+
+    private double column(int column, int index) {
+        return chunks[index >>> CHUNK_SHIFT][(index & CHUNK_MASK) * COLUMNS + column];
+    }
+
+    /**
+     * Restarts price sums with the first price of the block as reference. Block arrays are replaced as a whole
+     * when they grow, so concurrent readers only ever see fully copied arrays.
+     */
+    private void startBlock(int block, long price) {
+        if (block == blockReferences.length) {
+            blockReferences = Arrays.copyOf(blockReferences, 2 * block);
+            blockPrefixes = Arrays.copyOf(blockPrefixes, 2 * (2 * block + 1));
+        }
+        blockReferences[block] = price;
+        sum = 0;
+        squareSum = 0;
+    }
+
+    /**
+     * Chunk table is replaced as a whole, so readers never see a partially copied chunk.
+     */
+    private void ensureCapacity(int index) {
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = (index & CHUNK_MASK) * COLUMNS;
+
+        if (chunk == chunks.length) {
+            var newChunks = Arrays.copyOf(chunks, chunk + 1);
+            newChunks[chunk] = new double[INITIAL_CHUNK_CAPACITY * COLUMNS];
+            chunks = newChunks;
+        } else if (offset == chunks[chunk].length) {
+            int capacity = Math.min(offset * 2, CryptoPriceSeries.CHUNK_SIZE * COLUMNS);
+            var newChunks = chunks.clone();
+            newChunks[chunk] = Arrays.copyOf(chunks[chunk], capacity);
+            chunks = newChunks;
+        }
+    }
+}
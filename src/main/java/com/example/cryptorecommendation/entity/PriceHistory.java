@@ -0,0 +1,45 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Sealed ticks at the start of a {@link CryptoPriceSeries}, kept outside heap, e.g. in memory-mapped files.
+ * History never changes, so a series and all its frozen views can share it.
+ * <p>
+ * Ranges are tick indexes [fromIndex, toIndex) of the history and must not be empty. Implementations answer range
+ * queries from summaries of their blocks of ticks, so only ticks at range edges are read.
+ */
+public interface PriceHistory {
+
+    int size();
+
+    long getTimestamp(int index);
+
+    long getUnscaledPrice(int index);
+
+    /**
+     * Index of the first tick at or after provided timestamp, or size() if all ticks are older than timestamp.
+     */
+    int firstIndexAtOrAfter(long timestamp);
+
+    long getMinUnscaledPrice(int fromIndex, int toIndex);
+
+    long getMaxUnscaledPrice(int fromIndex, int toIndex);
+
+    PriceMoments getMoments(int fromIndex, int toIndex);
+
+    /**
+     * Sum of squared log returns into ticks of (fromIndex, toIndex) from the tick before each of them,
+     * see {@link FixedPoint#squaredLogReturn(long, long)}.
+     */
+    double getSquaredReturnSum(int fromIndex, int toIndex);
+
+    /**
+     * Longest history of the first ticks of this one, at most maxSize of them, sharing its ticks and summaries.
+     * Returns this history if it is not longer than maxSize, or null if no such prefix can be shared.
+     */
+    PriceHistory getPrefix(int maxSize);
+
+    /**
+     * Approximate heap used by summaries of the history. Ticks themselves are not in heap.
+     */
+    long getMemoryBytes();
+}
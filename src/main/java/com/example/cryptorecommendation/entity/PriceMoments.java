@@ -0,0 +1,55 @@
+package com.example.cryptorecommendation.entity;
+
+/**
+ * Count, mean and sum of squared deviations from the mean (M2) of unscaled prices of a tick range.
+ * Moments of adjacent ranges are combined with Chan's parallel variance formula, so mean and variance of a range
+ * follow from moments of its parts without reading prices again.
+ *
+ * @param count Number of prices.
+ * @param mean  Mean unscaled price.
+ * @param m2    Sum of squared deviations of unscaled prices from the mean.
+ */
+public record PriceMoments(long count, double mean, double m2) {
+
+    public static final PriceMoments EMPTY = new PriceMoments(0, 0, 0);
+
+    /**
+     * Moments of both ranges together.
+     */
+    public PriceMoments plus(PriceMoments other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long total = count + other.count;
+        var delta = other.mean - mean;
+        return new PriceMoments(total, mean + delta * other.count / total,
+                m2 + other.m2 + delta * delta * count * other.count / total);
+    }
+
+    /**
+     * Moments of the rest of this range after its prefix.
+     */
+    public PriceMoments minus(PriceMoments prefix) {
+        long restCount = count - prefix.count;
+        if (restCount == 0) {
+            return EMPTY;
+        }
+        if (prefix.count == 0) {
+            return this;
+        }
+        var restMean = (mean * count - prefix.mean * prefix.count) / restCount;
+        var delta = restMean - prefix.mean;
+        return new PriceMoments(restCount, restMean,
+                Math.max(0, m2 - prefix.m2 - delta * delta * prefix.count * restCount / count));
+    }
+
+    /**
+     * Population variance of prices. Moments must not be empty.
+     */
+    public double variance() {
+        return m2 / count;
+    }
+}
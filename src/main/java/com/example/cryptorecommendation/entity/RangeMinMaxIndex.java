@@ -0,0 +1,154 @@
+package com.example.cryptorecommendation.entity;
+
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Range min/max index of ticks a price series keeps in heap, by their index in the series tail.
+ * <p>
+ * Unscaled prices are grouped into blocks of {@value #BLOCK_SIZE} ticks. For every completed block min and max are
+ * stored in sparse tables, where level k holds min/max of 2^k consecutive blocks. Any range of whole blocks is then
+ * answered with two table lookups, and only the partial blocks at range edges are scanned, so one query reads
+ * at most 2 * {@value #BLOCK_SIZE} prices regardless of series size.
+ * <p>
+ * The index is extended incrementally: completing a block adds one entry per level. It needs about
+ * 16 * log2(blocks) / {@value #BLOCK_SIZE} bytes per tick, which is below one byte per tick for 10 million ticks.
+ */
+class RangeMinMaxIndex {
+
+    static final int BLOCK_SHIFT = 8;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final CryptoPriceSeries series;
+    private final SparseTable minTable = new SparseTable(Math::min);
+    private final SparseTable maxTable = new SparseTable(Math::max);
+
+    private long blockMin = Long.MAX_VALUE;
+    private long blockMax = Long.MIN_VALUE;
+
+    RangeMinMaxIndex(CryptoPriceSeries series) {
+        this.series = series;
+    }
+
+    /**
+     * Called by series for every appended price, before the new size is published.
+     */
+    void onAppend(int index, long price) {
+        blockMin = Math.min(blockMin, price);
+        blockMax = Math.max(blockMax, price);
+
+        if (((index + 1) & (BLOCK_SIZE - 1)) == 0) {
+            minTable.addBlock(blockMin);
+            maxTable.addBlock(blockMax);
+            blockMin = Long.MAX_VALUE;
+            blockMax = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Heap used by sparse table entries of blocks completed within the first size ticks, both tables together.
+     * Level k holds one entry per run of 2^k consecutive blocks.
+     */
+    long getMemoryBytes(int size) {
+        int blocks = size >>> BLOCK_SHIFT;
+        long entries = 0;
+        for (int level = 0; (1 << level) <= blocks; level++) {
+            entries += blocks - (1 << level) + 1;
+        }
+        return 2 * entries * Long.BYTES;
+    }
+
+    /**
+     * Min unscaled price of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    long min(int fromIndex, int toIndex) {
+        return query(minTable, fromIndex, toIndex);
+    }
+
+    /**
+     * Max unscaled price of ticks in [fromIndex, toIndex). Range must not be empty.
+     */
+    long max(int fromIndex, int toIndex) {
+        return query(maxTable, fromIndex, toIndex);
+    }
+
+    private long query(SparseTable table, int fromIndex, int toIndex) {
+        var operator = table.operator;
+        int firstBlock = (fromIndex + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int lastBlock = toIndex >>> BLOCK_SHIFT;
+
+        if (firstBlock >= lastBlock) {
+            return scan(operator, series.getTailUnscaledPrice(fromIndex), fromIndex + 1, toIndex);
+        }
+
+        var result = table.query(firstBlock, lastBlock);
+        result = scan(operator, result, fromIndex, firstBlock << BLOCK_SHIFT);
+        return scan(operator, result, lastBlock << BLOCK_SHIFT, toIndex);
+    }
+
+    private long scan(LongBinaryOperator operator, long result, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            result = operator.applyAsLong(result, series.getTailUnscaledPrice(i));
+        }
+        return result;
+    }
+
+    /**
+     * Sparse table over completed blocks. Level arrays are replaced as a whole when they grow,
+     * so concurrent readers only ever see fully copied levels.
+     */
+    private static class SparseTable {
+
+        private final LongBinaryOperator operator;
+        private volatile long[][] levels = new long[0][];
+        private int blocks;
+
+        SparseTable(LongBinaryOperator operator) {
+            this.operator = operator;
+        }
+
+        void addBlock(long value) {
+            int block = blocks;
+            var table = levels;
+            int levelCount = 32 - Integer.numberOfLeadingZeros(block + 1);
+
+            if (levelCount > table.length || block >= table[0].length) {
+                table = grow(table, levelCount, block + 1);
+            }
+
+            table[0][block] = value;
+            for (int level = 1; level < levelCount; level++) {
+                int start = block - (1 << level) + 1;
+                table[level][start] = operator.applyAsLong(
+                        table[level - 1][start], table[level - 1][start + (1 << (level - 1))]);
+            }
+
+            levels = table;
+            blocks = block + 1;
+        }
+
+        /**
+         * Combined value of blocks in [fromBlock, toBlock) using two overlapping power of two ranges.
+         */
+        long query(int fromBlock, int toBlock) {
+            var table = levels;
+            int level = 31 - Integer.numberOfLeadingZeros(toBlock - fromBlock);
+            return operator.applyAsLong(table[level][fromBlock], table[level][toBlock - (1 << level)]);
+        }
+
+        private static long[][] grow(long[][] table, int levelCount, int minCapacity) {
+            int capacity = table.length == 0 ? 16 : table[0].length;
+            while (capacity < minCapacity) {
+                capacity *= 2;
+            }
+
+            var grown = new long[Math.max(levelCount, table.length)][];
+            for (int level = 0; level < grown.length; level++) {
+                grown[level] = level < table.length
+                        ? Arrays.copyOf(table[level], capacity)
+                        : new long[capacity];
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cryptorecommendation.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Supported orders of crypto rankings, both descending.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RankingOrder {
+
+    NORMALIZED_RANGE("normalizedRange"),
+    VOLATILITY("volatility");
+
+    private final String code;
+
+    public static RankingOrder fromCode(String code) {
+        for (var order : values()) {
+            if (order.code.equals(code)) {
+                return order;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported ranking order: %s.".formatted(code));
+    }
+}
@@ -1,13 +1,101 @@
 package com.example.cryptorecommendation.mapper;
 
+import com.example.cryptorecommendation.dto.CryptoCandleDto;
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
 import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.entity.Candle;
+import com.example.cryptorecommendation.entity.CryptoNormalizedRange;
 import com.example.cryptorecommendation.entity.CryptoStats;
+import com.example.cryptorecommendation.entity.FixedPoint;
+import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Maps entities to DTOs. Prices are fixed-point longs in entities and are converted to BigDecimal only here.
+ * Returns and volatilities are ratios with {@value #RATIO_SCALE} decimal places.
+ */
 @Component
 @Mapper(componentModel = "spring")
 public interface CryptoMapper {
 
+    int RATIO_SCALE = 6;
+
+    @Mapping(target = "oldest", expression = "java(toPrice(cryptoStats.getOldest(), cryptoStats.getScale()))")
+    @Mapping(target = "newest", expression = "java(toPrice(cryptoStats.getNewest(), cryptoStats.getScale()))")
+    @Mapping(target = "min", expression = "java(toPrice(cryptoStats.getMin(), cryptoStats.getScale()))")
+    @Mapping(target = "max", expression = "java(toPrice(cryptoStats.getMax(), cryptoStats.getScale()))")
+    @Mapping(target = "average", expression = "java(toPrice(cryptoStats.getAverage(), cryptoStats.getScale()))")
+    @Mapping(target = "standardDeviation",
+            expression = "java(toPrice(cryptoStats.getStandardDeviation(), cryptoStats.getScale()))")
+    @Mapping(target = "priceReturn", expression = "java(toReturn(cryptoStats.getOldest(), cryptoStats.getNewest()))")
+    @Mapping(target = "volatility", expression = "java(toRatio(cryptoStats.getVolatility()))")
     CryptoStatsDto mapCryptoStatsToDto(CryptoStats cryptoStats);
+
+    /**
+     * Daily leaders are chosen by normalized range only, so their volatility is not returned.
+     */
+    @Mapping(target = "normalizedPrice", expression = "java(java.math.BigDecimal.valueOf("
+            + "cryptoNormalizedRange.getNormalizedPrice(), cryptoNormalizedRange.getScale()))")
+    @Mapping(target = "volatility", ignore = true)
+    CryptoNormalizedRangeDto mapCryptoNormalizedRangeToDto(CryptoNormalizedRange cryptoNormalizedRange);
+
+    @Named("rankedCrypto")
+    @Mapping(target = "normalizedPrice", expression = "java(java.math.BigDecimal.valueOf("
+            + "cryptoNormalizedRange.getNormalizedPrice(), cryptoNormalizedRange.getScale()))")
+    @Mapping(target = "volatility", expression = "java(toRatio(cryptoNormalizedRange.getVolatility()))")
+    CryptoNormalizedRangeDto mapRankedCryptoToDto(CryptoNormalizedRange cryptoNormalizedRange);
+
+    @IterableMapping(qualifiedByName = "rankedCrypto")
+    List<CryptoNormalizedRangeDto> mapCryptoNormalizedRangesToDto(List<CryptoNormalizedRange> cryptoNormalizedRanges);
+
+    @Mapping(target = "open", expression = "java(toPrice(candle.open(), candle.scale()))")
+    @Mapping(target = "close", expression = "java(toPrice(candle.close(), candle.scale()))")
+    @Mapping(target = "min", expression = "java(toPrice(candle.min(), candle.scale()))")
+    @Mapping(target = "max", expression = "java(toPrice(candle.max(), candle.scale()))")
+    CryptoCandleDto mapCandleToDto(Candle candle);
+
+    List<CryptoCandleDto> mapCandlesToDto(List<Candle> candles);
+
+    default LocalDateTime mapEpochMilliToDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    /**
+     * Price with the same scale as BigDecimal.valueOf(double) of the price, so responses look as before prices
+     * were stored as fixed-point longs. Zero is returned as BigDecimal.ZERO, as stats without prices are zero.
+     */
+    default BigDecimal toPrice(long unscaledPrice, int scale) {
+        if (unscaledPrice == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(unscaledPrice, scale)
+                .setScale(FixedPoint.decimalScale(unscaledPrice, scale), RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Return (newest - oldest) / oldest rounded HALF_EVEN, or zero if there are no prices (oldest is zero).
+     */
+    default BigDecimal toReturn(long oldest, long newest) {
+        if (oldest == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(FixedPoint.divide(newest - oldest, oldest, RATIO_SCALE), RATIO_SCALE);
+    }
+
+    default BigDecimal toRatio(double ratio) {
+        if (ratio == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(ratio).setScale(RATIO_SCALE, RoundingMode.HALF_EVEN);
+    }
 }
@@ -18,4 +18,9 @@ public interface CryptoRepository {
     Crypto findBySymbol(String cryptoSymbol);
 
     List<String> getAllCryptoSymbols();
+
+    /**
+     * Version of stored data, increased on every save. Used to detect that derived data has to be rebuilt.
+     */
+    long getDataVersion();
 }
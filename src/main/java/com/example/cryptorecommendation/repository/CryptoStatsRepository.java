@@ -7,11 +7,19 @@ import java.time.LocalDateTime;
 
 /**
  * Crypto Stats interface repository.
- *
+ * Stats are stored per version of crypto prices, so stats of prices being replaced are never mixed with new prices.
  */
 @Repository
 public interface CryptoStatsRepository {
-    void save(CryptoStats cryptoStats, LocalDateTime fromDate, LocalDateTime toDate);
+    void save(CryptoStats cryptoStats, long version, LocalDateTime fromDate, LocalDateTime toDate);
 
-    CryptoStats getCryptoStatsForRange(String cryptoSymbol, LocalDateTime fromDate, LocalDateTime toDate);
+    CryptoStats getCryptoStatsForRange(String cryptoSymbol, long version, LocalDateTime fromDate,
+                                       LocalDateTime toDate);
+
+    /**
+     * Moves stats of crypto stored for version to newVersion, except stats of ranges containing any time in
+     * [fromDate, toDate] and all-time stats, which are removed. Stats of version are not available afterwards.
+     */
+    void moveCryptoStatsNotOverlappingRange(String cryptoSymbol, long version, long newVersion,
+                                            LocalDateTime fromDate, LocalDateTime toDate);
 }
@@ -0,0 +1,364 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.Crypto;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.repository.CryptoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded file repository for crypto data, enabled with crypto.repository.type=file.
+ * <p>
+ * Prices of every crypto are stored in crypto.repository.directory/SYMBOL as append-only {@link PriceSegment}
+ * files of crypto.repository.segment-ticks fixed-width records. Saving series which only grew since the last save
+ * appends new ticks to the last segment, other saves keep the longest unchanged prefix and rewrite ticks after it.
+ * Full segments are never written again: a save changing their ticks deletes them and writes new segments.
+ * Stored cryptos are available again after restart.
+ * <p>
+ * Series returned for a crypto keeps only ticks of the last segment which is not full in heap. Full segments are
+ * its {@link SegmentedPriceHistory}, read from the memory-mapped files and answered from a sparse index of every
+ * segment, see {@link PriceSegmentIndex}. Heap used by prices of a crypto is therefore bounded by
+ * crypto.repository.segment-ticks ticks, whatever the number of stored ticks. Saves which fill a segment replace
+ * the returned series by a new one with longer history, so callers read the series again after saving.
+ * <p>
+ * Tick count and disk usage of every stored crypto are exposed as gauges tagged by symbol.
+ */
+@Repository
+@ConditionalOnProperty(name = "crypto.repository.type", havingValue = "file")
+@Slf4j
+public class CryptoFileRepository implements CryptoRepository {
+
+    private static final Pattern SYMBOL_PATTERN = Pattern.compile("[A-Z0-9_-]+");
+
+    private final Map<String, StoredCrypto> storedCryptos = new ConcurrentHashMap<>();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final Path directory;
+    private final int segmentTicks;
+    private final MeterRegistry meterRegistry;
+
+    public CryptoFileRepository(@Value("${crypto.repository.directory}") String directory,
+                                @Value("${crypto.repository.segment-ticks}") int segmentTicks,
+                                MeterRegistry meterRegistry) throws IOException {
+        if (segmentTicks <= 0 || segmentTicks > PriceSegment.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Crypto segment ticks must be between 1 and %d."
+                    .formatted(PriceSegment.MAX_CAPACITY));
+        }
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.segmentTicks = segmentTicks;
+        this.meterRegistry = meterRegistry;
+        open();
+    }
+
+    @Override
+    public void save(Crypto crypto) {
+        var symbol = crypto.getSymbol().toUpperCase();
+        if (!SYMBOL_PATTERN.matcher(symbol).matches()) {
+            throw new IllegalArgumentException("Crypto symbol %s can contain only letters, digits, '_' and '-'."
+                    .formatted(symbol));
+        }
+
+        var storedCrypto = storedCryptos.computeIfAbsent(symbol, key -> {
+            registerGauges(key);
+            return new StoredCrypto(key, directory.resolve(key));
+        });
+        try {
+            storedCrypto.write(crypto.getPrices(), segmentTicks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Crypto %s cannot be saved.".formatted(symbol), e);
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    @Override
+    public Crypto findBySymbol(String cryptoSymbol) {
+        var storedCrypto = storedCryptos.get(cryptoSymbol.toUpperCase());
+        if (storedCrypto == null) {
+            return null;
+        }
+
+        var prices = storedCrypto.cachedPrices;
+        return new Crypto(storedCrypto.symbol, prices != null ? prices : storedCrypto.read());
+    }
+
+    @Override
+    public List<String> getAllCryptoSymbols() {
+        return storedCryptos.keySet().stream().toList();
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        storedCryptos.values().forEach(StoredCrypto::close);
+    }
+
+    /**
+     * Opens segments of all stored cryptos. Series are read lazily on first use.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (var cryptoDirectories = Files.list(directory)) {
+            for (var cryptoDirectory : cryptoDirectories.filter(Files::isDirectory).toList()) {
+                var symbol = cryptoDirectory.getFileName().toString();
+                if (!SYMBOL_PATTERN.matcher(symbol).matches()) {
+                    continue;
+                }
+
+                var storedCrypto = new StoredCrypto(symbol, cryptoDirectory);
+                storedCrypto.open();
+                if (storedCrypto.size() > 0) {
+                    storedCryptos.put(symbol, storedCrypto);
+                    registerGauges(symbol);
+                } else {
+                    storedCrypto.delete();
+                }
+            }
+        }
+        log.info("Opened crypto repository {} with {} cryptos.", directory, storedCryptos.size());
+    }
+
+    /**
+     * Gauges read current segments of the symbol on every scrape.
+     */
+    private void registerGauges(String symbol) {
+        Gauge.builder("crypto.prices.ticks", storedCryptos, cryptos -> cryptos.get(symbol).size())
+                .description("Number of stored prices of crypto")
+                .tag("symbol", symbol)
+                .register(meterRegistry);
+        Gauge.builder("crypto.prices.disk", storedCryptos, cryptos -> cryptos.get(symbol).getDiskBytes())
+                .description("Disk space used by stored prices of crypto")
+                .baseUnit("bytes")
+                .tag("symbol", symbol)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Segments of one crypto in time order. All segments but the last one are full and have the same scale.
+     * Full segments are indexed once and shared by history of returned series until they are deleted.
+     * Writes and reads of segments are synchronized, cached series is read without lock.
+     */
+    private static final class StoredCrypto {
+
+        private final String symbol;
+        private final Path directory;
+        private final List<PriceSegment> segments = new ArrayList<>();
+        private final List<PriceSegmentIndex> fullSegmentIndexes = new ArrayList<>();
+        private SegmentedPriceHistory history;
+        private long nextSegmentNumber;
+        private volatile CryptoPriceSeries cachedPrices;
+
+        private StoredCrypto(String symbol, Path directory) {
+            this.symbol = symbol;
+            this.directory = directory;
+        }
+
+        synchronized void open() throws IOException {
+            try (var files = Files.list(directory)) {
+                for (var file : files.filter(PriceSegment::isSegmentFile).sorted().toList()) {
+                    var segment = PriceSegment.open(file);
+                    segments.add(segment);
+                    if (segments.size() > 1 && (segment.getScale() != segments.get(0).getScale()
+                            || !segments.get(segments.size() - 2).isFull())) {
+                        close();
+                        throw new IOException("Invalid crypto segments in %s.".formatted(directory));
+                    }
+                    nextSegmentNumber = getSegmentNumber(file) + 1;
+                }
+            }
+        }
+
+        /**
+         * Reads series from segments, or returns series already read by another thread.
+         */
+        synchronized CryptoPriceSeries read() {
+            if (cachedPrices == null) {
+                cachedPrices = createPrices();
+            }
+            return cachedPrices;
+        }
+
+        /**
+         * Stores series. Ticks before the first tick differing from stored ones are kept, the rest is
+         * truncated and appended again. A full segment holding the first differing tick is deleted and its ticks
+         * appended again as well. Series with other scale than stored one is written from scratch.
+         * Saved series is cached if it has the same history as stored segments, otherwise a new series is read.
+         */
+        synchronized void write(CryptoPriceSeries prices, int segmentTicks) throws IOException {
+            Files.createDirectories(directory);
+
+            int fromIndex;
+            if (!segments.isEmpty() && segments.get(0).getScale() != prices.getScale()) {
+                fromIndex = 0;
+            } else if (prices == cachedPrices) {
+                fromIndex = Math.min(size(), prices.size());
+            } else {
+                fromIndex = getFirstDifferentIndex(prices);
+            }
+
+            cachedPrices = null;
+            truncate(getFullSegmentStart(fromIndex));
+            var index = size();
+            while (index < prices.size()) {
+                if (segments.isEmpty() || segments.get(segments.size() - 1).isFull()) {
+                    var file = directory.resolve(PriceSegment.getFileName(nextSegmentNumber++));
+                    segments.add(PriceSegment.create(file, prices.getScale(), segmentTicks));
+                }
+                index += segments.get(segments.size() - 1).append(prices, index, prices.size());
+            }
+            cachedPrices = prices.getHistory() == getHistory() ? prices : createPrices();
+        }
+
+        /**
+         * Deletes all segments, so directory can be used again for new series.
+         */
+        synchronized void delete() throws IOException {
+            truncate(0);
+        }
+
+        synchronized int size() {
+            return segments.stream().mapToInt(PriceSegment::size).sum();
+        }
+
+        synchronized long getDiskBytes() {
+            return segments.stream().mapToLong(PriceSegment::getDiskBytes).sum();
+        }
+
+        synchronized void close() {
+            for (var segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.warn("Crypto segment {} cannot be closed.", segment.getFile(), e);
+                }
+            }
+        }
+
+        /**
+         * Series with full segments as history and ticks of the last segment, if it is not full, in heap.
+         */
+        private CryptoPriceSeries createPrices() {
+            if (segments.isEmpty()) {
+                return new CryptoPriceSeries();
+            }
+
+            var prices = new CryptoPriceSeries(segments.get(0).getScale(), getHistory());
+            var lastSegment = segments.get(segments.size() - 1);
+            if (!lastSegment.isFull()) {
+                for (int i = 0; i < lastSegment.size(); i++) {
+                    prices.appendUnscaled(lastSegment.getTimestamp(i), lastSegment.getUnscaledPrice(i));
+                }
+            }
+            return prices;
+        }
+
+        /**
+         * History of all full segments, or null if there is none. Segments filled since the last call are indexed.
+         */
+        private SegmentedPriceHistory getHistory() {
+            while (fullSegmentIndexes.size() < segments.size() && segments.get(fullSegmentIndexes.size()).isFull()) {
+                fullSegmentIndexes.add(new PriceSegmentIndex(segments.get(fullSegmentIndexes.size())));
+                history = null;
+            }
+            if (history == null && !fullSegmentIndexes.isEmpty()) {
+                history = new SegmentedPriceHistory(fullSegmentIndexes);
+            }
+            return history;
+        }
+
+        /**
+         * Ticks of history segments shared with stored full segments are equal, so they are not compared. Series
+         * merged from stored one shares the full segments before the first merged tick, see
+         * {@link CryptoPriceSeries#merge(CryptoPriceSeries, CryptoPriceSeries)}.
+         */
+        private int getFirstDifferentIndex(CryptoPriceSeries prices) {
+            var index = 0;
+            var firstSegment = 0;
+            if (prices.getHistory() instanceof SegmentedPriceHistory pricesHistory) {
+                firstSegment = pricesHistory.getSharedSegmentCount(fullSegmentIndexes);
+                for (var segment : fullSegmentIndexes.subList(0, firstSegment)) {
+                    index += segment.size();
+                }
+            }
+
+            for (var segment : segments.subList(firstSegment, segments.size())) {
+                for (int i = 0; i < segment.size(); i++, index++) {
+                    if (index == prices.size() || segment.getTimestamp(i) != prices.getTimestamp(index)
+                            || segment.getUnscaledPrice(i) != prices.getUnscaledPrice(index)) {
+                        return index;
+                    }
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Start of the full segment holding the tick, or the index itself if the tick is in the last segment which
+         * is not full or is not stored.
+         */
+        private int getFullSegmentStart(int index) {
+            var segmentStart = 0;
+            for (var segment : segments) {
+                if (index < segmentStart + segment.size()) {
+                    return segment.isFull() ? segmentStart : index;
+                }
+                segmentStart += segment.size();
+            }
+            return index;
+        }
+
+        /**
+         * Drops stored ticks from the index on. Later segments are deleted from the last one, so after a crash
+         * segments still hold a prefix of stored ticks. Only the last segment, which is not full, is truncated
+         * in place, full segments are deleted as a whole. Mappings of deleted segments stay valid, so series
+         * reading them as history are not affected.
+         */
+        private void truncate(int newSize) throws IOException {
+            var segmentStart = size();
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                var segment = segments.get(i);
+                segmentStart -= segment.size();
+                if (segmentStart >= newSize) {
+                    segment.close();
+                    Files.delete(segment.getFile());
+                    segments.remove(i);
+                    if (i < fullSegmentIndexes.size()) {
+                        fullSegmentIndexes.remove(i);
+                        history = null;
+                    }
+                } else {
+                    segment.truncate(newSize - segmentStart);
+                    break;
+                }
+            }
+        }
+
+        private static long getSegmentNumber(Path file) throws IOException {
+            var fileName = file.getFileName().toString();
+            try {
+                return Long.parseLong(fileName.substring(0, fileName.length() - PriceSegment.FILE_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid crypto segment %s.".formatted(file), e);
+            }
+        }
+    }
+}
@@ -2,37 +2,134 @@ package com.example.cryptorecommendation.repository.impl;
 
 import com.example.cryptorecommendation.entity.CryptoStats;
 import com.example.cryptorecommendation.repository.CryptoStatsRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Temporary in-mem repository for crypto stats data
- * ConcurrentHashMap is used for multi-thread safety
+ * Temporary in-mem repository for crypto stats data.
+ * Caffeine cache bounded by crypto.stats-cache.maximum-size is used, so clients sending many distinct date ranges
+ * can not grow heap without limit. Hit, miss and eviction counters are exposed via actuator as cache.* metrics
+ * with tag cache=crypto-stats. Stats of older versions left by readers of older epochs are never read again and
+ * are evicted when cache is full.
+ * Cached keys are also indexed by crypto and version, so moving stats of one crypto to a new version touches only
+ * its entries. Evicted keys leave the index in the eviction listener.
  */
 @Repository
 public class CryptoStatsTemporaryRepository implements CryptoStatsRepository {
 
-    private final Map<String, CryptoStats> cryptoStatsMap = new ConcurrentHashMap<>();
+    static final String CACHE_NAME = "crypto-stats";
+
+    private final Map<String, Integer> cryptoSymbolIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCryptoSymbolId = new AtomicInteger();
+    private final Map<CryptoVersionKey, Set<CryptoStatsKey>> cryptoStatsKeysByVersion = new ConcurrentHashMap<>();
+    private final Cache<CryptoStatsKey, CryptoStats> cryptoStatsCache;
+
+    public CryptoStatsTemporaryRepository(@Value("${crypto.stats-cache.maximum-size}") long maximumSize,
+                                          MeterRegistry meterRegistry) {
+        cryptoStatsCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .<CryptoStatsKey, CryptoStats>evictionListener((key, cryptoStats, cause) -> removeFromIndex(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cryptoStatsCache, CACHE_NAME);
+    }
 
     @Override
-    public void save(CryptoStats cryptoStats, LocalDateTime fromDate, LocalDateTime toDate) {
-        var key = getKeyForCryptoStats(cryptoStats.getSymbol().toUpperCase(), fromDate, toDate);
-        cryptoStatsMap.put(key, cryptoStats);
+    public void save(CryptoStats cryptoStats, long version, LocalDateTime fromDate, LocalDateTime toDate) {
+        var cryptoSymbolId = cryptoSymbolIds.computeIfAbsent(cryptoStats.getSymbol().toUpperCase(),
+                symbol -> nextCryptoSymbolId.getAndIncrement());
+        var key = getKeyForCryptoStats(cryptoSymbolId, version, fromDate, toDate);
+        addToIndex(key);
+        cryptoStatsCache.put(key, cryptoStats);
     }
 
     @Override
-    public CryptoStats getCryptoStatsForRange(String cryptoSymbol, LocalDateTime fromDate, LocalDateTime toDate) {
-        var key = getKeyForCryptoStats(cryptoSymbol.toUpperCase(), fromDate, toDate);
-        return cryptoStatsMap.get(key);
+    public CryptoStats getCryptoStatsForRange(String cryptoSymbol, long version, LocalDateTime fromDate,
+                                              LocalDateTime toDate) {
+        var cryptoSymbolId = cryptoSymbolIds.get(cryptoSymbol.toUpperCase());
+        if(cryptoSymbolId == null) {
+            return null;
+        }
+        return cryptoStatsCache.getIfPresent(getKeyForCryptoStats(cryptoSymbolId, version, fromDate, toDate));
+    }
+
+    @Override
+    public void moveCryptoStatsNotOverlappingRange(String cryptoSymbol, long version, long newVersion,
+                                                   LocalDateTime fromDate, LocalDateTime toDate) {
+        var cryptoSymbolId = cryptoSymbolIds.get(cryptoSymbol.toUpperCase());
+        if(cryptoSymbolId == null) {
+            return;
+        }
+        var keys = cryptoStatsKeysByVersion.remove(new CryptoVersionKey(cryptoSymbolId, version));
+        if(keys == null) {
+            return;
+        }
+        var fromMillis = toEpochMilli(fromDate);
+        var toMillis = toEpochMilli(toDate);
+        var cryptoStatsMap = cryptoStatsCache.asMap();
+        for(var key : keys) {
+            var cryptoStats = cryptoStatsMap.remove(key);
+            if(cryptoStats != null && (key.fromMillis() > toMillis || key.toMillis() <= fromMillis)) {
+                var newKey = new CryptoStatsKey(cryptoSymbolId, newVersion, key.fromMillis(), key.toMillis());
+                addToIndex(newKey);
+                cryptoStatsMap.put(newKey, cryptoStats);
+            }
+        }
+    }
+
+    /**
+     * Keys of a version are only changed inside compute of their index entry, and moved only after the entry
+     * was removed, so plain sets are enough. Key is indexed before it is cached, so its eviction always finds it.
+     */
+    private void addToIndex(CryptoStatsKey key) {
+        cryptoStatsKeysByVersion.compute(key.getVersionKey(), (versionKey, keys) -> {
+            var versionKeys = keys == null ? new HashSet<CryptoStatsKey>() : keys;
+            versionKeys.add(key);
+            return versionKeys;
+        });
+    }
+
+    private void removeFromIndex(CryptoStatsKey key) {
+        cryptoStatsKeysByVersion.computeIfPresent(key.getVersionKey(), (versionKey, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
     }
 
-    private String getKeyForCryptoStats(String cryptoSymbol, LocalDateTime fromDate, LocalDateTime toDate) {
-        if(fromDate == null && toDate == null) {
-            return "%s-allTime".formatted(cryptoSymbol);
+    /**
+     * Stats are calculated for all-time when any date is missing, so such ranges share the open range key.
+     */
+    private CryptoStatsKey getKeyForCryptoStats(int cryptoSymbolId, long version, LocalDateTime fromDate,
+                                                LocalDateTime toDate) {
+        if(fromDate == null || toDate == null) {
+            return new CryptoStatsKey(cryptoSymbolId, version, Long.MIN_VALUE, Long.MAX_VALUE);
         }
-        return "%s-%s-%s".formatted(cryptoSymbol, fromDate, toDate);
+        return new CryptoStatsKey(cryptoSymbolId, version, toEpochMilli(fromDate), toEpochMilli(toDate));
+    }
+
+    private long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+    }
+
+    private record CryptoStatsKey(int cryptoSymbolId, long version, long fromMillis, long toMillis) {
+
+        CryptoVersionKey getVersionKey() {
+            return new CryptoVersionKey(cryptoSymbolId, version);
+        }
+    }
+
+    private record CryptoVersionKey(int cryptoSymbolId, long version) {
     }
 }
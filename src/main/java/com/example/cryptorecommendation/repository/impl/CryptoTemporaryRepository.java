@@ -2,24 +2,41 @@ package com.example.cryptorecommendation.repository.impl;
 
 import com.example.cryptorecommendation.entity.Crypto;
 import com.example.cryptorecommendation.repository.CryptoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Temporary in-mem repository for crypto data
  * ConcurrentHashMap is used for multi-thread safety
+ * Tick count and memory of every stored crypto are exposed as gauges tagged by symbol.
+ * Used unless crypto.repository.type selects another implementation.
  */
 @Repository
+@ConditionalOnProperty(name = "crypto.repository.type", havingValue = "memory", matchIfMissing = true)
 public class CryptoTemporaryRepository implements CryptoRepository {
 
     private final Map<String, Crypto> cryptoMap = new ConcurrentHashMap<>();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final MeterRegistry meterRegistry;
+
+    public CryptoTemporaryRepository(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @Override
     public void save(Crypto crypto) {
-        cryptoMap.put(crypto.getSymbol().toUpperCase(), crypto);
+        var symbol = crypto.getSymbol().toUpperCase();
+        if (cryptoMap.put(symbol, crypto) == null) {
+            registerGauges(symbol);
+        }
+        dataVersion.incrementAndGet();
     }
 
     @Override
@@ -31,4 +48,24 @@ public class CryptoTemporaryRepository implements CryptoRepository {
     public List<String> getAllCryptoSymbols() {
         return cryptoMap.keySet().stream().toList();
     }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Gauges read current series of the symbol on every scrape, so replaced series are picked up.
+     */
+    private void registerGauges(String symbol) {
+        Gauge.builder("crypto.prices.ticks", cryptoMap, cryptos -> cryptos.get(symbol).getPrices().size())
+                .description("Number of stored prices of crypto")
+                .tag("symbol", symbol)
+                .register(meterRegistry);
+        Gauge.builder("crypto.prices.memory", cryptoMap, cryptos -> cryptos.get(symbol).getPrices().getMemoryBytes())
+                .description("Memory used by stored prices of crypto")
+                .baseUnit("bytes")
+                .tag("symbol", symbol)
+                .register(meterRegistry);
+    }
 }
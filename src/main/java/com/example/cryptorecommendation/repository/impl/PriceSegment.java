@@ -0,0 +1,181 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.FixedPoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only segment file of crypto prices.
+ * <p>
+ * Layout (big-endian): header with magic, version, price scale, capacity and tick count, followed by fixed-width
+ * records of timestamp and unscaled price. File is allocated to its full capacity on creation and memory-mapped
+ * once, so records are written and read through the mapping and index of a tick is its record position.
+ * <p>
+ * Tick count in header is written only after records are forced to disk, so a crash while appending loses
+ * appended ticks but never exposes partially written records. Segment is not thread-safe.
+ */
+final class PriceSegment implements Closeable {
+
+    static final int RECORD_BYTES = 2 * Long.BYTES;
+    static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+    static final String FILE_SUFFIX = ".segment";
+
+    private static final int MAGIC = 0x43505347;
+    private static final int VERSION = 1;
+    private static final int SIZE_OFFSET = 4 * Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int scale;
+    private final int capacity;
+    private int size;
+
+    private PriceSegment(Path file, FileChannel channel, int scale, int capacity, int size) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        this.scale = scale;
+        this.capacity = capacity;
+        this.size = size;
+    }
+
+    /**
+     * Creates empty segment file for prices of provided scale.
+     */
+    static PriceSegment create(Path file, int scale, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Crypto segment capacity must be between 1 and %d."
+                    .formatted(MAX_CAPACITY));
+        }
+
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            var segment = new PriceSegment(file, channel, scale, capacity, 0);
+            segment.buffer.putInt(0, MAGIC).putInt(Integer.BYTES, VERSION).putInt(2 * Integer.BYTES, scale)
+                    .putInt(3 * Integer.BYTES, capacity).putLong(SIZE_OFFSET, 0);
+            segment.buffer.force();
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens existing segment file, validating its header.
+     */
+    static PriceSegment open(Path file) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Invalid crypto segment %s.".formatted(file));
+            }
+
+            var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            var magic = header.getInt(0);
+            var version = header.getInt(Integer.BYTES);
+            var scale = header.getInt(2 * Integer.BYTES);
+            var capacity = header.getInt(3 * Integer.BYTES);
+            var size = header.getLong(SIZE_OFFSET);
+            if (magic != MAGIC || version != VERSION || scale < 0 || scale > FixedPoint.MAX_SCALE
+                    || capacity <= 0 || capacity > MAX_CAPACITY || size < 0 || size > capacity
+                    || channel.size() < HEADER_BYTES + (long) capacity * RECORD_BYTES) {
+                throw new IOException("Invalid crypto segment %s.".formatted(file));
+            }
+            return new PriceSegment(file, channel, scale, capacity, (int) size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getScale() {
+        return scale;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    long getTimestamp(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    long getUnscaledPrice(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES + Long.BYTES);
+    }
+
+    /**
+     * Bytes of header and written records.
+     */
+    long getDiskBytes() {
+        return HEADER_BYTES + (long) size * RECORD_BYTES;
+    }
+
+    /**
+     * Appends ticks [fromIndex, toIndex) of series with the segment scale, as many as fit into the segment,
+     * and returns number of appended ticks.
+     */
+    int append(CryptoPriceSeries prices, int fromIndex, int toIndex) {
+        var count = Math.min(toIndex - fromIndex, capacity - size);
+        var position = HEADER_BYTES + size * RECORD_BYTES;
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(position, prices.getTimestamp(fromIndex + i));
+            buffer.putLong(position + Long.BYTES, prices.getUnscaledPrice(fromIndex + i));
+            position += RECORD_BYTES;
+        }
+
+        buffer.force(HEADER_BYTES + size * RECORD_BYTES, count * RECORD_BYTES);
+        writeSize(size + count);
+        return count;
+    }
+
+    /**
+     * Drops ticks from the index on. Records stay in file and are overwritten by following appends.
+     */
+    void truncate(int newSize) {
+        if (newSize < size) {
+            writeSize(newSize);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeSize(int newSize) {
+        buffer.putLong(SIZE_OFFSET, newSize);
+        buffer.force(0, HEADER_BYTES);
+        size = newSize;
+    }
+
+    /**
+     * Name of segment file with provided number. Numbers are zero-padded, so name order is segment order.
+     */
+    static String getFileName(long number) {
+        return "%012d%s".formatted(number, FILE_SUFFIX);
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return Files.isRegularFile(file) && file.getFileName().toString().endsWith(FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.FixedPoint;
+import com.example.cryptorecommendation.entity.PriceMoments;
+
+/**
+ * Sparse index of a sealed {@link PriceSegment}, kept in heap while records stay in the memory-mapped file.
+ * <p>
+ * Records are grouped into blocks of {@value #BLOCK_SIZE} ticks. For every block the timestamp of its first tick,
+ * min/max unscaled price, mean and M2 of prices and the sum of squared log returns into its ticks are stored
+ * ({@value #BYTES_PER_BLOCK} bytes per block). Time lookups search block timestamps and then records of one block,
+ * and range queries combine summaries of whole blocks, so only records of blocks at range edges are read.
+ * <p>
+ * Index is built by one pass over records of a full segment. Full segments are never written again, so the index
+ * never changes and can be read by many threads.
+ */
+final class PriceSegmentIndex {
+
+    static final int BLOCK_SHIFT = 12;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BYTES_PER_BLOCK = 3 * Long.BYTES + 3 * Double.BYTES;
+
+    private final PriceSegment segment;
+    private final int size;
+    private final long[] blockTimestamps;
+    private final long[] blockMins;
+    private final long[] blockMaxs;
+    private final double[] blockMeans;
+    private final double[] blockM2s;
+    private final double[] blockReturnSums;
+
+    PriceSegmentIndex(PriceSegment segment) {
+        this.segment = segment;
+        this.size = segment.size();
+        int blocks = (size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        blockTimestamps = new long[blocks];
+        blockMins = new long[blocks];
+        blockMaxs = new long[blocks];
+        blockMeans = new double[blocks];
+        blockM2s = new double[blocks];
+        blockReturnSums = new double[blocks];
+
+        for (int block = 0; block < blocks; block++) {
+            int fromIndex = block << BLOCK_SHIFT;
+            int toIndex = Math.min(fromIndex + BLOCK_SIZE, size);
+            var moments = scanMoments(fromIndex, toIndex);
+            blockTimestamps[block] = segment.getTimestamp(fromIndex);
+            blockMins[block] = scanMin(fromIndex, toIndex);
+            blockMaxs[block] = scanMax(fromIndex, toIndex);
+            blockMeans[block] = moments.mean();
+            blockM2s[block] = moments.m2();
+            blockReturnSums[block] = scanReturnSum(Math.max(fromIndex, 1), toIndex);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTimestamp(int index) {
+        return segment.getTimestamp(index);
+    }
+
+    long getUnscaledPrice(int index) {
+        return segment.getUnscaledPrice(index);
+    }
+
+    long getLastTimestamp() {
+        return segment.getTimestamp(size - 1);
+    }
+
+    /**
+     * Index of the first tick at or after timestamp, or size if there is none. Block timestamps are searched
+     * first, so only records of one block are read.
+     */
+    int firstIndexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = blockTimestamps.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blockTimestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+
+        low = (low - 1) << BLOCK_SHIFT;
+        high = Math.min(low + BLOCK_SIZE, size);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segment.getTimestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    long getMinUnscaledPrice(int fromIndex, int toIndex) {
+        int firstBlock = (fromIndex + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int lastBlock = toIndex >= size ? blockTimestamps.length : toIndex >>> BLOCK_SHIFT;
+        if (firstBlock >= lastBlock) {
+            return scanMin(fromIndex, toIndex);
+        }
+
+        var min = Math.min(scanMin(fromIndex, firstBlock << BLOCK_SHIFT), scanMin(lastBlock << BLOCK_SHIFT, toIndex));
+        for (int block = firstBlock; block < lastBlock; block++) {
+            min = Math.min(min, blockMins[block]);
+        }
+        return min;
+    }
+
+    long getMaxUnscaledPrice(int fromIndex, int toIndex) {
+        int firstBlock = (fromIndex + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int lastBlock = toIndex >= size ? blockTimestamps.length : toIndex >>> BLOCK_SHIFT;
+        if (firstBlock >= lastBlock) {
+            return scanMax(fromIndex, toIndex);
+        }
+
+        var max = Math.max(scanMax(fromIndex, firstBlock << BLOCK_SHIFT), scanMax(lastBlock << BLOCK_SHIFT, toIndex));
+        for (int block = firstBlock; block < lastBlock; block++) {
+            max = Math.max(max, blockMaxs[block]);
+        }
+        return max;
+    }
+
+    PriceMoments getMoments(int fromIndex, int toIndex) {
+        int firstBlock = (fromIndex + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int lastBlock = toIndex >= size ? blockTimestamps.length : toIndex >>> BLOCK_SHIFT;
+        if (firstBlock >= lastBlock) {
+            return scanMoments(fromIndex, toIndex);
+        }
+
+        var moments = scanMoments(fromIndex, firstBlock << BLOCK_SHIFT);
+        for (int block = firstBlock; block < lastBlock; block++) {
+            moments = moments.plus(new PriceMoments(getBlockSize(block), blockMeans[block], blockM2s[block]));
+        }
+        return moments.plus(scanMoments(lastBlock << BLOCK_SHIFT, toIndex));
+    }
+
+    /**
+     * Sum of squared log returns into ticks of (fromIndex, toIndex) from the tick before each of them.
+     */
+    double getSquaredReturnSum(int fromIndex, int toIndex) {
+        int from = fromIndex + 1;
+        int firstBlock = (from + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int lastBlock = toIndex >= size ? blockTimestamps.length : toIndex >>> BLOCK_SHIFT;
+        if (firstBlock >= lastBlock) {
+            return scanReturnSum(from, toIndex);
+        }
+
+        var sum = scanReturnSum(from, firstBlock << BLOCK_SHIFT) + scanReturnSum(lastBlock << BLOCK_SHIFT, toIndex);
+        for (int block = firstBlock; block < lastBlock; block++) {
+            sum += blockReturnSums[block];
+        }
+        return sum;
+    }
+
+    long getMemoryBytes() {
+        return (long) blockTimestamps.length * BYTES_PER_BLOCK;
+    }
+
+    private int getBlockSize(int block) {
+        return Math.min(BLOCK_SIZE, size - (block << BLOCK_SHIFT));
+    }
+
+    private long scanMin(int fromIndex, int toIndex) {
+        var min = Long.MAX_VALUE;
+        for (int i = fromIndex; i < toIndex; i++) {
+            min = Math.min(min, segment.getUnscaledPrice(i));
+        }
+        return min;
+    }
+
+    private long scanMax(int fromIndex, int toIndex) {
+        var max = Long.MIN_VALUE;
+        for (int i = fromIndex; i < toIndex; i++) {
+            max = Math.max(max, segment.getUnscaledPrice(i));
+        }
+        return max;
+    }
+
+    /**
+     * Moments of ticks in [fromIndex, toIndex) with Welford's algorithm.
+     */
+    private PriceMoments scanMoments(int fromIndex, int toIndex) {
+        double mean = 0;
+        double m2 = 0;
+        for (int i = fromIndex; i < toIndex; i++) {
+            var price = segment.getUnscaledPrice(i);
+            var delta = price - mean;
+            mean += delta / (i - fromIndex + 1);
+            m2 += delta * (price - mean);
+        }
+        return fromIndex < toIndex ? new PriceMoments(toIndex - fromIndex, mean, m2) : PriceMoments.EMPTY;
+    }
+
+    /**
+     * Sum of squared log returns into ticks of [fromIndex, toIndex), fromIndex must be positive.
+     */
+    private double scanReturnSum(int fromIndex, int toIndex) {
+        double sum = 0;
+        for (int i = fromIndex; i < toIndex; i++) {
+            sum += FixedPoint.squaredLogReturn(segment.getUnscaledPrice(i - 1), segment.getUnscaledPrice(i));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.FixedPoint;
+import com.example.cryptorecommendation.entity.PriceHistory;
+import com.example.cryptorecommendation.entity.PriceMoments;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Price history of full segments of a crypto, in time order. Ticks are read from the memory-mapped segments
+ * and range queries are answered from {@link PriceSegmentIndex} of every segment, so heap holds only the indexes.
+ * <p>
+ * Segments of a history are never written again: a write changing their ticks deletes them and creates new
+ * segments, and a new history is created for them. History and its indexes are immutable.
+ */
+final class SegmentedPriceHistory implements PriceHistory {
+
+    private final PriceSegmentIndex[] segments;
+    private final int[] segmentStarts;
+    private final double[] boundaryReturns;
+    private final int size;
+
+    SegmentedPriceHistory(List<PriceSegmentIndex> segments) {
+        this.segments = segments.toArray(PriceSegmentIndex[]::new);
+        this.segmentStarts = new int[this.segments.length];
+        this.boundaryReturns = new double[this.segments.length];
+
+        int start = 0;
+        for (int i = 0; i < this.segments.length; i++) {
+            segmentStarts[i] = start;
+            if (i > 0) {
+                var previous = this.segments[i - 1];
+                boundaryReturns[i] = FixedPoint.squaredLogReturn(previous.getUnscaledPrice(previous.size() - 1),
+                        this.segments[i].getUnscaledPrice(0));
+            }
+            start += this.segments[i].size();
+        }
+        this.size = start;
+    }
+
+    /**
+     * Number of first segments of this history which are the same indexes as the first ones provided.
+     */
+    int getSharedSegmentCount(List<PriceSegmentIndex> indexes) {
+        int count = 0;
+        while (count < segments.length && count < indexes.size() && segments[count] == indexes.get(count)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        int segment = getSegment(index);
+        return segments[segment].getTimestamp(index - segmentStarts[segment]);
+    }
+
+    @Override
+    public long getUnscaledPrice(int index) {
+        int segment = getSegment(index);
+        return segments[segment].getUnscaledPrice(index - segmentStarts[segment]);
+    }
+
+    /**
+     * Segments are searched by their last timestamp, then the first segment not older than timestamp by its index.
+     */
+    @Override
+    public int firstIndexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = segments.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segments[middle].getLastTimestamp() < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low == segments.length ? size : segmentStarts[low] + segments[low].firstIndexAtOrAfter(timestamp);
+    }
+
+    @Override
+    public long getMinUnscaledPrice(int fromIndex, int toIndex) {
+        var min = Long.MAX_VALUE;
+        for (int segment = getSegment(fromIndex); segment <= getSegment(toIndex - 1); segment++) {
+            min = Math.min(min, segments[segment].getMinUnscaledPrice(getFrom(segment, fromIndex),
+                    getTo(segment, toIndex)));
+        }
+        return min;
+    }
+
+    @Override
+    public long getMaxUnscaledPrice(int fromIndex, int toIndex) {
+        var max = Long.MIN_VALUE;
+        for (int segment = getSegment(fromIndex); segment <= getSegment(toIndex - 1); segment++) {
+            max = Math.max(max, segments[segment].getMaxUnscaledPrice(getFrom(segment, fromIndex),
+                    getTo(segment, toIndex)));
+        }
+        return max;
+    }
+
+    @Override
+    public PriceMoments getMoments(int fromIndex, int toIndex) {
+        var moments = PriceMoments.EMPTY;
+        for (int segment = getSegment(fromIndex); segment <= getSegment(toIndex - 1); segment++) {
+            moments = moments.plus(segments[segment].getMoments(getFrom(segment, fromIndex),
+                    getTo(segment, toIndex)));
+        }
+        return moments;
+    }
+
+    /**
+     * Returns into the first tick of every segment but the first one of the range come from the previous segment.
+     */
+    @Override
+    public double getSquaredReturnSum(int fromIndex, int toIndex) {
+        int firstSegment = getSegment(fromIndex);
+        double sum = 0;
+        for (int segment = firstSegment; segment <= getSegment(toIndex - 1); segment++) {
+            if (segment > firstSegment) {
+                sum += boundaryReturns[segment];
+            }
+            sum += segments[segment].getSquaredReturnSum(getFrom(segment, fromIndex), getTo(segment, toIndex));
+        }
+        return sum;
+    }
+
+    /**
+     * Prefix of whole segments, so it shares their indexes with this history.
+     */
+    @Override
+    public PriceHistory getPrefix(int maxSize) {
+        if (maxSize >= size) {
+            return this;
+        }
+        int segmentCount = getSegment(maxSize);
+        return segmentCount == 0 ? null
+                : new SegmentedPriceHistory(Arrays.asList(segments).subList(0, segmentCount));
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        long bytes = (long) segments.length * (Integer.BYTES + Double.BYTES);
+        for (var segment : segments) {
+            bytes += segment.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    private int getSegment(int index) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segmentStarts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int getFrom(int segment, int fromIndex) {
+        return Math.max(fromIndex - segmentStarts[segment], 0);
+    }
+
+    private int getTo(int segment, int toIndex) {
+        return Math.min(toIndex - segmentStarts[segment], segments[segment].size());
+    }
+}
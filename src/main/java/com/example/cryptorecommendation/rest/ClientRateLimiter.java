@@ -0,0 +1,171 @@
+package com.example.cryptorecommendation.rest;
+
+import com.example.cryptorecommendation.dto.CryptoStatsQueryDto;
+import com.example.cryptorecommendation.rest.exceptions.RateLimitExceeded;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token buckets, refilled with crypto.rate-limit.capacity tokens per crypto.rate-limit.period.
+ * <p>
+ * Every bucket is one AtomicLong holding the time at which it is full again, so taking tokens is a single
+ * compare-and-set and no lock is held on the request path. Buckets are spread over {@value #STRIPES} stripes by
+ * client key, and a stripe that reaches its share of crypto.rate-limit.maximum-clients first drops full buckets,
+ * which are the same as new ones, and then any buckets, so memory stays bounded even when all clients are active.
+ * Full buckets are also dropped every crypto.rate-limit.eviction-interval.
+ * <p>
+ * Requests take tokens by endpoint cost, see {@link RateLimitCost}. Batch requests take additional tokens in
+ * proportion to their queries, in the same call as their endpoint cost: one token per started
+ * crypto.batch.days-per-token days of query date range, and one token for all-time query, as all-time stats
+ * are always cached.
+ */
+@Component
+public class ClientRateLimiter {
+
+    static final int STRIPES = 64;
+
+    private final long capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final int maximumClientsPerStripe;
+    private final int daysPerToken;
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+    private final Counter rejectedRequests;
+
+    public ClientRateLimiter(@Value("${crypto.rate-limit.capacity}") long capacity,
+                             @Value("${crypto.rate-limit.period}") Duration period,
+                             @Value("${crypto.rate-limit.maximum-clients}") int maximumClients,
+                             @Value("${crypto.batch.days-per-token}") int daysPerToken,
+                             MeterRegistry meterRegistry) {
+        if (capacity < 1 || period.toNanos() < capacity) {
+            throw new IllegalArgumentException("Rate limit must allow at least one token per period.");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = period.toNanos() / capacity;
+        this.burstNanos = nanosPerToken * capacity;
+        this.maximumClientsPerStripe = Math.max(1, (maximumClients + STRIPES - 1) / STRIPES);
+        this.daysPerToken = daysPerToken;
+        Arrays.setAll(stripes, i -> new ConcurrentHashMap<>());
+        this.rejectedRequests = Counter.builder("crypto.rate-limit.rejected")
+                .description("Requests rejected by client rate limit")
+                .register(meterRegistry);
+        Gauge.builder("crypto.rate-limit.clients", this, ClientRateLimiter::getClientCount)
+                .description("Clients with tracked token buckets")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes tokens from client bucket, or throws RateLimitExceeded without taking any token.
+     * Requests needing more tokens than bucket capacity are always rejected.
+     *
+     * @return tokens left in client bucket
+     */
+    public long consume(String clientKey, long tokens) {
+        return consume(clientKey, tokens, System.nanoTime());
+    }
+
+    /**
+     * Takes batch endpoint cost and tokens of all batch queries from client bucket at once, or throws
+     * RateLimitExceeded without taking any token.
+     *
+     * @return tokens left in client bucket
+     */
+    public long consume(String clientKey, long endpointCost, List<CryptoStatsQueryDto> queries) {
+        return consume(clientKey, endpointCost, queries, System.nanoTime());
+    }
+
+    long consume(String clientKey, long endpointCost, List<CryptoStatsQueryDto> queries, long now) {
+        return consume(clientKey, endpointCost + queries.stream().mapToLong(this::getTokens).sum(), now);
+    }
+
+    long consume(String clientKey, long tokens, long now) {
+        if (tokens > capacity) {
+            rejectedRequests.increment();
+            throw new RateLimitExceeded(tokens, 0);
+        }
+
+        var bucket = getBucket(clientKey, now);
+        while (true) {
+            var fullAt = bucket.get();
+            var nanosUntilFull = Math.max(fullAt - now, 0) + tokens * nanosPerToken;
+            if (nanosUntilFull > burstNanos) {
+                rejectedRequests.increment();
+                throw new RateLimitExceeded(tokens, getRetryAfterSeconds(nanosUntilFull - burstNanos));
+            }
+            if (bucket.compareAndSet(fullAt, now + nanosUntilFull)) {
+                return (burstNanos - nanosUntilFull) / nanosPerToken;
+            }
+        }
+    }
+
+    long getTokens(CryptoStatsQueryDto query) {
+        if (query.getDateFrom() == null || query.getDateTo() == null) {
+            return 1;
+        }
+        var days = ChronoUnit.DAYS.between(query.getDateFrom(), query.getDateTo());
+        return Math.max(1, (days + daysPerToken - 1) / daysPerToken);
+    }
+
+    /**
+     * Drops buckets of clients that have not taken tokens for a whole period, as they are full.
+     */
+    @Scheduled(fixedDelayString = "${crypto.rate-limit.eviction-interval}")
+    public void evictIdleClients() {
+        var now = System.nanoTime();
+        for (var stripe : stripes) {
+            evictIdleClients(stripe, now);
+        }
+    }
+
+    long getClientCount() {
+        long clients = 0;
+        for (var stripe : stripes) {
+            clients += stripe.size();
+        }
+        return clients;
+    }
+
+    private AtomicLong getBucket(String clientKey, long now) {
+        var hash = clientKey.hashCode();
+        var stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        var bucket = stripe.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        if (stripe.size() >= maximumClientsPerStripe) {
+            evictIdleClients(stripe, now);
+            var clients = stripe.keySet().iterator();
+            while (stripe.size() >= maximumClientsPerStripe && clients.hasNext()) {
+                clients.next();
+                clients.remove();
+            }
+        }
+        return stripe.computeIfAbsent(clientKey, key -> new AtomicLong(now));
+    }
+
+    /**
+     * Bucket taken by a request while it is dropped loses that request tokens, which is at most one request cost
+     * of a client that was idle.
+     */
+    private static void evictIdleClients(ConcurrentHashMap<String, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    private static long getRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
@@ -24,7 +24,10 @@ public record ErrorResponse(
     public enum ErrorType {
         GENERAL,
         NOT_FOUND,
+        FORBIDDEN,
         VALIDATION_ERROR,
+        TOO_MANY_REQUESTS,
+        SERVICE_UNAVAILABLE,
     }
 
     /**
@@ -0,0 +1,45 @@
+package com.example.cryptorecommendation.rest;
+
+import com.example.cryptorecommendation.rest.exceptions.IngestNotAllowed;
+import com.example.cryptorecommendation.service.CryptoCluster;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Rejects calls of {@link IngestKeyRequired} endpoints without crypto.ingest.key in {@value #INGEST_KEY_HEADER}
+ * header, before the request body is read. Requests of other cluster nodes carry the cluster token instead.
+ * Without crypto.ingest.key clients cannot ingest prices at all.
+ * Rejected requests are answered by {@link RestExceptionHandler}, like errors of the endpoint itself.
+ */
+public class IngestKeyInterceptor implements HandlerInterceptor {
+
+    public static final String INGEST_KEY_HEADER = "X-Crypto-Ingest-Key";
+
+    private final byte[] ingestKey;
+    private final CryptoCluster cryptoCluster;
+
+    public IngestKeyInterceptor(String ingestKey, CryptoCluster cryptoCluster) {
+        this.ingestKey = ingestKey.isBlank() ? null : ingestKey.getBytes(StandardCharsets.UTF_8);
+        this.cryptoCluster = cryptoCluster;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !handlerMethod.hasMethodAnnotation(IngestKeyRequired.class)
+                || cryptoCluster.isShardRequest(request.getHeader(CryptoCluster.SHARD_TOKEN_HEADER))) {
+            return true;
+        }
+        var key = request.getHeader(INGEST_KEY_HEADER);
+        if (ingestKey == null || key == null
+                || !MessageDigest.isEqual(ingestKey, key.getBytes(StandardCharsets.UTF_8))) {
+            throw new IngestNotAllowed(ingestKey != null);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.cryptorecommendation.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Endpoint changing stored prices, called only with crypto.ingest.key or by other cluster nodes,
+ * see {@link IngestKeyInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IngestKeyRequired {
+}
@@ -0,0 +1,25 @@
+package com.example.cryptorecommendation.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rate limit tokens taken by each call of an endpoint. Endpoints without it take {@value #DEFAULT} tokens,
+ * which is one request of the former 5 requests per 10 seconds limit, so cheaper endpoints can take less.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimitCost {
+
+    long DEFAULT = 10;
+
+    long value();
+
+    /**
+     * Endpoint takes its cost itself, together with tokens that depend on the request body, so that a request
+     * is charged in one call and a rejected one takes no token.
+     */
+    boolean takenByEndpoint() default false;
+}
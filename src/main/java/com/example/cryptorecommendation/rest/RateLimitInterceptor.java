@@ -0,0 +1,59 @@
+package com.example.cryptorecommendation.rest;
+
+import com.example.cryptorecommendation.service.CryptoCluster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Takes endpoint cost from the bucket of the client address before the endpoint is called, except for endpoints
+ * that take it themselves, see {@link RateLimitCost#takenByEndpoint()}.
+ * Rejected requests are answered by {@link RestExceptionHandler}, like errors of the endpoint itself.
+ * Requests of other cluster nodes are not limited, as their clients were limited by the node they called.
+ */
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    public static final String REMAINING_HEADER = "X-Rate-Limit-Remaining";
+    private static final long TAKEN_BY_ENDPOINT = -1;
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final CryptoCluster cryptoCluster;
+    private final Map<Method, Long> costs = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (cryptoCluster.isShardRequest(request.getHeader(CryptoCluster.SHARD_TOKEN_HEADER))) {
+            return true;
+        }
+        var cost = getCost(handler);
+        if (cost == TAKEN_BY_ENDPOINT) {
+            return true;
+        }
+        var remaining = clientRateLimiter.consume(request.getRemoteAddr(), cost);
+        response.setHeader(REMAINING_HEADER, Long.toString(remaining));
+        return true;
+    }
+
+    /**
+     * @return endpoint cost, or {@value #TAKEN_BY_ENDPOINT} if the endpoint takes its cost itself
+     */
+    private long getCost(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return RateLimitCost.DEFAULT;
+        }
+        return costs.computeIfAbsent(handlerMethod.getMethod(), method -> {
+            var cost = handlerMethod.getMethodAnnotation(RateLimitCost.class);
+            if (cost == null) {
+                return RateLimitCost.DEFAULT;
+            }
+            return cost.takenByEndpoint() ? TAKEN_BY_ENDPOINT : cost.value();
+        });
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.cryptorecommendation.rest;
 
 import com.example.cryptorecommendation.rest.exceptions.CryptoNotSupported;
+import com.example.cryptorecommendation.rest.exceptions.IngestNotAllowed;
+import com.example.cryptorecommendation.rest.exceptions.RateLimitExceeded;
+import com.example.cryptorecommendation.rest.exceptions.ShardRequestRejected;
+import com.example.cryptorecommendation.rest.exceptions.ShardUnavailable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import javax.validation.ConstraintViolationException;
 import java.time.Instant;
 import java.util.List;
 
@@ -45,6 +51,51 @@ public class RestExceptionHandler {
                 HttpStatus.NOT_FOUND, ErrorResponse.ErrorType.NOT_FOUND, null);
     }
 
+    @ExceptionHandler(IngestNotAllowed.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    protected ResponseEntity<ErrorResponse> handleIngestNotAllowed(
+            IngestNotAllowed ex) {
+        log.warn("Ingest not allowed.", ex);
+        return buildErrorResponse(ex.getMessage(),
+                HttpStatus.FORBIDDEN, ErrorResponse.ErrorType.FORBIDDEN, null);
+    }
+
+    @ExceptionHandler(RateLimitExceeded.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    protected ResponseEntity<ErrorResponse> handleRateLimitExceeded(
+            RateLimitExceeded ex) {
+        log.warn("Rate limit exceeded.", ex);
+        var response = buildErrorResponse(ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS, ErrorResponse.ErrorType.TOO_MANY_REQUESTS, null);
+        if (ex.getRetryAfterSeconds() > 0) {
+            return ResponseEntity.status(response.getStatusCode())
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                    .body(response.getBody());
+        }
+        return response;
+    }
+
+    @ExceptionHandler(ShardUnavailable.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    protected ResponseEntity<ErrorResponse> handleShardUnavailable(
+            ShardUnavailable ex) {
+        log.warn("Crypto shard not available.", ex);
+        return buildErrorResponse(ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE, ErrorResponse.ErrorType.SERVICE_UNAVAILABLE, null);
+    }
+
+    /**
+     * Error of another node is returned to client as it is.
+     */
+    @ExceptionHandler(ShardRequestRejected.class)
+    protected ResponseEntity<ErrorResponse> handleShardRequestRejected(
+            ShardRequestRejected ex) {
+        log.warn("Crypto shard request rejected.", ex);
+        var errorResponse = ex.getErrorResponse();
+        return ResponseEntity.status(errorResponse.httpCode() != null
+                        ? errorResponse.httpCode() : HttpStatus.BAD_REQUEST.value())
+                .body(errorResponse);
+    }
 
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -69,6 +120,32 @@ public class RestExceptionHandler {
                 null);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    protected ResponseEntity<ErrorResponse> handleConstraintViolation(
+            ConstraintViolationException ex) {
+
+        log.warn("Validation error.", ex);
+        return buildErrorResponse(
+                "Validation error. Check 'validationErrors'.",
+                HttpStatus.BAD_REQUEST,
+                ErrorResponse.ErrorType.VALIDATION_ERROR,
+                ex.getConstraintViolations().stream()
+                        .map(violation -> new ErrorResponse.ValidationError(
+                                violation.getPropertyPath().toString(), violation.getMessage()))
+                        .toList());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    protected ResponseEntity<ErrorResponse> handleIllegalArgument(
+            IllegalArgumentException ex) {
+
+        log.warn("Invalid request data.", ex);
+        return buildErrorResponse(ex.getMessage(),
+                HttpStatus.BAD_REQUEST, ErrorResponse.ErrorType.VALIDATION_ERROR, null);
+    }
+
     protected List<ErrorResponse.ValidationError> getValidationErrors(
             MethodArgumentNotValidException ex) {
 
@@ -0,0 +1,9 @@
+package com.example.cryptorecommendation.rest.exceptions;
+
+public class IngestNotAllowed extends RuntimeException {
+
+    public IngestNotAllowed(boolean ingestEnabled) {
+        super(ingestEnabled ? "Crypto price ingest needs a valid ingest key."
+                : "Crypto price ingest is disabled, no ingest key is configured.");
+    }
+}
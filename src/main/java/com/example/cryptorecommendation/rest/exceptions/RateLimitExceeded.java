@@ -0,0 +1,14 @@
+package com.example.cryptorecommendation.rest.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceeded extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceeded(long tokens, long retryAfterSeconds) {
+        super("Rate limit exceeded, request needs %d tokens.".formatted(tokens));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
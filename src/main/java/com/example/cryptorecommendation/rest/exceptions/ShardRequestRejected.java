@@ -0,0 +1,15 @@
+package com.example.cryptorecommendation.rest.exceptions;
+
+import com.example.cryptorecommendation.rest.ErrorResponse;
+import lombok.Getter;
+
+@Getter
+public class ShardRequestRejected extends RuntimeException {
+
+    private final ErrorResponse errorResponse;
+
+    public ShardRequestRejected(String node, ErrorResponse errorResponse) {
+        super("Crypto shard %s rejected request: %s".formatted(node, errorResponse.message()));
+        this.errorResponse = errorResponse;
+    }
+}
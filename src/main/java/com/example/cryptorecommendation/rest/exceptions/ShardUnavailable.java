@@ -0,0 +1,7 @@
+package com.example.cryptorecommendation.rest.exceptions;
+
+public class ShardUnavailable extends RuntimeException {
+    public ShardUnavailable(String node, String reason, Throwable cause) {
+        super("Crypto shard %s is not available: %s.".formatted(node, reason), cause);
+    }
+}
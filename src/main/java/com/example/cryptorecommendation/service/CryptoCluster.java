@@ -0,0 +1,191 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.rest.ErrorResponse;
+import com.example.cryptorecommendation.rest.exceptions.ShardRequestRejected;
+import com.example.cryptorecommendation.rest.exceptions.ShardUnavailable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Symbol-sharded deployment, enabled with crypto.cluster.enabled.
+ * <p>
+ * crypto.cluster.nodes lists base URLs of all nodes, e.g. http://localhost:8080,http://localhost:8081, and
+ * crypto.cluster.self is the one of this node. Symbols are assigned to nodes by {@link CryptoShardRing} with
+ * crypto.cluster.virtual-nodes points per node, and every node loads and stores only prices of its own symbols.
+ * All nodes must be configured with the same nodes.
+ * <p>
+ * Nodes call each other with crypto.cluster.token in {@value #SHARD_TOKEN_HEADER} header. Such shard requests
+ * are answered from local data only and are not rate limited, as the client was limited by the node it called.
+ * Without crypto.cluster.enabled every symbol is local.
+ */
+@Component
+public class CryptoCluster {
+
+    public static final String SHARD_TOKEN_HEADER = "X-Crypto-Shard-Token";
+
+    @Getter
+    private final boolean enabled;
+    @Getter
+    private final String self;
+    @Getter
+    private final List<String> nodes;
+    private final CryptoShardRing ring;
+    private final byte[] token;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public CryptoCluster(@Value("${crypto.cluster.enabled}") boolean enabled,
+                         @Value("${crypto.cluster.nodes}") List<String> nodes,
+                         @Value("${crypto.cluster.self}") String self,
+                         @Value("${crypto.cluster.virtual-nodes}") int virtualNodes,
+                         @Value("${crypto.cluster.token}") String token,
+                         @Value("${crypto.cluster.timeout}") Duration timeout,
+                         ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.self = normalizeUrl(self);
+        this.nodes = nodes.stream().map(CryptoCluster::normalizeUrl).filter(node -> !node.isEmpty()).toList();
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+
+        if (enabled) {
+            if (!this.nodes.contains(this.self)) {
+                throw new IllegalArgumentException("Crypto cluster nodes %s do not contain this node %s."
+                        .formatted(this.nodes, this.self));
+            }
+            if (token.isBlank()) {
+                throw new IllegalArgumentException("Crypto cluster token cannot be empty.");
+            }
+            this.ring = new CryptoShardRing(this.nodes, virtualNodes);
+            this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        } else {
+            this.ring = null;
+            this.httpClient = null;
+        }
+    }
+
+    /**
+     * Node owning the symbol, this node if cluster is not enabled.
+     */
+    public String getOwner(String cryptoSymbol) {
+        return enabled ? ring.getNode(cryptoSymbol) : self;
+    }
+
+    /**
+     * Whether prices of the symbol are stored on this node.
+     */
+    public boolean isOwned(String cryptoSymbol) {
+        return !enabled || self.equals(ring.getNode(cryptoSymbol));
+    }
+
+    /**
+     * Whether request with provided {@value #SHARD_TOKEN_HEADER} header value was sent by another node.
+     */
+    public boolean isShardRequest(String shardToken) {
+        return enabled && shardToken != null
+                && MessageDigest.isEqual(token, shardToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends GET request to node and decodes JSON response. Responses other than 200 complete exceptionally,
+     * with {@link ShardRequestRejected} carrying the error of the node for client errors.
+     */
+    public <T> CompletableFuture<T> get(String node, String pathAndQuery, Class<T> responseType) {
+        return send(node, newRequest(node, pathAndQuery).GET(), responseType);
+    }
+
+    /**
+     * Sends POST request to node and decodes JSON response, like {@link #get}.
+     */
+    public <T> CompletableFuture<T> post(String node, String path, String contentType, byte[] body,
+                                         Class<T> responseType) {
+        var request = newRequest(node, path)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        return send(node, request, responseType);
+    }
+
+    /**
+     * Sends GET request to node and returns its response as is, for requests of clients routed to the owner.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> forward(String node, String pathAndQuery, String ifNoneMatch) {
+        var request = newRequest(node, pathAndQuery).GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .exceptionally(e -> {
+                    throw toShardUnavailable(node, e);
+                });
+    }
+
+    /**
+     * Waits for response of a node, rethrowing its failure as it is.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String node, String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .header(SHARD_TOKEN_HEADER, new String(token, StandardCharsets.UTF_8))
+                .header("Accept", "application/json");
+    }
+
+    private <T> CompletableFuture<T> send(String node, HttpRequest.Builder request, Class<T> responseType) {
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, e) -> {
+                    if (e != null) {
+                        throw toShardUnavailable(node, e);
+                    }
+                    if (response.statusCode() >= 400 && response.statusCode() < 500) {
+                        throw new ShardRequestRejected(node, decode(node, response, ErrorResponse.class));
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new ShardUnavailable(node, "status " + response.statusCode(), null);
+                    }
+                    return decode(node, response, responseType);
+                });
+    }
+
+    private <T> T decode(String node, HttpResponse<byte[]> response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response.body(), responseType);
+        } catch (IOException e) {
+            throw new ShardUnavailable(node, "invalid response with status " + response.statusCode(), e);
+        }
+    }
+
+    private static ShardUnavailable toShardUnavailable(String node, Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return new ShardUnavailable(node, String.valueOf(cause.getMessage()), cause);
+    }
+
+    private static String normalizeUrl(String url) {
+        var normalizedUrl = url.trim();
+        return normalizedUrl.endsWith("/") ? normalizedUrl.substring(0, normalizedUrl.length() - 1) : normalizedUrl;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.dto.CryptoIngestResultDto;
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeListDto;
+import com.example.cryptorecommendation.dto.CryptoStatsBatchDto;
+import com.example.cryptorecommendation.dto.CryptoStatsBatchRequestDto;
+import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.dto.CryptoStatsQueryDto;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.RankingOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers of a sharded deployment (see {@link CryptoCluster}) gathered from all nodes.
+ * <p>
+ * Other nodes are called in parallel while the local part is calculated, so latency is that of the slowest node.
+ * Every node answers only for its own symbols, so partial answers are merged without overlap. If any node does
+ * not answer the whole request fails, as ranking without some symbols would be wrong.
+ */
+@Service
+@RequiredArgsConstructor
+public class CryptoClusterService {
+
+    static final String API_PATH = "/api/crypto-recommend/";
+
+    /**
+     * Ranking order of nodes, with empty leader of a day without prices after any real one.
+     */
+    private static final Comparator<CryptoNormalizedRangeDto> RANKING_ORDER =
+            Comparator.comparing(CryptoNormalizedRangeDto::getNormalizedPrice, Comparator.reverseOrder())
+                    .thenComparing(normalizedRange -> normalizedRange.getSymbol().isEmpty())
+                    .thenComparing(CryptoNormalizedRangeDto::getSymbol);
+
+    /**
+     * Ranking order of nodes by volatility, as rounded in responses of nodes.
+     */
+    private static final Comparator<CryptoNormalizedRangeDto> VOLATILITY_ORDER =
+            Comparator.comparing(CryptoNormalizedRangeDto::getVolatility, Comparator.reverseOrder())
+                    .thenComparing(CryptoNormalizedRangeDto::getSymbol);
+
+    private final CryptoCluster cryptoCluster;
+    private final CryptoRecommendationService cryptoRecommendationService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Ranking merged from rankings of all nodes. Page of the merged ranking can contain any node's symbols,
+     * so every node returns its top offset + limit cryptos.
+     */
+    public CryptoNormalizedRangeListDto getNormalizedCryptosListDescending(LocalDate dateFrom, LocalDate dateTo,
+                                                                          Integer limit, int offset,
+                                                                          String orderBy) {
+        var order = RankingOrder.fromCode(orderBy);
+        var nodeLimit = limit == null ? null : (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        var query = new StringBuilder(API_PATH).append("normalizedPricesDescending?offset=0")
+                .append("&orderBy=").append(order.getCode());
+        if (dateFrom != null) {
+            query.append("&dateFrom=").append(dateFrom);
+        }
+        if (dateTo != null) {
+            query.append("&dateTo=").append(dateTo);
+        }
+        if (nodeLimit != null) {
+            query.append("&limit=").append(nodeLimit);
+        }
+
+        var nodeRankings = getFromOtherNodes(query.toString(), CryptoNormalizedRangeListDto.class);
+        var ranking = new ArrayList<>(cryptoRecommendationService
+                .getNormalizedCryptosListDescending(dateFrom, dateTo, nodeLimit, 0, orderBy).getCryptoList());
+        nodeRankings.forEach(nodeRanking -> ranking.addAll(CryptoCluster.join(nodeRanking).getCryptoList()));
+        ranking.sort(order == RankingOrder.VOLATILITY ? VOLATILITY_ORDER : RANKING_ORDER);
+
+        var fromIndex = Math.min(offset, ranking.size());
+        var toIndex = limit == null ? ranking.size() : (int) Math.min((long) fromIndex + limit, ranking.size());
+        return new CryptoNormalizedRangeListDto(List.copyOf(ranking.subList(fromIndex, toIndex)));
+    }
+
+    /**
+     * Leader of the day among leaders of all nodes.
+     */
+    public CryptoNormalizedRangeDto cryptoWithHighestNormalizedRangeByDay(LocalDate date) {
+        var nodeLeaders = getFromOtherNodes(API_PATH + "highestCryptoNormalizedRange/byDay/" + date,
+                CryptoNormalizedRangeDto.class);
+        var leader = cryptoRecommendationService.cryptoWithHighestNormalizedRangeByDay(date);
+        for (var nodeLeader : nodeLeaders) {
+            var candidate = CryptoCluster.join(nodeLeader);
+            if (RANKING_ORDER.compare(candidate, leader) < 0) {
+                leader = candidate;
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Queries are sent to owners of their symbols in one batch per node, stats are returned in query order.
+     */
+    public List<CryptoStatsDto> getCryptoStatsBatch(List<CryptoStatsQueryDto> queries) {
+        var queryIndexesByNode = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < queries.size(); i++) {
+            queryIndexesByNode.computeIfAbsent(cryptoCluster.getOwner(queries.get(i).getSymbol()),
+                    node -> new ArrayList<>()).add(i);
+        }
+
+        var nodeStats = new LinkedHashMap<String, CompletableFuture<CryptoStatsBatchDto>>();
+        queryIndexesByNode.forEach((node, queryIndexes) -> {
+            if (!node.equals(cryptoCluster.getSelf())) {
+                var nodeQueries = queryIndexes.stream().map(queries::get).toList();
+                nodeStats.put(node, cryptoCluster.post(node, API_PATH + "cryptoStats/batch", "application/json",
+                        encode(new CryptoStatsBatchRequestDto(nodeQueries)), CryptoStatsBatchDto.class));
+            }
+        });
+
+        var stats = new CryptoStatsDto[queries.size()];
+        var localQueryIndexes = queryIndexesByNode.get(cryptoCluster.getSelf());
+        if (localQueryIndexes != null) {
+            var localStats = cryptoRecommendationService.getCryptoStatsBatch(
+                    localQueryIndexes.stream().map(queries::get).toList());
+            for (int i = 0; i < localQueryIndexes.size(); i++) {
+                stats[localQueryIndexes.get(i)] = localStats.get(i);
+            }
+        }
+        nodeStats.forEach((node, nodeStatsFuture) -> {
+            var queryIndexes = queryIndexesByNode.get(node);
+            var nodeStatsList = CryptoCluster.join(nodeStatsFuture).getStats();
+            for (int i = 0; i < queryIndexes.size(); i++) {
+                stats[queryIndexes.get(i)] = nodeStatsList.get(i);
+            }
+        });
+        return Arrays.asList(stats);
+    }
+
+    /**
+     * Sends prices of cryptos owned by other nodes to their owners as CSV and waits until all of them are stored.
+     */
+    public void forwardPrices(Map<String, CryptoPriceSeries> pricesBySymbol) {
+        var csvByNode = new LinkedHashMap<String, StringBuilder>();
+        pricesBySymbol.forEach((symbol, prices) -> {
+            var csv = csvByNode.computeIfAbsent(cryptoCluster.getOwner(symbol), node -> new StringBuilder());
+            for (int i = 0; i < prices.size(); i++) {
+                csv.append(prices.getTimestamp(i)).append(',').append(symbol).append(',')
+                        .append(BigDecimal.valueOf(prices.getUnscaledPrice(i), prices.getScale()).toPlainString())
+                        .append('\n');
+            }
+        });
+
+        var results = csvByNode.entrySet().stream()
+                .map(nodeCsv -> cryptoCluster.post(nodeCsv.getKey(), API_PATH + "prices", "text/csv",
+                        nodeCsv.getValue().toString().getBytes(StandardCharsets.UTF_8), CryptoIngestResultDto.class))
+                .toList();
+        results.forEach(CryptoCluster::join);
+    }
+
+    private <T> List<CompletableFuture<T>> getFromOtherNodes(String pathAndQuery, Class<T> responseType) {
+        return cryptoCluster.getNodes().stream()
+                .filter(node -> !node.equals(cryptoCluster.getSelf()))
+                .map(node -> cryptoCluster.get(node, pathAndQuery, responseType))
+                .toList();
+    }
+
+    private byte[] encode(Object request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.cryptorecommendation.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Watch mode of crypto directory, enabled with crypto.watch.enabled.
+ * Directory is polled every crypto.watch.interval for new crypto files and rows appended to already loaded files.
+ * Only new bytes of each file are read, and new prices are appended to stored cryptos without reloading.
+ * Polling is used instead of file system events, as those are not reliable on mounted volumes.
+ */
+@Component
+@ConditionalOnProperty(name = "crypto.watch.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class CryptoDirectoryWatcher {
+
+    private final CryptoLoader cryptoLoader;
+    private final CryptoRecommendationService cryptoRecommendationService;
+    @Value("${crypto.directory}")
+    private String cryptoDirectory;
+
+    @Scheduled(fixedDelayString = "${crypto.watch.interval}")
+    public void loadNewCryptoData() {
+        if (!cryptoLoader.isCryptoDataLoaded()) {
+            return;
+        }
+
+        try {
+            var newCryptoData = cryptoLoader.loadNewCryptoDataFromDirectory(cryptoDirectory);
+            if (!newCryptoData.isEmpty()) {
+                cryptoRecommendationService.appendCryptos(newCryptoData);
+                log.info("New crypto data loaded for cryptos: {}.", newCryptoData.keySet().stream().toList());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error in loading of new crypto data.", e);
+        }
+    }
+}
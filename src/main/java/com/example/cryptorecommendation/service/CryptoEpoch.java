@@ -0,0 +1,88 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoNormalizedRange;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.CryptoStats;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Immutable crypto data of one epoch, published to readers as a whole by {@link CryptoEpochs}.
+ * Every crypto has frozen price series, its all-time stats and version of the epoch in which its prices last
+ * changed. New epoch with changed cryptos shares all other cryptos with the previous epoch.
+ * Daily leaders are calculated from prices of the epoch before it is published, so they always match its prices.
+ *
+ * @param version      Version of the epoch, increased by every published change.
+ * @param cryptos      Cryptos by upper-case symbol.
+ * @param dailyLeaders Crypto with highest normalized range of each day having a positive one.
+ */
+public record CryptoEpoch(long version, Map<String, EpochCrypto> cryptos,
+                          Map<LocalDate, CryptoNormalizedRange> dailyLeaders) {
+
+    static final CryptoEpoch EMPTY = new CryptoEpoch(0, Map.of(), Map.of());
+
+    /**
+     * Crypto of the epoch, or null if it is not stored.
+     */
+    public EpochCrypto get(String cryptoSymbol) {
+        return cryptos.get(cryptoSymbol.toUpperCase());
+    }
+
+    public List<String> getSymbols() {
+        return cryptos.values().stream().map(EpochCrypto::symbol).toList();
+    }
+
+    /**
+     * Daily leader of the day, or null if no crypto has a positive normalized range that day.
+     */
+    public CryptoNormalizedRange getDailyLeader(LocalDate day) {
+        return dailyLeaders.get(day);
+    }
+
+    /**
+     * Next epoch with crypto added or replaced. Map of cryptos is copied, cryptos themselves are shared.
+     */
+    CryptoEpoch withCrypto(String cryptoSymbol, CryptoPriceSeries prices, CryptoStats allTimeStats) {
+        return withCryptos(Map.of(cryptoSymbol, prices), (symbol, frozenPrices) -> allTimeStats);
+    }
+
+    /**
+     * Next epoch with many cryptos added or replaced at once, all of them changed in the new version.
+     * Map of cryptos is copied once, all-time stats are calculated from frozen prices of each crypto.
+     */
+    CryptoEpoch withCryptos(Map<String, CryptoPriceSeries> pricesBySymbol,
+                            BiFunction<String, CryptoPriceSeries, CryptoStats> allTimeStats) {
+        var newVersion = version + 1;
+        var newCryptos = new HashMap<>(cryptos);
+        pricesBySymbol.forEach((cryptoSymbol, prices) -> {
+            var frozenPrices = prices.freeze();
+            newCryptos.put(cryptoSymbol.toUpperCase(), new EpochCrypto(cryptoSymbol, frozenPrices, newVersion,
+                    allTimeStats.apply(cryptoSymbol, frozenPrices)));
+        });
+        return new CryptoEpoch(newVersion, Collections.unmodifiableMap(newCryptos), dailyLeaders);
+    }
+
+    /**
+     * The same epoch with daily leaders replaced. Used to complete an epoch before it is published.
+     */
+    CryptoEpoch withDailyLeaders(Map<LocalDate, CryptoNormalizedRange> newDailyLeaders) {
+        return new CryptoEpoch(version, cryptos, Collections.unmodifiableMap(newDailyLeaders));
+    }
+
+    /**
+     * Crypto as of an epoch. Prices are frozen, so they and stats derived from them never change,
+     * and version identifies them for caching of derived data.
+     *
+     * @param symbol       Crypto symbol as it was stored.
+     * @param prices       Frozen price series, see {@link CryptoPriceSeries#freeze()}.
+     * @param version      Version of the epoch in which prices of the crypto last changed.
+     * @param allTimeStats Stats of all prices.
+     */
+    public record EpochCrypto(String symbol, CryptoPriceSeries prices, long version, CryptoStats allTimeStats) {
+    }
+}
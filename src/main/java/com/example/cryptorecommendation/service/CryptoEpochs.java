@@ -0,0 +1,32 @@
+package com.example.cryptorecommendation.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Holder of the current {@link CryptoEpoch}.
+ * <p>
+ * Writers build the next epoch and publish it with a single volatile write, readers take the current epoch with
+ * a single volatile read and use it for the whole request. Readers therefore never wait for writers and never see
+ * prices and stats of different epochs mixed. Old epochs are not tracked: an epoch is garbage collected once no
+ * request in flight references it.
+ */
+@Component
+public class CryptoEpochs {
+
+    private volatile CryptoEpoch current = CryptoEpoch.EMPTY;
+
+    public CryptoEpoch current() {
+        return current;
+    }
+
+    /**
+     * Version of the current epoch, changed whenever published crypto data changes.
+     */
+    public long getVersion() {
+        return current.version();
+    }
+
+    void publish(CryptoEpoch epoch) {
+        current = epoch;
+    }
+}
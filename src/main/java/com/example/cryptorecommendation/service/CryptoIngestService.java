@@ -0,0 +1,177 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.dto.CryptoIngestResultDto;
+import com.example.cryptorecommendation.dto.CryptoPriceTickDto;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Service for ingesting streamed prices of one or many cryptos.
+ * Prices are collected per crypto in batches of {@value #BATCH_SIZE} rows. Every batch is sorted on its own and
+ * appended to stored prices, so memory does not depend on request size and stored prices are never sorted again.
+ * Each batch is published to readers as one epoch.
+ * Batches are stored as they are read, so the body is never validated as a whole: batches stored before an invalid
+ * row stay stored, prices of the batch holding it are dropped, and the error tells how many prices stay stored.
+ * Prices must be positive and timestamps within [{@link #MIN_TIMESTAMP}, {@link #MAX_TIMESTAMP}), so a mistyped
+ * timestamp cannot make daily indexes of a crypto span decades.
+ * In a sharded deployment prices of client requests are stored by owners of their cryptos, see {@link CryptoCluster}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CryptoIngestService {
+
+    static final int BATCH_SIZE = 1 << 16;
+    static final long MIN_TIMESTAMP = Instant.parse("2009-01-03T00:00:00Z").toEpochMilli();
+    static final long MAX_TIMESTAMP = Instant.parse("2100-01-01T00:00:00Z").toEpochMilli();
+
+    private final CryptoRecommendationService cryptoRecommendationService;
+    private final ObjectMapper objectMapper;
+    private final CryptoCluster cryptoCluster;
+    private final CryptoClusterService cryptoClusterService;
+
+    /**
+     * Ingest CSV rows in timestamp,symbol,price format. Header row is optional.
+     * With routeToOwners prices of cryptos owned by other nodes are sent to them instead of stored here.
+     */
+    @Timed(value = "crypto.ingest", percentiles = {0.5, 0.95, 0.99})
+    public CryptoIngestResultDto ingestCsv(InputStream input, boolean routeToOwners) throws IOException {
+        var batch = new IngestBatch(routeToOwners);
+        try {
+            PriceCsvParser.readRows(Channels.newChannel(input), false, "request", batch::add);
+        } catch (IllegalArgumentException e) {
+            throw batch.rejected(e);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Ingest newline delimited JSON objects with timestamp, symbol and price fields, routed like CSV rows.
+     */
+    @Timed(value = "crypto.ingest", percentiles = {0.5, 0.95, 0.99})
+    public CryptoIngestResultDto ingestNdjson(InputStream input, boolean routeToOwners) throws IOException {
+        var batch = new IngestBatch(routeToOwners);
+        try (var ticks = objectMapper.readerFor(CryptoPriceTickDto.class).<CryptoPriceTickDto>readValues(input)) {
+            while (ticks.hasNextValue()) {
+                var tick = ticks.nextValue();
+                if (tick.getTimestamp() == null || tick.getPrice() == null) {
+                    throw new IllegalArgumentException("Crypto price must have timestamp, symbol and price.");
+                }
+                batch.add(tick.getSymbol(), tick.getTimestamp(), tick.getPrice());
+            }
+        } catch (JsonProcessingException e) {
+            throw batch.rejected(new IllegalArgumentException("Invalid crypto price: " + e.getOriginalMessage(), e));
+        } catch (IllegalArgumentException e) {
+            throw batch.rejected(e);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Prices of current batch grouped by crypto. Symbol of the last CSV row is kept as bytes,
+     * so rows of the same crypto following each other do not create a String per row.
+     */
+    private class IngestBatch {
+
+        private final Map<String, PriceColumns> columnsBySymbol = new HashMap<>();
+        private final TreeSet<String> symbols = new TreeSet<>();
+        private final boolean routeToOwners;
+        private byte[] lastSymbolBytes;
+        private PriceColumns lastColumns;
+        private int batchSize;
+        private long ingestedPrices;
+        private long storedPrices;
+
+        IngestBatch(boolean routeToOwners) {
+            this.routeToOwners = routeToOwners;
+        }
+
+        void add(byte[] bytes, int symbolFrom, int symbolTo, long timestamp, double price) {
+            if (lastSymbolBytes == null
+                    || !Arrays.equals(bytes, symbolFrom, symbolTo, lastSymbolBytes, 0, lastSymbolBytes.length)) {
+                lastSymbolBytes = Arrays.copyOfRange(bytes, symbolFrom, symbolTo);
+                lastColumns = getColumns(new String(lastSymbolBytes, StandardCharsets.UTF_8));
+            }
+            add(lastColumns, timestamp, price);
+        }
+
+        void add(String symbol, long timestamp, double price) {
+            add(getColumns(symbol), timestamp, price);
+        }
+
+        CryptoIngestResultDto finish() {
+            flush();
+            log.info("Ingested {} crypto prices of cryptos: {}.", ingestedPrices, symbols);
+            return new CryptoIngestResultDto(ingestedPrices, symbols.stream().toList());
+        }
+
+        /**
+         * Error of an invalid price telling how many prices of the request were stored in batches before it.
+         */
+        IllegalArgumentException rejected(IllegalArgumentException e) {
+            log.warn("Stored {} crypto prices of cryptos {} before invalid price.", storedPrices, symbols);
+            return new IllegalArgumentException("%s %d prices of earlier batches stay stored."
+                    .formatted(e.getMessage(), storedPrices), e);
+        }
+
+        private void add(PriceColumns columns, long timestamp, double price) {
+            if (timestamp < MIN_TIMESTAMP || timestamp >= MAX_TIMESTAMP) {
+                throw new IllegalArgumentException("Crypto price timestamp %d is out of range.".formatted(timestamp));
+            }
+            if (!(price > 0)) {
+                throw new IllegalArgumentException("Crypto price must be positive, not %s.".formatted(price));
+            }
+            columns.add(timestamp, price);
+            ingestedPrices++;
+            if (++batchSize == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private PriceColumns getColumns(String symbol) {
+            if (symbol == null || symbol.isBlank()) {
+                throw new IllegalArgumentException("Crypto symbol cannot be empty.");
+            }
+            return columnsBySymbol.computeIfAbsent(symbol.trim().toUpperCase(), key -> new PriceColumns());
+        }
+
+        private void flush() {
+            var ownedPrices = new HashMap<String, CryptoPriceSeries>();
+            var forwardedPrices = new HashMap<String, CryptoPriceSeries>();
+            columnsBySymbol.forEach((symbol, columns) -> {
+                if (routeToOwners && !cryptoCluster.isOwned(symbol)) {
+                    forwardedPrices.put(symbol, columns.toSortedSeries());
+                } else {
+                    ownedPrices.put(symbol, columns.toSortedSeries());
+                }
+                symbols.add(symbol);
+            });
+            if (!ownedPrices.isEmpty()) {
+                cryptoRecommendationService.appendCryptos(ownedPrices);
+            }
+            if (!forwardedPrices.isEmpty()) {
+                cryptoClusterService.forwardPrices(forwardedPrices);
+            }
+            columnsBySymbol.clear();
+            storedPrices += batchSize;
+            lastSymbolBytes = null;
+            lastColumns = null;
+            batchSize = 0;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.cryptorecommendation.service;
 
-import com.example.cryptorecommendation.entity.CryptoPrice;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.repository.CryptoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.io.filefilter.FileFilterUtils;
@@ -11,26 +14,28 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ResourceUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Crypto Loader task is to load cryptocurrencies from CSV files on application startup.
  * All data will be stored in repositories so that it can be extendable in future production
  * environment and easily replaced with some in-memory or SQL DB.
+ * In a sharded deployment only cryptos owned by this node are loaded, see {@link CryptoCluster}.
  */
 @Component
 @RequiredArgsConstructor
@@ -38,29 +43,141 @@ import java.util.Map;
 public class CryptoLoader {
 
     private final CryptoRecommendationService cryptoRecommendationService;
+    private final CryptoSnapshotStore cryptoSnapshotStore;
+    private final CryptoRepository cryptoRepository;
+    private final MeterRegistry meterRegistry;
+    private final CryptoCluster cryptoCluster;
     @Value("${crypto.directory}")
     private String cryptoDirectory;
 
+    private final Map<String, Long> loadedFileOffsets = new ConcurrentHashMap<>();
+    @Getter
+    private volatile boolean cryptoDataLoaded;
+
     /**
-     * Load crypto data from CSV files on ApplicationReadyEvent and store it using repositories.
+     * Load crypto data on ApplicationReadyEvent and store it using repositories.
+     * Data is read from binary snapshot if it is up to date with CSV files, otherwise CSV files are parsed
+     * and new snapshot is written for the next startup. Cold start time is logged and recorded per source.
+     * Runs before other ApplicationReadyEvent listeners, like {@link CryptoStatsWarmer}, which need loaded data.
      */
     @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public void loadCryptoData() {
 
         log.info("Start loading of crypto data.");
 
-        Map<String, List<CryptoPrice>> cryptoData;
+        var startNanos = System.nanoTime();
+        var source = "snapshot";
+        Map<String, CryptoPriceSeries> cryptoData;
 
         try {
-            cryptoData = loadCryptoDataFromDirectory(cryptoDirectory);
-        } catch (IOException e) {
+            cryptoData = loadCryptoDataFromSnapshot(cryptoDirectory);
+            if (cryptoData == null) {
+                source = "csv";
+                cryptoData = loadCryptoDataFromDirectory(cryptoDirectory);
+            }
+        } catch (IOException | UncheckedIOException e) {
             log.error("Error in loading of crypto data.", e);
             return;
         }
 
-        cryptoData.forEach(cryptoRecommendationService::saveCrypto);
+        storeCryptoData(cryptoData);
+        cryptoDataLoaded = true;
+
+        var elapsedNanos = System.nanoTime() - startNanos;
+        Timer.builder("crypto.loader.cold-start")
+                .description("Duration of crypto data loading on startup")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Crypto data loaded from {} in {} ms. List of cryptos: {}.",
+                source, elapsedNanos / 1_000_000, cryptoData.keySet().stream().toList());
+
+        if ("csv".equals(source)) {
+            writeSnapshot(cryptoDirectory, cryptoData);
+        }
+    }
+
+    /**
+     * Stores loaded crypto data. Cryptos already kept by a persistent repository keep their stored prices and only
+     * loaded prices newer than stored ones are appended, so prices added since the last startup are not lost.
+     * Stats and daily leaders are calculated for stored cryptos without loaded data as well.
+     * Stored cryptos owned by another node, e.g. after nodes changed, are left as they are.
+     */
+    private void storeCryptoData(Map<String, CryptoPriceSeries> cryptoData) {
+        var loadedSymbols = new HashMap<String, String>();
+        cryptoData.keySet().forEach(symbol -> loadedSymbols.put(symbol.toUpperCase(), symbol));
+
+        for (var symbol : cryptoRepository.getAllCryptoSymbols()) {
+            if (!cryptoCluster.isOwned(symbol)) {
+                continue;
+            }
+            var crypto = cryptoRepository.findBySymbol(symbol);
+            if (crypto == null || crypto.getPrices().isEmpty()) {
+                continue;
+            }
+
+            var storedPrices = crypto.getPrices();
+            cryptoRecommendationService.saveCrypto(crypto.getSymbol(), storedPrices);
+
+            var loadedPrices = cryptoData.get(loadedSymbols.remove(symbol.toUpperCase()));
+            if (loadedPrices != null) {
+                var fromIndex = loadedPrices.firstIndexAtOrAfter(storedPrices.getLastTimestamp() + 1);
+                if (fromIndex < loadedPrices.size()) {
+                    var newPrices = new CryptoPriceSeries(loadedPrices.getScale());
+                    for (int i = fromIndex; i < loadedPrices.size(); i++) {
+                        newPrices.appendUnscaled(loadedPrices.getTimestamp(i), loadedPrices.getUnscaledPrice(i));
+                    }
+                    cryptoRecommendationService.appendCrypto(crypto.getSymbol(), newPrices);
+                }
+            }
+        }
+
+        loadedSymbols.values().forEach(symbol -> cryptoRecommendationService.saveCrypto(symbol,
+                cryptoData.get(symbol)));
+    }
 
-        log.info("Crypto data loaded. List of cryptos: {}.", cryptoData.keySet().stream().toList());
+    /**
+     * Load crypto data from snapshot if it was written from current crypto files, otherwise returns null.
+     * Unreadable snapshot is treated as missing.
+     */
+    public Map<String, CryptoPriceSeries> loadCryptoDataFromSnapshot(String directoryPath) throws IOException {
+        var sourceFiles = listCryptoFiles(directoryPath).stream()
+                .map(cryptoFile -> new CryptoSnapshotStore.SourceFile(getCryptoSymbol(cryptoFile),
+                        cryptoFile.getAbsolutePath(), cryptoFile.length(), cryptoFile.lastModified()))
+                .toList();
+
+        Map<String, CryptoPriceSeries> cryptoData;
+        try {
+            cryptoData = cryptoSnapshotStore.read(sourceFiles);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Crypto snapshot cannot be read, crypto files are loaded instead.", e);
+            return null;
+        }
+
+        if (cryptoData != null) {
+            sourceFiles.forEach(sourceFile -> loadedFileOffsets.put(sourceFile.path(), sourceFile.length()));
+        }
+        return cryptoData;
+    }
+
+    /**
+     * Write snapshot of crypto data loaded from crypto files. Loaded length of each file is stored,
+     * so snapshot becomes stale as soon as any file changes.
+     */
+    public void writeSnapshot(String directoryPath, Map<String, CryptoPriceSeries> cryptoData) {
+        try {
+            var sourceFiles = listCryptoFiles(directoryPath).stream()
+                    .filter(cryptoFile -> cryptoData.containsKey(getCryptoSymbol(cryptoFile))
+                            && loadedFileOffsets.containsKey(cryptoFile.getAbsolutePath()))
+                    .map(cryptoFile -> new CryptoSnapshotStore.SourceFile(getCryptoSymbol(cryptoFile),
+                            cryptoFile.getAbsolutePath(), loadedFileOffsets.get(cryptoFile.getAbsolutePath()),
+                            cryptoFile.lastModified()))
+                    .toList();
+            cryptoSnapshotStore.write(cryptoData, sourceFiles);
+        } catch (IOException e) {
+            log.warn("Crypto snapshot cannot be written.", e);
+        }
     }
 
 
@@ -68,47 +185,131 @@ public class CryptoLoader {
      *
      * Load service is able to scale additional cryptos as long as they are placed in appropriate folder
      * with right naming convention ($symbolName_values.csv)
+     * Files are parsed in parallel, one file per task, and loader throughput is logged and recorded in metrics.
      */
-    public Map<String, List<CryptoPrice>> loadCryptoDataFromDirectory(String directoryPath) throws IOException {
+    public Map<String, CryptoPriceSeries> loadCryptoDataFromDirectory(String directoryPath) throws IOException {
 
-        var cryptoData = new HashMap<String, List<CryptoPrice>>();
+        var cryptoData = new ConcurrentHashMap<String, CryptoPriceSeries>();
 
-        var cryptoFilesDirectory = ResourceUtils.getFile(directoryPath);
+        var allCryptoFiles = listCryptoFiles(directoryPath);
 
-        var allCryptoFiles = FileUtils.listFiles(cryptoFilesDirectory,
-                        FileFilterUtils.suffixFileFilter("_values.csv", IOCase.INSENSITIVE), null)
-                .stream().filter(File::isFile).toList();
+        var startNanos = System.nanoTime();
 
-        for (var cryptoFile : allCryptoFiles) {
-            var cryptoSymbol = StringUtils.removeEnd(cryptoFile.getName(), "_values.csv");
-            var cryptoPrices = loadCryptoPricesFromCsvFile(cryptoFile.getAbsolutePath());
-            cryptoData.put(cryptoSymbol, cryptoPrices);
-        }
+        allCryptoFiles.parallelStream().forEach(cryptoFile -> {
+            try {
+                cryptoData.put(getCryptoSymbol(cryptoFile), loadCryptoPricesFromCsvFile(cryptoFile.getAbsolutePath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error in loading of crypto file %s.".formatted(cryptoFile), e);
+            }
+        });
+
+        recordThroughput("full", allCryptoFiles.size(),
+                cryptoData.values().stream().mapToLong(CryptoPriceSeries::size).sum(),
+                allCryptoFiles.stream().mapToLong(File::length).sum(),
+                System.nanoTime() - startNanos);
 
         return cryptoData;
     }
 
-    public List<CryptoPrice> loadCryptoPricesFromCsvFile(String filePath) throws IOException {
-        var cryptoPrices = new ArrayList<CryptoPrice>();
+    /**
+     * Parses CSV file with timestamp,symbol,price rows into price series sorted by time.
+     * Symbol is taken from file name, so symbol column is skipped.
+     */
+    public CryptoPriceSeries loadCryptoPricesFromCsvFile(String filePath) throws IOException {
+        var columns = new PriceColumns();
+        var endOffset = readCsvRows(filePath, 0, false, columns);
+        loadedFileOffsets.put(Paths.get(filePath).toAbsolutePath().toString(), endOffset);
+        return columns.toSortedSeries();
+    }
 
-        var reader = Files.newBufferedReader(Paths.get(filePath));
+    /**
+     * Load only rows appended to crypto files since they were last read, and rows of new crypto files.
+     * Only complete rows (ending with new line) are read, the rest is read once it is completed.
+     * Returned map contains only cryptos with new rows.
+     */
+    public Map<String, CryptoPriceSeries> loadNewCryptoDataFromDirectory(String directoryPath) throws IOException {
 
-        var rows = CSVFormat.DEFAULT.builder()
-                .setHeader("timestamp", "symbol", "price")
-                .setSkipHeaderRecord(true).build()
-                .parse(reader);
+        var newCryptoData = new HashMap<String, CryptoPriceSeries>();
+        var startNanos = System.nanoTime();
+        var files = 0;
+        var bytes = 0L;
 
-        for (var row : rows) {
-            var timestamp = Instant.ofEpochMilli(Long.parseLong(row.get("timestamp")));
-            var price = Double.parseDouble(row.get("price"));
+        for (var cryptoFile : listCryptoFiles(directoryPath)) {
+            var filePath = cryptoFile.getAbsolutePath();
+            var offset = loadedFileOffsets.getOrDefault(filePath, 0L);
+            var fileLength = cryptoFile.length();
 
-            var cryptoPrice = new CryptoPrice();
-            cryptoPrice.setPrice(BigDecimal.valueOf(price));
-            cryptoPrice.setDateTime(LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC));
+            if (fileLength < offset) {
+                log.warn("Crypto file {} is shorter than already loaded data, new rows are ignored.", filePath);
+                continue;
+            }
+            if (fileLength == offset) {
+                continue;
+            }
+
+            var columns = new PriceColumns();
+            var endOffset = readCsvRows(filePath, offset, true, columns);
+            loadedFileOffsets.put(filePath, endOffset);
+            if (columns.size() > 0) {
+                newCryptoData.put(getCryptoSymbol(cryptoFile), columns.toSortedSeries());
+                files++;
+                bytes += endOffset - offset;
+            }
+        }
 
-            cryptoPrices.add(cryptoPrice);
+        if (files > 0) {
+            recordThroughput("incremental", files,
+                    newCryptoData.values().stream().mapToLong(CryptoPriceSeries::size).sum(),
+                    bytes, System.nanoTime() - startNanos);
         }
 
-        return cryptoPrices;
+        return newCryptoData;
+    }
+
+    /**
+     * Reads rows starting at offset into columns and returns offset right after the last read row.
+     * Symbol is taken from file name, so symbol column is skipped.
+     */
+    private long readCsvRows(String filePath, long offset, boolean completeRowsOnly, PriceColumns columns)
+            throws IOException {
+        try (var channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            channel.position(offset);
+            return offset + PriceCsvParser.readRows(channel, completeRowsOnly, filePath,
+                    (bytes, symbolFrom, symbolTo, timestamp, price) -> columns.add(timestamp, price));
+        }
+    }
+
+    private List<File> listCryptoFiles(String directoryPath) throws IOException {
+        var cryptoFilesDirectory = ResourceUtils.getFile(directoryPath);
+
+        return FileUtils.listFiles(cryptoFilesDirectory,
+                        FileFilterUtils.suffixFileFilter("_values.csv", IOCase.INSENSITIVE), null)
+                .stream()
+                .filter(cryptoFile -> cryptoFile.isFile() && cryptoCluster.isOwned(getCryptoSymbol(cryptoFile)))
+                .toList();
+    }
+
+    private String getCryptoSymbol(File cryptoFile) {
+        return StringUtils.removeEnd(cryptoFile.getName(), "_values.csv");
+    }
+
+    /**
+     * Logs loader throughput and records it in metrics tagged by load type (full or incremental).
+     * Rows and bytes are counters, so throughput is their rate.
+     */
+    private void recordThroughput(String type, int files, long rows, long bytes, long elapsedNanos) {
+        var seconds = Math.max(elapsedNanos, 1) / 1e9;
+        var megabytes = bytes / (1024.0 * 1024.0);
+        log.info("Loaded {} rows ({} MB) from {} files in {} ms: {} rows/s, {} MB/s.",
+                rows, "%.2f".formatted(megabytes), files, elapsedNanos / 1_000_000,
+                Math.round(rows / seconds), "%.2f".formatted(megabytes / seconds));
+
+        Timer.builder("crypto.loader.duration")
+                .description("Duration of crypto files loading")
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("crypto.loader.rows", "type", type).increment(rows);
+        meterRegistry.counter("crypto.loader.bytes", "type", type).increment(bytes);
     }
 }
@@ -1,41 +1,78 @@
 package com.example.cryptorecommendation.service;
 
+import com.example.cryptorecommendation.dto.CryptoCandleListDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeListDto;
+import com.example.cryptorecommendation.dto.CryptoPriceSeriesDto;
 import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.dto.CryptoStatsQueryDto;
+import com.example.cryptorecommendation.entity.CandleInterval;
 import com.example.cryptorecommendation.entity.Crypto;
+import com.example.cryptorecommendation.entity.CryptoNormalizedRange;
 import com.example.cryptorecommendation.entity.CryptoPrice;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
 import com.example.cryptorecommendation.entity.CryptoStats;
+import com.example.cryptorecommendation.entity.FixedPoint;
+import com.example.cryptorecommendation.entity.RankingOrder;
 import com.example.cryptorecommendation.mapper.CryptoMapper;
 import com.example.cryptorecommendation.repository.CryptoRepository;
 import com.example.cryptorecommendation.repository.CryptoStatsRepository;
 import com.example.cryptorecommendation.rest.exceptions.CryptoNotSupported;
+import com.example.cryptorecommendation.service.CryptoEpoch.EpochCrypto;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Service for processing crypto data and returning statistics.
+ * Public methods are timed with client-side percentiles, nested calls within the service are not recorded.
+ * <p>
+ * Writers store prices in repository and then publish a new {@link CryptoEpoch} with frozen prices and all-time
+ * stats of the changed crypto. Published prices are read back from the repository after saving, so epochs
+ * reference series as the repository keeps them and a repository holding only part of prices in heap stays bounded.
+ * Readers take the current epoch once per request and read only from it, so a request never sees prices and stats
+ * of different epochs, even while prices are being reloaded.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CryptoRecommendationService {
 
+    private static final String TIMER_NAME = "crypto.service";
+    private static final String STATS_CALL = "stats";
+    private static final String RANKING_CALL = "ranking";
+
+    private static final Comparator<CryptoNormalizedRange> NORMALIZED_RANGE_ORDER =
+            ((Comparator<CryptoNormalizedRange>) CryptoNormalizedRange::compareNormalizedPriceTo).reversed()
+                    .thenComparing(CryptoNormalizedRange::getSymbol);
+    private static final Comparator<CryptoNormalizedRange> VOLATILITY_ORDER =
+            Comparator.comparingDouble(CryptoNormalizedRange::getVolatility).reversed()
+                    .thenComparing(CryptoNormalizedRange::getSymbol);
+
     private final CryptoRepository cryptoRepository;
     private final CryptoStatsRepository cryptoStatsRepository;
     private final CryptoMapper cryptoMapper;
+    private final RequestCoalescer requestCoalescer;
+    private final CryptoEpochs cryptoEpochs;
+
+    private final Map<RankingOrder, RankingSnapshot> allTimeRankings = new ConcurrentHashMap<>();
 
     /**
      * Method to store crypto data in repository
@@ -44,24 +81,218 @@ public class CryptoRecommendationService {
      * @param symbol crypto symbol
      * @param prices list of crypto prices with timestamps
      */
-    public void saveCrypto(String symbol, List<CryptoPrice> prices){
-        checkCryptoDataNotEmpty(symbol, prices);
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public synchronized void saveCrypto(String symbol, List<CryptoPrice> prices){
+        checkCryptoDataNotEmpty(symbol, prices == null ? 0 : prices.size());
 
         prices = prices.stream().sorted(Comparator.comparing(CryptoPrice::getDateTime)).toList();
+        saveCrypto(symbol, CryptoPriceSeries.fromPrices(prices));
+    }
+
+    /**
+     * Method to store crypto price series, already sorted by time, in repository
+     * Also the method is storing calculated stats of crypto all-time values and daily leaders
+     *
+     * @param symbol crypto symbol
+     * @param prices series of crypto prices with timestamps
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public synchronized void saveCrypto(String symbol, CryptoPriceSeries prices){
+        checkCryptoDataNotEmpty(symbol, prices == null ? 0 : prices.size());
+
+        var previousCrypto = cryptoEpochs.current().get(symbol);
         cryptoRepository.save(new Crypto(symbol, prices));
+        prices = cryptoRepository.findBySymbol(symbol).getPrices();
 
-        getCryptoStats(symbol, null, null);
+        if(previousCrypto == null) {
+            publishCryptos(List.of(new CryptoChange(symbol, prices, prices.getFirstTimestamp(),
+                    prices.getLastTimestamp(), false)));
+        } else {
+            var previousPrices = previousCrypto.prices();
+            var fromTimestamp = Math.min(prices.getFirstTimestamp(), previousPrices.getFirstTimestamp());
+            var toTimestamp = Math.max(prices.getLastTimestamp(), previousPrices.getLastTimestamp());
+            publishCryptos(List.of(new CryptoChange(symbol, prices, fromTimestamp, toTimestamp, true)));
+        }
     }
 
     /**
-     * Based on crypto symbol and dates from and to the method will return stats for provided Crypto.
-     * The stats for specific dates are stored in memory and not calculated again for better performance.
+     * Method to append new prices, sorted by time, to already stored crypto. New crypto is stored as is.
+     * Prices newer than all stored ones and not needing more decimal places are appended in place, so series
+     * indexes are extended incrementally, other prices are merged with stored ones in linear time.
+     * Only stats of ranges overlapping new prices are calculated again for the new epoch.
+     *
+     * @param symbol crypto symbol
+     * @param newPrices series of new crypto prices with timestamps
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public synchronized void appendCrypto(String symbol, CryptoPriceSeries newPrices){
+        appendCryptos(Map.of(symbol, newPrices));
+    }
+
+    /**
+     * Method to append new prices of many cryptos, like {@link #appendCrypto(String, CryptoPriceSeries)},
+     * publishing one epoch with all of them, so readers never see only part of a batch and cryptos and daily
+     * leaders of the epoch are copied once per batch.
+     * If prices of a crypto cannot be appended, prices of cryptos already stored are still published.
+     *
+     * @param newPricesBySymbol series of new crypto prices with timestamps by crypto symbol
      */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public synchronized void appendCryptos(Map<String, CryptoPriceSeries> newPricesBySymbol){
+        newPricesBySymbol.forEach((symbol, newPrices) ->
+                checkCryptoDataNotEmpty(symbol, newPrices == null ? 0 : newPrices.size()));
+
+        var changes = new ArrayList<CryptoChange>();
+        try {
+            newPricesBySymbol.forEach((symbol, newPrices) -> changes.add(storeAppendedPrices(symbol, newPrices)));
+        } finally {
+            if(!changes.isEmpty()) {
+                publishCryptos(changes);
+            }
+        }
+    }
+
+    /**
+     * Appends new prices to stored crypto in repository, or stores new crypto, and returns the stored change.
+     */
+    private CryptoChange storeAppendedPrices(String symbol, CryptoPriceSeries newPrices) {
+        var crypto = cryptoRepository.findBySymbol(symbol);
+        if(crypto == null) {
+            cryptoRepository.save(new Crypto(symbol, newPrices));
+        } else {
+            symbol = crypto.getSymbol();
+            var prices = crypto.getPrices();
+            if(newPrices.getFirstTimestamp() >= prices.getLastTimestamp()
+                    && newPrices.getScale() <= prices.getScale()) {
+                // rescaling min and max first rejects prices not fitting the stored scale before any is appended
+                var size = newPrices.size();
+                FixedPoint.rescale(newPrices.getMinUnscaledPrice(0, size), newPrices.getScale(), prices.getScale());
+                FixedPoint.rescale(newPrices.getMaxUnscaledPrice(0, size), newPrices.getScale(), prices.getScale());
+                for(int i = 0; i < newPrices.size(); i++) {
+                    prices.appendUnscaled(newPrices.getTimestamp(i),
+                            FixedPoint.rescale(newPrices.getUnscaledPrice(i), newPrices.getScale(), prices.getScale()));
+                }
+                cryptoRepository.save(crypto);
+            } else {
+                cryptoRepository.save(new Crypto(symbol, CryptoPriceSeries.merge(prices, newPrices)));
+            }
+        }
+        var prices = cryptoRepository.findBySymbol(symbol).getPrices();
+        return new CryptoChange(symbol, prices, newPrices.getFirstTimestamp(), newPrices.getLastTimestamp(), false);
+    }
+
+    /**
+     * Publishes epoch with new prices of changed cryptos and their daily leaders. Prices outside
+     * [fromTimestamp, toTimestamp] of a change did not change, so stats of ranges not overlapping it are moved to
+     * the new version instead of being calculated again, and daily leaders of other days are shared with the
+     * previous epoch. Readers of the previous epoch calculate stats of its version again if they still need them.
+     */
+    private void publishCryptos(List<CryptoChange> changes) {
+        var epoch = cryptoEpochs.current();
+        var pricesBySymbol = new LinkedHashMap<String, CryptoPriceSeries>();
+        changes.forEach(change -> pricesBySymbol.put(change.symbol(), change.prices()));
+        var newEpoch = epoch.withCryptos(pricesBySymbol,
+                (symbol, frozenPrices) -> calculateCryptoStats(symbol, frozenPrices, null, null));
+
+        var dailyLeaders = new HashMap<>(epoch.dailyLeaders());
+        for(var change : changes) {
+            for(var epochDay = toEpochDay(change.fromTimestamp()); epochDay <= toEpochDay(change.toTimestamp());
+                    epochDay++) {
+                var day = LocalDate.ofEpochDay(epochDay);
+                var leader = change.replaced() ? findDailyLeaderOfAllCryptos(newEpoch, epochDay)
+                        : findDailyLeader(newEpoch.get(change.symbol()), epochDay, dailyLeaders.get(day));
+                if(leader == null) {
+                    dailyLeaders.remove(day);
+                } else {
+                    dailyLeaders.put(day, leader);
+                }
+            }
+        }
+        newEpoch = newEpoch.withDailyLeaders(dailyLeaders);
+
+        for(var change : changes) {
+            var previousCrypto = epoch.get(change.symbol());
+            if(previousCrypto != null) {
+                cryptoStatsRepository.moveCryptoStatsNotOverlappingRange(change.symbol(), previousCrypto.version(),
+                        newEpoch.version(), toLocalDateTime(change.fromTimestamp()),
+                        toLocalDateTime(change.toTimestamp()));
+            }
+        }
+        cryptoEpochs.publish(newEpoch);
+    }
+
+    /**
+     * Daily leader of the day after prices of crypto were added. Adding prices to a day can only increase
+     * its normalized range, so only this crypto is compared with the current leader of the day.
+     */
+    private CryptoNormalizedRange findDailyLeader(EpochCrypto crypto, long epochDay, CryptoNormalizedRange leader) {
+        var normalizedRange = calculateDailyNormalizedRange(crypto.symbol(), crypto.prices(), epochDay);
+        if(normalizedRange != null && (leader == null || normalizedRange.compareNormalizedPriceTo(leader) > 0)) {
+            return normalizedRange;
+        }
+        return leader;
+    }
+
+    /**
+     * Finds daily leader of the day comparing all cryptos, or null if none has positive normalized range.
+     * Used when prices were replaced, as normalized range of the current leader could have decreased.
+     */
+    private CryptoNormalizedRange findDailyLeaderOfAllCryptos(CryptoEpoch epoch, long epochDay) {
+        CryptoNormalizedRange leader = null;
+
+        for(var crypto : epoch.cryptos().values()) {
+            var normalizedRange = calculateDailyNormalizedRange(crypto.symbol(), crypto.prices(), epochDay);
+            if(normalizedRange != null
+                    && (leader == null || normalizedRange.compareNormalizedPriceTo(leader) > 0)) {
+                leader = normalizedRange;
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Normalized range of crypto for a day calculated from daily rollup, or null if it is not positive.
+     */
+    private CryptoNormalizedRange calculateDailyNormalizedRange(String symbol, CryptoPriceSeries prices,
+                                                                long epochDay) {
+        var dailyRollup = prices.getDailyRollup(epochDay);
+        if(dailyRollup == null) {
+            return null;
+        }
+
+        var normalizedRange = calculateNormalizedRange(symbol, dailyRollup.min(), dailyRollup.max(),
+                dailyRollup.scale());
+        return normalizedRange.getNormalizedPrice() > 0 ? normalizedRange : null;
+    }
+
+    /**
+     * Based on crypto symbol and dates from and to the method will return stats for provided Crypto
+     * in the current epoch.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
     public CryptoStats getCryptoStats(String cryptoSymbol, LocalDateTime dateFrom, LocalDateTime dateTo){
-        var cryptoStats = cryptoStatsRepository.getCryptoStatsForRange(cryptoSymbol, dateFrom, dateTo);
+        return getCryptoStats(getSupportedCrypto(cryptoEpochs.current(), cryptoSymbol), dateFrom, dateTo);
+    }
+
+    /**
+     * All-time stats are part of the epoch. The stats for specific dates are stored in memory per version
+     * of crypto prices and not calculated again for better performance.
+     * Concurrent misses of the same range and version are calculated once, other callers wait for that result.
+     */
+    private CryptoStats getCryptoStats(EpochCrypto crypto, LocalDateTime dateFrom, LocalDateTime dateTo) {
+        if(dateFrom == null || dateTo == null) {
+            return crypto.allTimeStats();
+        }
+
+        var cryptoStats = cryptoStatsRepository.getCryptoStatsForRange(crypto.symbol(), crypto.version(),
+                dateFrom, dateTo);
         if(cryptoStats == null) {
-            cryptoStats = calculateCryptoStats(cryptoSymbol, dateFrom, dateTo);
-            cryptoStatsRepository.save(cryptoStats, dateFrom, dateTo);
+            var statsKey = new StatsKey(crypto.symbol().toUpperCase(), dateFrom, dateTo, crypto.version());
+            cryptoStats = requestCoalescer.execute(STATS_CALL, statsKey, () -> {
+                var calculatedStats = calculateCryptoStats(crypto.symbol(), crypto.prices(), dateFrom, dateTo);
+                cryptoStatsRepository.save(calculatedStats, crypto.version(), dateFrom, dateTo);
+                return calculatedStats;
+            });
         }
 
         return cryptoStats;
@@ -70,41 +301,50 @@ public class CryptoRecommendationService {
     /**
      * Method for calculating Crypto Stats for specified date range.
      * If the dates are null, the method will calculate stats considering all ever stored prices.
+     * Prices are sorted by time, so the range is found with binary search, min/max of that slice
+     * are read from the series range index and average, standard deviation and volatility from its prefix sums,
+     * without scanning prices.
      */
-    private CryptoStats calculateCryptoStats(String cryptoSymbol, LocalDateTime dateFrom, LocalDateTime dateTo) {
-        var prices = cryptoRepository.findBySymbol(cryptoSymbol).getPrices();
-
+    private CryptoStats calculateCryptoStats(String cryptoSymbol, CryptoPriceSeries prices,
+                                             LocalDateTime dateFrom, LocalDateTime dateTo) {
+        var fromIndex = 0;
+        var toIndex = prices.size();
         if(dateFrom != null && dateTo != null) {
-            prices = prices.stream().filter(e -> e.getDateTime().isAfter(dateFrom.minusSeconds(1)) &&
-                                        e.getDateTime().isBefore(dateTo)).toList();
+            fromIndex = prices.firstIndexAtOrAfter(toEpochMilli(dateFrom));
+            toIndex = prices.firstIndexAtOrAfter(toEpochMilli(dateTo));
         }
 
-        if(!prices.isEmpty()) {
-            CryptoStats cryptoStats = new CryptoStats();
-            cryptoStats.setSymbol(cryptoSymbol);
-            cryptoStats.setMax(calculateMaxPrice(prices));
-            cryptoStats.setMin(calculateMinPrice(prices));
-            cryptoStats.setOldest(prices.get(0).getPrice());
-            cryptoStats.setNewest(prices.get(prices.size() -1).getPrice());
-            return cryptoStats;
+        if(fromIndex >= toIndex) {
+            return new CryptoStats(cryptoSymbol, 0, 0, 0, 0, 0, 0, 0, 0);
         }
-        return new CryptoStats(cryptoSymbol, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        return new CryptoStats(cryptoSymbol,
+                prices.getUnscaledPrice(fromIndex), prices.getUnscaledPrice(toIndex - 1),
+                prices.getMinUnscaledPrice(fromIndex, toIndex), prices.getMaxUnscaledPrice(fromIndex, toIndex),
+                Math.round(prices.getMeanUnscaledPrice(fromIndex, toIndex)),
+                Math.round(prices.getUnscaledPriceStandardDeviation(fromIndex, toIndex)),
+                prices.getVolatility(fromIndex, toIndex),
+                prices.getScale());
     }
 
-    private BigDecimal calculateMaxPrice(List<CryptoPrice> prices) {
-        return prices.stream().map(CryptoPrice::getPrice).max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
+    private long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
     }
 
-    private BigDecimal calculateMinPrice(List<CryptoPrice> prices) {
-        return prices.stream().map(CryptoPrice::getPrice).min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
+    private LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
     }
 
-    private void checkCryptoDataNotEmpty(String symbol, List<CryptoPrice> prices) {
+    private long toEpochDay(long epochMilli) {
+        return toLocalDateTime(epochMilli).toLocalDate().toEpochDay();
+    }
+
+    private void checkCryptoDataNotEmpty(String symbol, int priceCount) {
         if (StringUtils.isBlank(symbol)) {
             throw new IllegalArgumentException("Crypto symbol cannot be empty.");
         }
 
-        if (prices == null || prices.isEmpty()) {
+        if (priceCount == 0) {
             throw new IllegalArgumentException("Crypto price list cannot be empty.");
         }
     }
@@ -112,85 +352,271 @@ public class CryptoRecommendationService {
     /**
      * Returns Crypto Stats for a given date range.
      */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
     public CryptoStatsDto getSpecificCryptoStats(String cryptoSymbol, LocalDate dateFrom, LocalDate dateTo){
-        checkIfCryptoIsSupported(cryptoSymbol);
+        var crypto = getSupportedCrypto(cryptoEpochs.current(), cryptoSymbol);
         var dateTimeFrom = dateFrom != null ? LocalDateTime.of(dateFrom, LocalTime.MIN) : null;
         var dateTimeTo = dateTo != null ? LocalDateTime.of(dateTo, LocalTime.MIN) : null;
 
-        var cryptoStats = getCryptoStats(cryptoSymbol, dateTimeFrom, dateTimeTo);
+        var cryptoStats = getCryptoStats(crypto, dateTimeFrom, dateTimeTo);
+        return cryptoMapper.mapCryptoStatsToDto(cryptoStats);
+    }
+
+    /**
+     * Returns Crypto Stats for a time range [dateTimeFrom, dateTimeTo) with millisecond granularity.
+     * Both ends of the range are required.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public CryptoStatsDto getCryptoStatsForTimeRange(String cryptoSymbol, LocalDateTime dateTimeFrom,
+                                                     LocalDateTime dateTimeTo){
+        if (dateTimeFrom == null || dateTimeTo == null) {
+            throw new IllegalArgumentException("Both ends of the time range are required.");
+        }
+        var crypto = getSupportedCrypto(cryptoEpochs.current(), cryptoSymbol);
+
+        var cryptoStats = getCryptoStats(crypto, dateTimeFrom, dateTimeTo);
         return cryptoMapper.mapCryptoStatsToDto(cryptoStats);
     }
 
     /**
-     * If Crypto is not detected in our in-memory database, return CryptoNotSupported exception.
+     * Returns OHLC candles of Crypto for the interval code (1m, 5m, 1h or 1d), in time order.
+     * Candles starting in [dateTimeFrom, dateTimeTo) are returned, dateTimeFrom is rounded down to the interval
+     * start and missing ends are open. Candles are read from the candle level of the interval, so long ranges
+     * of coarse candles do not read raw prices.
      */
-    private void checkIfCryptoIsSupported(String cryptoSymbol) {
-        Crypto crypto = cryptoRepository.findBySymbol(cryptoSymbol);
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public CryptoCandleListDto getCandles(String cryptoSymbol, String intervalCode, LocalDateTime dateTimeFrom,
+                                          LocalDateTime dateTimeTo, int limit){
+        var interval = CandleInterval.fromCode(intervalCode);
+        var crypto = getSupportedCrypto(cryptoEpochs.current(), cryptoSymbol);
+
+        var fromMillis = dateTimeFrom != null ? toEpochMilli(dateTimeFrom) : Long.MIN_VALUE;
+        var toMillis = dateTimeTo != null ? toEpochMilli(dateTimeTo) : Long.MAX_VALUE;
+        var candles = crypto.prices().getCandles(interval, fromMillis, toMillis, limit);
+        return new CryptoCandleListDto(crypto.symbol(), interval.getCode(), cryptoMapper.mapCandlesToDto(candles));
+    }
+
+    /**
+     * Returns prices of Crypto in [dateTimeFrom, dateTimeTo) downsampled to at most points prices, as columns of
+     * epoch millis timestamps and prices. Missing ends are open. Prices are selected with
+     * Largest-Triangle-Three-Buckets in one pass over the range of the stored series, so peaks and drops stay visible
+     * on a chart.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public CryptoPriceSeriesDto getDownsampledPrices(String cryptoSymbol, LocalDateTime dateTimeFrom,
+                                                     LocalDateTime dateTimeTo, int points){
+        var crypto = getSupportedCrypto(cryptoEpochs.current(), cryptoSymbol);
+        var prices = crypto.prices();
+
+        var fromIndex = dateTimeFrom != null ? prices.firstIndexAtOrAfter(toEpochMilli(dateTimeFrom)) : 0;
+        var toIndex = dateTimeTo != null ? prices.firstIndexAtOrAfter(toEpochMilli(dateTimeTo)) : prices.size();
+        var downsampledPrices = prices.downsample(fromIndex, toIndex, points);
+        return new CryptoPriceSeriesDto(crypto.symbol(), downsampledPrices.timestamps(), downsampledPrices.prices());
+    }
+
+    /**
+     * Returns Crypto Stats for each query, in query order.
+     * Queries are grouped by crypto, so each crypto is looked up and checked once. Stats of each query are
+     * found with binary search and range index of the price series, so no query scans the prices.
+     * All queries are answered from the same epoch.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public List<CryptoStatsDto> getCryptoStatsBatch(List<CryptoStatsQueryDto> queries){
+        var queryIndexesBySymbol = new LinkedHashMap<String, List<Integer>>();
+        for(int i = 0; i < queries.size(); i++) {
+            queryIndexesBySymbol.computeIfAbsent(queries.get(i).getSymbol().toUpperCase(), symbol -> new ArrayList<>())
+                    .add(i);
+        }
+
+        var epoch = cryptoEpochs.current();
+        var cryptoStats = new CryptoStatsDto[queries.size()];
+        queryIndexesBySymbol.forEach((symbol, queryIndexes) -> {
+            var crypto = getSupportedCrypto(epoch, symbol);
+            for(var queryIndex : queryIndexes) {
+                var query = queries.get(queryIndex);
+                var dateTimeFrom = query.getDateFrom() != null
+                        ? LocalDateTime.of(query.getDateFrom(), LocalTime.MIN) : null;
+                var dateTimeTo = query.getDateTo() != null ? LocalDateTime.of(query.getDateTo(), LocalTime.MIN) : null;
+                cryptoStats[queryIndex] = cryptoMapper.mapCryptoStatsToDto(
+                        getCryptoStats(crypto, dateTimeFrom, dateTimeTo));
+            }
+        });
+        return List.of(cryptoStats);
+    }
+
+    /**
+     * If Crypto is not detected in the epoch, return CryptoNotSupported exception.
+     */
+    private EpochCrypto getSupportedCrypto(CryptoEpoch epoch, String cryptoSymbol) {
+        var crypto = epoch.get(cryptoSymbol);
         if(crypto == null) {
             log.error("Crypto {} not supported", cryptoSymbol);
             throw new CryptoNotSupported(cryptoSymbol);
         }
+        return crypto;
     }
 
     /**
      * Based on date range provided in arguments, the method will calculate normalized prices for that range for
      * each crypto in DB and return it in descending sorted list.
      */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
     public CryptoNormalizedRangeListDto getNormalizedCryptosListDescending(LocalDate dateFrom, LocalDate dateTo) {
-        var cryptoSymbols = cryptoRepository.getAllCryptoSymbols();
+        return getNormalizedCryptosListDescending(dateFrom, dateTo, null, 0);
+    }
 
-        var normalizedCryptosList = new ArrayList<CryptoNormalizedRangeDto>();
-        for(String cryptoSymbol : cryptoSymbols) {
-            var dateTimeFrom = dateFrom != null ? LocalDateTime.of(dateFrom, LocalTime.MIN) : null;
-            var dateTimeTo = dateTo != null ? LocalDateTime.of(dateTo, LocalTime.MIN) : null;
+    /**
+     * Returns page of cryptos sorted by normalized range descending, see
+     * {@link #getNormalizedCryptosListDescending(LocalDate, LocalDate, Integer, int, String)}.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public CryptoNormalizedRangeListDto getNormalizedCryptosListDescending(LocalDate dateFrom, LocalDate dateTo,
+                                                                           Integer limit, int offset) {
+        return getNormalizedCryptosListDescending(dateFrom, dateTo, limit, offset,
+                RankingOrder.NORMALIZED_RANGE.getCode());
+    }
+
+    /**
+     * Returns page of cryptos sorted by the ranking order code (normalizedRange or volatility) descending,
+     * skipping first offset cryptos and returning at most limit cryptos (all if limit is null). Equal values are
+     * ordered by symbol. Both values come from stats of the range, so ordering by volatility costs the same.
+     * All-time ranking is served from snapshot rebuilt only after data changed. For date ranges only
+     * offset + limit best cryptos are kept in a bounded heap instead of sorting all of them.
+     * Concurrent requests of the same ranking and epoch run one loop over all cryptos of that epoch.
+     */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
+    public CryptoNormalizedRangeListDto getNormalizedCryptosListDescending(LocalDate dateFrom, LocalDate dateTo,
+                                                                           Integer limit, int offset,
+                                                                           String orderBy) {
+        var order = RankingOrder.fromCode(orderBy);
+        var dateTimeFrom = dateFrom != null ? LocalDateTime.of(dateFrom, LocalTime.MIN) : null;
+        var dateTimeTo = dateTo != null ? LocalDateTime.of(dateTo, LocalTime.MIN) : null;
 
-            var cryptoNormalizedRange = calculateNormalizedCryptoPriceForDateRange(cryptoSymbol,dateTimeFrom,dateTimeTo);
-            normalizedCryptosList.add(cryptoNormalizedRange);
+        var epoch = cryptoEpochs.current();
+        List<CryptoNormalizedRange> ranking;
+        if(dateTimeFrom == null || dateTimeTo == null) {
+            ranking = getAllTimeRanking(epoch, order);
+        } else {
+            var rankingSize = limit == null ? Integer.MAX_VALUE
+                    : (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            var rankingKey = new RankingKey(dateTimeFrom, dateTimeTo, rankingSize, order, epoch.version());
+            ranking = requestCoalescer.execute(RANKING_CALL, rankingKey,
+                    () -> selectTopNormalizedRanges(epoch, dateTimeFrom, dateTimeTo, rankingSize, order));
         }
 
-        normalizedCryptosList.sort(Comparator.comparing(CryptoNormalizedRangeDto::getNormalizedPrice).reversed());
-        return new CryptoNormalizedRangeListDto(normalizedCryptosList);
+        var fromIndex = Math.min(offset, ranking.size());
+        var toIndex = limit == null ? ranking.size() : (int) Math.min((long) fromIndex + limit, ranking.size());
+        return new CryptoNormalizedRangeListDto(
+                cryptoMapper.mapCryptoNormalizedRangesToDto(ranking.subList(fromIndex, toIndex)));
     }
 
     /**
-     * Method for calculating normalized price for Crypto provided and for provided date range.
+     * Ranking of each order is built from all-time stats of the epoch and kept until the next epoch is published.
+     * Concurrent rebuilds of the same epoch are coalesced, so they do not wait for writers holding the service lock.
      */
-    private CryptoNormalizedRangeDto calculateNormalizedCryptoPriceForDateRange(String cryptoSymbol,
-                                                                                LocalDateTime fromDate,
-                                                                                LocalDateTime toDate) {
-        var cryptoStats = getCryptoStats(cryptoSymbol, fromDate, toDate);
-        var normalizedRange = new CryptoNormalizedRangeDto();
-        normalizedRange.setSymbol(cryptoSymbol);
+    private List<CryptoNormalizedRange> getAllTimeRanking(CryptoEpoch epoch, RankingOrder order) {
+        var snapshot = allTimeRankings.get(order);
+        if(snapshot != null && snapshot.version() == epoch.version()) {
+            return snapshot.ranking();
+        }
 
-        if(!BigDecimal.ZERO.equals(cryptoStats.getMin())){
-            var normalizedPrice = (cryptoStats.getMax().subtract(cryptoStats.getMin()))
-                    .divide(cryptoStats.getMin(), RoundingMode.HALF_EVEN);
-            normalizedRange.setNormalizedPrice(normalizedPrice);
-            return normalizedRange;
+        var rankingKey = new RankingKey(null, null, Integer.MAX_VALUE, order, epoch.version());
+        return requestCoalescer.execute(RANKING_CALL, rankingKey, () -> {
+            var ranking = List.copyOf(selectTopNormalizedRanges(epoch, null, null, Integer.MAX_VALUE, order));
+            allTimeRankings.put(order, new RankingSnapshot(epoch.version(), ranking));
+            return ranking;
+        });
+    }
+
+    /**
+     * Selects best rankingSize cryptos using min-heap whose head is the worst of selected cryptos.
+     */
+    private List<CryptoNormalizedRange> selectTopNormalizedRanges(CryptoEpoch epoch, LocalDateTime dateFrom,
+                                                                  LocalDateTime dateTo, int rankingSize,
+                                                                  RankingOrder order) {
+        var rankingOrder = order == RankingOrder.VOLATILITY ? VOLATILITY_ORDER : NORMALIZED_RANGE_ORDER;
+        var cryptos = epoch.cryptos().values();
+        var heap = new PriorityQueue<CryptoNormalizedRange>(
+                Math.min(rankingSize, cryptos.size()) + 1, rankingOrder.reversed());
+
+        for(var crypto : cryptos) {
+            var cryptoNormalizedRange = calculateNormalizedCryptoPriceForDateRange(crypto, dateFrom, dateTo);
+            if(heap.size() < rankingSize) {
+                heap.offer(cryptoNormalizedRange);
+            } else if(rankingSize > 0 && rankingOrder.compare(cryptoNormalizedRange, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(cryptoNormalizedRange);
+            }
         }
 
-        normalizedRange.setNormalizedPrice(BigDecimal.ZERO);
+        var ranking = new ArrayList<>(heap);
+        ranking.sort(rankingOrder);
+        return ranking;
+    }
+
+    /**
+     * Method for calculating normalized price and volatility for Crypto provided and for provided date range.
+     */
+    private CryptoNormalizedRange calculateNormalizedCryptoPriceForDateRange(EpochCrypto crypto,
+                                                                             LocalDateTime fromDate,
+                                                                             LocalDateTime toDate) {
+        var cryptoStats = getCryptoStats(crypto, fromDate, toDate);
+        var normalizedRange = calculateNormalizedRange(crypto.symbol(), cryptoStats.getMin(), cryptoStats.getMax(),
+                cryptoStats.getScale());
+        normalizedRange.setVolatility(cryptoStats.getVolatility());
         return normalizedRange;
     }
 
+    /**
+     * Normalized price (max-min)/min, or zero if there are no prices (min is zero).
+     * Rounded HALF_EVEN at the larger decimal scale of min and max, see {@link FixedPoint}.
+     */
+    private CryptoNormalizedRange calculateNormalizedRange(String symbol, long min, long max, int scale) {
+        if(min == 0) {
+            return new CryptoNormalizedRange(symbol, 0, 0);
+        }
+        var resultScale = Math.max(FixedPoint.decimalScale(min, scale), FixedPoint.decimalScale(max, scale));
+        return new CryptoNormalizedRange(symbol, FixedPoint.divide(max - min, min, resultScale), resultScale);
+    }
+
     /**
      * Return Crypto with highest normalized range for the specified day.
+     * Daily leaders are part of the epoch, calculated on every change of prices, so this is a single lookup.
      */
+    @Timed(value = TIMER_NAME, percentiles = {0.5, 0.95, 0.99})
     public CryptoNormalizedRangeDto cryptoWithHighestNormalizedRangeByDay(LocalDate date) {
-        var fromDate = LocalDateTime.of(date, LocalTime.MIN);
-        var toDate = fromDate.plusDays(1);
+        var leader = cryptoEpochs.current().getDailyLeader(date);
+        if(leader == null) {
+            leader = new CryptoNormalizedRange("", 0, 0);
+        }
+        return cryptoMapper.mapCryptoNormalizedRangeToDto(leader);
+    }
 
-        var highestNormalizedCryptoValue = BigDecimal.ZERO;
-        var highestNormalizedCryptoSymbol = "";
+    /**
+     * Prices of crypto stored in repository and not yet published, changed within [fromTimestamp, toTimestamp].
+     *
+     * @param replaced whether prices of the crypto were replaced rather than only added to
+     */
+    private record CryptoChange(String symbol, CryptoPriceSeries prices, long fromTimestamp, long toTimestamp,
+                                boolean replaced) {
+    }
 
-        for(var crypto : cryptoRepository.getAllCryptoSymbols()){
-            var normalizedCrypto = calculateNormalizedCryptoPriceForDateRange(crypto, fromDate, toDate);
-            if(normalizedCrypto.getNormalizedPrice().compareTo(highestNormalizedCryptoValue) > 0) {
-                highestNormalizedCryptoValue = normalizedCrypto.getNormalizedPrice();
-                highestNormalizedCryptoSymbol = normalizedCrypto.getSymbol();
-            }
-        }
+    /**
+     * All-time ranking calculated for specific epoch of crypto data.
+     */
+    private record RankingSnapshot(long version, List<CryptoNormalizedRange> ranking) {
+    }
+
+    /**
+     * Stats calculation of a range for specific version of crypto prices, used to coalesce concurrent misses.
+     */
+    private record StatsKey(String symbol, LocalDateTime dateFrom, LocalDateTime dateTo, long version) {
+    }
 
-        return new CryptoNormalizedRangeDto(highestNormalizedCryptoSymbol, highestNormalizedCryptoValue);
+    /**
+     * Ranking calculation for specific epoch of crypto data, used to coalesce concurrent requests.
+     */
+    private record RankingKey(LocalDateTime dateFrom, LocalDateTime dateTo, int rankingSize, RankingOrder order,
+                              long version) {
     }
 }
@@ -0,0 +1,63 @@
+package com.example.cryptorecommendation.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning crypto symbols to nodes.
+ * <p>
+ * Every node is placed on the ring at virtualNodes points hashed from its name, and symbol is owned by the node
+ * of the first point at or after hash of the symbol. Adding or removing a node therefore moves only symbols of
+ * its points, about 1/n of all symbols, and virtual nodes keep the share of every node close to 1/n.
+ * Hashes are 64-bit FNV-1a of UTF-8 bytes, so all nodes assign symbols the same way regardless of JVM.
+ */
+public final class CryptoShardRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public CryptoShardRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Crypto shard ring needs at least one node.");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Crypto shard ring needs at least one virtual node per node.");
+        }
+        for (var node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                var previousNode = points.put(hash(node + '#' + i), node);
+                if (previousNode != null && !previousNode.equals(node)) {
+                    throw new IllegalArgumentException("Nodes %s and %s collide on crypto shard ring."
+                            .formatted(previousNode, node));
+                }
+            }
+        }
+    }
+
+    /**
+     * Node owning the symbol. Symbols are compared upper-case, like in repositories.
+     */
+    public String getNode(String cryptoSymbol) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(cryptoSymbol.toUpperCase()));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * FNV-1a with final avalanche step, as FNV alone spreads short similar strings poorly.
+     */
+    static long hash(String value) {
+        var hash = FNV_OFFSET_BASIS;
+        for (var b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.FixedPoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of loaded crypto prices, so startup does not parse CSV files again.
+ * <p>
+ * Layout (big-endian): magic, version, header length and header with one entry per crypto (symbol, source CSV
+ * file path, length and last modification time, tick count, price scale), followed by 8-byte aligned columns of
+ * each crypto in header order: all timestamps, then all unscaled prices. Columns are memory-mapped on read and
+ * copied into price series without parsing or sorting.
+ * <p>
+ * Snapshot is used only if it was written from exactly the same crypto files, compared by path, length and
+ * last modification time. Otherwise crypto files have to be loaded again.
+ */
+@Component
+@Slf4j
+public class CryptoSnapshotStore {
+
+    private static final int MAGIC = 0x43525053;
+    private static final int VERSION = 2;
+    private static final int PREFIX_BYTES = 3 * Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final boolean enabled;
+    private final Path snapshotFile;
+
+    public CryptoSnapshotStore(@Value("${crypto.snapshot.enabled}") boolean enabled,
+                               @Value("${crypto.snapshot.file}") String snapshotFile) {
+        this.enabled = enabled;
+        this.snapshotFile = Paths.get(snapshotFile).toAbsolutePath();
+    }
+
+    /**
+     * Reads crypto prices from snapshot. Returns null if snapshot is disabled, missing or was written
+     * from other crypto files than provided ones.
+     */
+    public Map<String, CryptoPriceSeries> read(List<SourceFile> sourceFiles) throws IOException {
+        if (!enabled || !Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+
+        try (var channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            var header = readHeader(channel);
+            var snapshotSourceFiles = new HashSet<SourceFile>();
+            header.entries().forEach(entry -> snapshotSourceFiles.add(entry.sourceFile()));
+            if (!snapshotSourceFiles.equals(new HashSet<>(sourceFiles))) {
+                log.info("Crypto snapshot {} is stale.", snapshotFile);
+                return null;
+            }
+
+            var cryptoData = new HashMap<String, CryptoPriceSeries>();
+            var position = header.dataOffset();
+            for (var entry : header.entries()) {
+                var columnBytes = (long) entry.ticks() * Long.BYTES;
+                if (columnBytes > Integer.MAX_VALUE || position + 2 * columnBytes > channel.size()) {
+                    throw new IOException("Invalid crypto snapshot %s.".formatted(snapshotFile));
+                }
+
+                var timestamps = channel.map(FileChannel.MapMode.READ_ONLY, position, columnBytes).asLongBuffer();
+                var prices = channel.map(FileChannel.MapMode.READ_ONLY, position + columnBytes, columnBytes)
+                        .asLongBuffer();
+                var series = new CryptoPriceSeries(entry.scale());
+                for (int i = 0; i < entry.ticks(); i++) {
+                    series.appendUnscaled(timestamps.get(i), prices.get(i));
+                }
+
+                cryptoData.put(entry.sourceFile().symbol(), series);
+                position += 2 * columnBytes;
+            }
+            return cryptoData;
+        }
+    }
+
+    /**
+     * Writes snapshot of crypto prices loaded from provided crypto files. Snapshot is written to temporary file,
+     * forced to disk and moved in place, so neither readers nor a restart after a crash see a partially written
+     * snapshot.
+     */
+    public void write(Map<String, CryptoPriceSeries> cryptoData, List<SourceFile> sourceFiles) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        var header = new ByteArrayOutputStream();
+        try (var output = new DataOutputStream(header)) {
+            output.writeInt(sourceFiles.size());
+            for (var sourceFile : sourceFiles) {
+                output.writeUTF(sourceFile.symbol());
+                output.writeUTF(sourceFile.path());
+                output.writeLong(sourceFile.length());
+                output.writeLong(sourceFile.lastModified());
+                output.writeInt(cryptoData.get(sourceFile.symbol()).size());
+                output.writeInt(cryptoData.get(sourceFile.symbol()).getScale());
+            }
+        }
+
+        Files.createDirectories(snapshotFile.getParent());
+        var temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (var channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var headerBytes = header.toByteArray();
+            var prefix = ByteBuffer.allocate((int) align(PREFIX_BYTES + headerBytes.length));
+            prefix.putInt(MAGIC).putInt(VERSION).putInt(headerBytes.length).put(headerBytes);
+            prefix.position(prefix.capacity());
+            flush(channel, prefix);
+
+            var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            for (var sourceFile : sourceFiles) {
+                var series = cryptoData.get(sourceFile.symbol());
+                for (int i = 0; i < series.size(); i++) {
+                    putLong(channel, buffer, series.getTimestamp(i));
+                }
+                for (int i = 0; i < series.size(); i++) {
+                    putLong(channel, buffer, series.getUnscaledPrice(i));
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Crypto snapshot {} written.", snapshotFile);
+    }
+
+    private Header readHeader(FileChannel channel) throws IOException {
+        var headerLength = readHeaderLength(channel);
+        var header = ByteBuffer.allocate(headerLength);
+        while (header.hasRemaining()) {
+            if (channel.read(header, PREFIX_BYTES + header.position()) == -1) {
+                throw new IOException("Invalid crypto snapshot %s.".formatted(snapshotFile));
+            }
+        }
+
+        try (var input = new DataInputStream(new ByteArrayInputStream(header.array()))) {
+            var count = input.readInt();
+            var entries = new ArrayList<Entry>();
+            for (int i = 0; i < count; i++) {
+                var sourceFile = new SourceFile(input.readUTF(), input.readUTF(), input.readLong(), input.readLong());
+                var ticks = input.readInt();
+                var scale = input.readInt();
+                if (ticks < 0 || scale < 0 || scale > FixedPoint.MAX_SCALE) {
+                    throw new IOException("Invalid crypto snapshot %s.".formatted(snapshotFile));
+                }
+                entries.add(new Entry(sourceFile, ticks, scale));
+            }
+            return new Header(entries, align(PREFIX_BYTES + headerLength));
+        }
+    }
+
+    private int readHeaderLength(FileChannel channel) throws IOException {
+        var prefix = ByteBuffer.allocate(PREFIX_BYTES);
+        while (prefix.hasRemaining()) {
+            if (channel.read(prefix, prefix.position()) == -1) {
+                throw new IOException("Invalid crypto snapshot %s.".formatted(snapshotFile));
+            }
+        }
+
+        prefix.flip();
+        var magic = prefix.getInt();
+        var version = prefix.getInt();
+        var headerLength = prefix.getInt();
+        if (magic != MAGIC || version != VERSION || headerLength < 0
+                || PREFIX_BYTES + (long) headerLength > channel.size()) {
+            throw new IOException("Invalid crypto snapshot %s.".formatted(snapshotFile));
+        }
+        return headerLength;
+    }
+
+    /**
+     * Puts value into buffer, writing buffer to channel when it is full.
+     */
+    private static void putLong(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putLong(value);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long align(long position) {
+        return (position + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * Crypto file the prices were loaded from. Length is the number of bytes loaded from the file.
+     */
+    public record SourceFile(String symbol, String path, long length, long lastModified) {
+    }
+
+    private record Header(List<Entry> entries, long dataOffset) {
+    }
+
+    private record Entry(SourceFile sourceFile, int ticks, int scale) {
+    }
+}
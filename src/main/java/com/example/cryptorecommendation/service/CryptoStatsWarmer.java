@@ -0,0 +1,157 @@
+package com.example.cryptorecommendation.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-warming of stats cache, enabled with crypto.warm-up.enabled.
+ * Stats of every calendar day, week (from Monday) and month of the last crypto.warm-up.days days of each crypto
+ * are calculated after crypto data is loaded, on a pool of crypto.warm-up.parallelism threads (number of
+ * processors if 0). Warm-up runs within ApplicationReadyEvent, after the loader, and Spring Boot reports
+ * readiness only after all ApplicationReadyEvent listeners finished, so traffic is accepted once caches are warm.
+ * Warm-up is repeated every crypto.warm-up.refresh-interval, so ranges whose stats were not carried to the new
+ * epoch by new prices are calculated again before they are requested. Stats still cached are cache hits and cost
+ * a lookup.
+ */
+@Component
+@ConditionalOnProperty(name = "crypto.warm-up.enabled", havingValue = "true")
+@Slf4j
+public class CryptoStatsWarmer {
+
+    private final CryptoRecommendationService cryptoRecommendationService;
+    private final CryptoEpochs cryptoEpochs;
+    private final CryptoLoader cryptoLoader;
+    private final MeterRegistry meterRegistry;
+    private final int days;
+    private final ForkJoinPool warmUpPool;
+
+    private volatile boolean warmedUp;
+
+    public CryptoStatsWarmer(CryptoRecommendationService cryptoRecommendationService,
+                             CryptoEpochs cryptoEpochs,
+                             CryptoLoader cryptoLoader,
+                             MeterRegistry meterRegistry,
+                             @Value("${crypto.warm-up.days}") int days,
+                             @Value("${crypto.warm-up.parallelism}") int parallelism) {
+        this.cryptoRecommendationService = cryptoRecommendationService;
+        this.cryptoEpochs = cryptoEpochs;
+        this.cryptoLoader = cryptoLoader;
+        this.meterRegistry = meterRegistry;
+        this.days = days;
+        this.warmUpPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUpOnStartup() {
+        if (!cryptoLoader.isCryptoDataLoaded()) {
+            log.warn("Crypto data is not loaded, stats warm-up is skipped.");
+            return;
+        }
+        warmUp("startup");
+        warmedUp = true;
+    }
+
+    @Scheduled(fixedDelayString = "${crypto.warm-up.refresh-interval}",
+               initialDelayString = "${crypto.warm-up.refresh-interval}")
+    public void refresh() {
+        if (warmedUp) {
+            warmUp("refresh");
+        }
+    }
+
+    /**
+     * Calculates stats of all warm-up ranges and returns number of ranges.
+     */
+    int warmUp(String type) {
+        var startNanos = System.nanoTime();
+        var ranges = getWarmUpRanges();
+
+        try {
+            warmUpPool.submit(() -> ranges.parallelStream().forEach(range ->
+                    cryptoRecommendationService.getCryptoStats(range.symbol(),
+                            range.dateFrom().atTime(LocalTime.MIN), range.dateTo().atTime(LocalTime.MIN))))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Stats warm-up was interrupted.");
+            return 0;
+        } catch (ExecutionException e) {
+            log.error("Error in stats warm-up.", e.getCause());
+            return 0;
+        }
+
+        var elapsedNanos = System.nanoTime() - startNanos;
+        Timer.builder("crypto.warm-up.duration")
+                .description("Duration of stats cache warm-up")
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Stats of {} ranges warmed up on {} in {} ms.", ranges.size(), type, elapsedNanos / 1_000_000);
+        return ranges.size();
+    }
+
+    /**
+     * Day, week and month ranges [dateFrom, dateTo) overlapping the last days of prices of each crypto
+     * in the current epoch.
+     */
+    List<WarmUpRange> getWarmUpRanges() {
+        var ranges = new ArrayList<WarmUpRange>();
+        for (var crypto : cryptoEpochs.current().cryptos().values()) {
+            var symbol = crypto.symbol();
+            var prices = crypto.prices();
+            var lastDay = toDate(prices.getLastTimestamp());
+            var firstDay = max(toDate(prices.getFirstTimestamp()), lastDay.minusDays(days - 1L));
+
+            for (var day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                ranges.add(new WarmUpRange(symbol, day, day.plusDays(1)));
+            }
+            for (var week = firstDay.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                 !week.isAfter(lastDay); week = week.plusWeeks(1)) {
+                ranges.add(new WarmUpRange(symbol, week, week.plusWeeks(1)));
+            }
+            for (var month = firstDay.withDayOfMonth(1); !month.isAfter(lastDay); month = month.plusMonths(1)) {
+                ranges.add(new WarmUpRange(symbol, month, month.plusMonths(1)));
+            }
+        }
+        return ranges;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmUpPool.shutdownNow();
+    }
+
+    private static LocalDate toDate(long epochMilli) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    private static LocalDate max(LocalDate date, LocalDate otherDate) {
+        return date.isAfter(otherDate) ? date : otherDate;
+    }
+
+    record WarmUpRange(String symbol, LocalDate dateFrom, LocalDate dateTo) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.example.cryptorecommendation.entity.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive columns of parsed rows, sorted by timestamp only if rows were not already sorted.
+ * Series is created with the smallest scale fitting all prices.
+ */
+class PriceColumns {
+
+    private long[] timestamps = new long[1024];
+    private double[] prices = new double[1024];
+    private int size;
+    private boolean sorted = true;
+
+    int size() {
+        return size;
+    }
+
+    void add(long timestamp, double price) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        if (size > 0 && timestamp < timestamps[size - 1]) {
+            sorted = false;
+        }
+        timestamps[size] = timestamp;
+        prices[size] = price;
+        size++;
+    }
+
+    CryptoPriceSeries toSortedSeries() {
+        if (!sorted) {
+            sortByTimestamp();
+        }
+        int scale = 0;
+        for (int i = 0; i < size; i++) {
+            scale = FixedPoint.scaleOf(prices[i], scale);
+        }
+
+        var series = new CryptoPriceSeries(scale);
+        for (int i = 0; i < size; i++) {
+            series.append(timestamps[i], prices[i]);
+        }
+        return series;
+    }
+
+    /**
+     * Stable bottom-up merge sort of both columns by timestamp.
+     */
+    private void sortByTimestamp() {
+        var sourceTimestamps = timestamps;
+        var sourcePrices = prices;
+        var targetTimestamps = new long[size];
+        var targetPrices = new double[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size; left += 2 * width) {
+                int middle = Math.min(left + width, size);
+                int right = Math.min(left + 2 * width, size);
+                int i = left;
+                int j = middle;
+                for (int k = left; k < right; k++) {
+                    if (i < middle && (j >= right || sourceTimestamps[i] <= sourceTimestamps[j])) {
+                        targetTimestamps[k] = sourceTimestamps[i];
+                        targetPrices[k] = sourcePrices[i++];
+                    } else {
+                        targetTimestamps[k] = sourceTimestamps[j];
+                        targetPrices[k] = sourcePrices[j++];
+                    }
+                }
+            }
+            var swapTimestamps = sourceTimestamps;
+            var swapPrices = sourcePrices;
+            sourceTimestamps = targetTimestamps;
+            sourcePrices = targetPrices;
+            targetTimestamps = swapTimestamps;
+            targetPrices = swapPrices;
+        }
+
+        timestamps = sourceTimestamps;
+        prices = sourcePrices;
+    }
+}
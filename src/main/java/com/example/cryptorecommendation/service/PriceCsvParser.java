@@ -0,0 +1,142 @@
+package com.example.cryptorecommendation.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of timestamp,symbol,price CSV rows. Input is read through a large NIO buffer and fields are parsed
+ * straight from bytes, so no String is created per row.
+ */
+final class PriceCsvParser {
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_FAST_PATH_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private PriceCsvParser() {
+    }
+
+    /**
+     * Handler of parsed rows. Symbol is passed as range of bytes, which are valid only during the call.
+     */
+    @FunctionalInterface
+    interface RowHandler {
+        void onRow(byte[] bytes, int symbolFrom, int symbolTo, long timestamp, double price);
+    }
+
+    /**
+     * Reads all rows from channel and returns number of bytes consumed. If completeRowsOnly is set,
+     * last row not ending with new line is not read, so it can be read once it is completed.
+     */
+    static long readRows(ReadableByteChannel channel, boolean completeRowsOnly, String source, RowHandler handler)
+            throws IOException {
+        var consumed = 0L;
+        var bytes = new byte[READ_BUFFER_SIZE];
+        var buffer = ByteBuffer.wrap(bytes);
+        var endOfInput = false;
+
+        while (!endOfInput) {
+            endOfInput = channel.read(buffer) == -1;
+            var limit = buffer.position();
+            var lineStart = 0;
+
+            for (int i = 0; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    parseRow(bytes, lineStart, i, handler);
+                    lineStart = i + 1;
+                }
+            }
+            consumed += lineStart;
+
+            if (endOfInput) {
+                if (!completeRowsOnly) {
+                    parseRow(bytes, lineStart, limit, handler);
+                    consumed += limit - lineStart;
+                }
+            } else {
+                if (lineStart == 0 && limit == bytes.length) {
+                    throw new IOException("CSV row longer than %d bytes in %s.".formatted(bytes.length, source));
+                }
+                System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+            }
+        }
+
+        return consumed;
+    }
+
+    /**
+     * Parses one row in [from, to). Empty rows and rows not starting with a digit (header) are skipped.
+     */
+    static void parseRow(byte[] bytes, int from, int to, RowHandler handler) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (from >= to || !isDigit(bytes[from])) {
+            return;
+        }
+
+        var timestamp = 0L;
+        var position = from;
+        for (; position < to && bytes[position] != ','; position++) {
+            if (!isDigit(bytes[position])) {
+                throw new NumberFormatException("Invalid timestamp in row: " + toRowString(bytes, from, to));
+            }
+            timestamp = timestamp * 10 + (bytes[position] - '0');
+        }
+
+        var symbolFrom = position + 1;
+        var symbolEnd = symbolFrom;
+        while (symbolEnd < to && bytes[symbolEnd] != ',') {
+            symbolEnd++;
+        }
+        if (symbolEnd >= to) {
+            throw new NumberFormatException("Missing price in row: " + toRowString(bytes, from, to));
+        }
+
+        handler.onRow(bytes, symbolFrom, symbolEnd, timestamp, parsePrice(bytes, symbolEnd + 1, to));
+    }
+
+    /**
+     * Plain decimals with up to 15 digits are exactly representable as long, so dividing them by an exact
+     * power of ten gives the same correctly rounded double as Double.parseDouble. Other formats fall back to it.
+     */
+    static double parsePrice(byte[] bytes, int from, int to) {
+        var mantissa = 0L;
+        var digits = 0;
+        var decimals = -1;
+
+        for (int i = from; i < to; i++) {
+            var current = bytes[i];
+            if (isDigit(current)) {
+                mantissa = mantissa * 10 + (current - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (current == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                digits = Integer.MAX_VALUE;
+                break;
+            }
+        }
+
+        if (digits == 0 || digits > MAX_FAST_PATH_DIGITS) {
+            return Double.parseDouble(toRowString(bytes, from, to));
+        }
+        return decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+    }
+
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    private static String toRowString(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.US_ASCII);
+    }
+}
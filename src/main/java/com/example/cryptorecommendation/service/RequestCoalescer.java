@@ -0,0 +1,85 @@
+package com.example.cryptorecommendation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of calls with the same name and key. The first caller runs the call, callers arriving
+ * while it runs wait for its result or exception instead of running the same call again. Finished calls are
+ * forgotten, so results are not cached here.
+ * Waiting callers are counted as crypto.coalesced.calls metric tagged by call name.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final String COALESCED_CALLS_METRIC = "crypto.coalesced.calls";
+
+    private final Map<CallKey, CompletableFuture<Object>> callsInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCalls = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("crypto.coalesced.in-flight", callsInFlight, Map::size)
+                .description("Coalesced calls currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call, or waits for the same call already running in another thread and returns its result.
+     * Key must identify everything the result depends on, including data version where data can change.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Supplier<T> call) {
+        var callKey = new CallKey(name, key);
+        var future = new CompletableFuture<Object>();
+        var callInFlight = callsInFlight.putIfAbsent(callKey, future);
+        if (callInFlight != null) {
+            getCoalescedCalls(name).increment();
+            return (T) await(callInFlight);
+        }
+
+        try {
+            var result = call.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            callsInFlight.remove(callKey, future);
+        }
+    }
+
+    private Counter getCoalescedCalls(String name) {
+        return coalescedCalls.computeIfAbsent(name, key -> Counter.builder(COALESCED_CALLS_METRIC)
+                .description("Calls that waited for the same call already running")
+                .tag("call", key)
+                .register(meterRegistry));
+    }
+
+    private static Object await(CompletableFuture<Object> callInFlight) {
+        try {
+            return callInFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record CallKey(String name, Object key) {
+    }
+}
@@ -1,39 +1,85 @@
 package com.example.cryptorecommendation.controller;
 
+import com.example.cryptorecommendation.dto.CryptoCandleDto;
+import com.example.cryptorecommendation.dto.CryptoCandleListDto;
+import com.example.cryptorecommendation.dto.CryptoIngestResultDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
 import com.example.cryptorecommendation.dto.CryptoNormalizedRangeListDto;
+import com.example.cryptorecommendation.dto.CryptoPriceSeriesDto;
 import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.rest.ClientRateLimiter;
+import com.example.cryptorecommendation.rest.IngestKeyInterceptor;
+import com.example.cryptorecommendation.rest.exceptions.RateLimitExceeded;
+import com.example.cryptorecommendation.rest.exceptions.ShardUnavailable;
+import com.example.cryptorecommendation.service.CryptoCluster;
+import com.example.cryptorecommendation.service.CryptoClusterService;
+import com.example.cryptorecommendation.service.CryptoEpochs;
+import com.example.cryptorecommendation.service.CryptoIngestService;
 import com.example.cryptorecommendation.service.CryptoRecommendationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static com.example.cryptorecommendation.controller.CryptoRecommendationControllerTest.INGEST_KEY;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(CryptoRecommendationController.class)
+@WebMvcTest(value = CryptoRecommendationController.class, properties = "crypto.ingest.key=" + INGEST_KEY)
+@Import({CryptoResponseCache.class, CryptoShardRouter.class})
 class CryptoRecommendationControllerTest {
 
+    static final String INGEST_KEY = "ingest-key";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private CryptoRecommendationService cryptoRecommendationService;
 
+    @MockBean
+    private CryptoIngestService cryptoIngestService;
+
+    @MockBean
+    private ClientRateLimiter clientRateLimiter;
+
+    @MockBean
+    private CryptoEpochs cryptoEpochs;
+
+    @MockBean
+    private CryptoCluster cryptoCluster;
+
+    @MockBean
+    private CryptoClusterService cryptoClusterService;
+
     @Test
     void specificCryptoStats() throws Exception {
         var cryptoStatsDto = new CryptoStatsDto(
                 "BTC",
                 BigDecimal.valueOf(34.32), BigDecimal.valueOf(54.43),
-                BigDecimal.valueOf(3.43), BigDecimal.valueOf(60.10));
+                BigDecimal.valueOf(3.43), BigDecimal.valueOf(60.10),
+                BigDecimal.valueOf(40.12), BigDecimal.valueOf(12.5),
+                new BigDecimal("0.585956"), new BigDecimal("0.754321"));
 
         when(cryptoRecommendationService.getSpecificCryptoStats(
                     "BTC",
@@ -49,7 +95,168 @@ class CryptoRecommendationControllerTest {
                 .andExpect(jsonPath("$.min").value(3.43))
                 .andExpect(jsonPath("$.max").value(60.10))
                 .andExpect(jsonPath("$.oldest").value(34.32))
-                .andExpect(jsonPath("$.newest").value(54.43));
+                .andExpect(jsonPath("$.newest").value(54.43))
+                .andExpect(jsonPath("$.average").value(40.12))
+                .andExpect(jsonPath("$.standardDeviation").value(12.5))
+                .andExpect(jsonPath("$.priceReturn").value(0.585956))
+                .andExpect(jsonPath("$.volatility").value(0.754321));
+    }
+
+    @Test
+    void specificCryptoStats_forTimeRange() throws Exception {
+        when(cryptoRecommendationService.getCryptoStatsForTimeRange(
+                    "BTC",
+                    LocalDateTime.of(2022, 1, 1, 10, 0),
+                    LocalDateTime.of(2022, 1, 1, 10, 30, 15, 500_000_000)))
+                .thenReturn(new CryptoStatsDto("BTC", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN,
+                        BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+
+        mockMvc.perform(get("/api/crypto-recommend/cryptoStats/{cryptoSymbol}"
+                                + "?dateTimeFrom=2022-01-01T10:00:00&dateTimeTo=2022-01-01T10:30:15.500", "BTC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.symbol").value("BTC"))
+                .andExpect(jsonPath("$.max").value(10));
+    }
+
+    @Test
+    void candles() throws Exception {
+        var candle = new CryptoCandleDto(LocalDateTime.of(2022, 1, 1, 10, 0),
+                BigDecimal.valueOf(34.32), BigDecimal.valueOf(54.43),
+                BigDecimal.valueOf(3.43), BigDecimal.valueOf(60.10), 12);
+
+        when(cryptoRecommendationService.getCandles("BTC", "5m", LocalDateTime.of(2022, 1, 1, 10, 0), null, 1000))
+                .thenReturn(new CryptoCandleListDto("BTC", "5m", List.of(candle)));
+
+        mockMvc.perform(get("/api/crypto-recommend/candles/{cryptoSymbol}?interval=5m&dateTimeFrom=2022-01-01T10:00:00",
+                        "BTC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.interval").value("5m"))
+                .andExpect(jsonPath("$.candles[0].openTime").value("2022-01-01T10:00:00"))
+                .andExpect(jsonPath("$.candles[0].open").value(34.32))
+                .andExpect(jsonPath("$.candles[0].max").value(60.10))
+                .andExpect(jsonPath("$.candles[0].count").value(12));
+    }
+
+    @Test
+    void candles_rejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/crypto-recommend/candles/{cryptoSymbol}?limit=10001", "BTC"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void downsampledPrices() throws Exception {
+        when(cryptoRecommendationService.getDownsampledPrices("BTC", null, null, 3))
+                .thenReturn(new CryptoPriceSeriesDto("BTC", new long[]{1, 5, 9}, new double[]{1.5, 7.25, 2}));
+
+        mockMvc.perform(get("/api/crypto-recommend/prices/{cryptoSymbol}?points=3", "BTC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.symbol").value("BTC"))
+                .andExpect(jsonPath("$.timestamps[1]").value(5))
+                .andExpect(jsonPath("$.prices[1]").value(7.25));
+    }
+
+    @Test
+    void downsampledPrices_rejectsInvalidPoints() throws Exception {
+        mockMvc.perform(get("/api/crypto-recommend/prices/{cryptoSymbol}?points=1", "BTC"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void specificCryptoStats_returnsNotModifiedForCurrentETag() throws Exception {
+
+        when(cryptoEpochs.getVersion()).thenReturn(7L);
+        when(cryptoRecommendationService.getSpecificCryptoStats("ETH", null, null))
+                .thenReturn(new CryptoStatsDto("ETH", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN,
+                        BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+
+        var eTag = mockMvc.perform(get("/api/crypto-recommend/cryptoStats/{cryptoSymbol}", "ETH"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, public"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/crypto-recommend/cryptoStats/{cryptoSymbol}", "ETH")
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        when(cryptoEpochs.getVersion()).thenReturn(8L);
+
+        mockMvc.perform(get("/api/crypto-recommend/cryptoStats/{cryptoSymbol}", "ETH")
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void highestCryptoNormalizedRangeByDay_returnsNotModifiedWithoutCallingService() throws Exception {
+
+        when(cryptoEpochs.getVersion()).thenReturn(3L);
+
+        mockMvc.perform(get("/api/crypto-recommend/highestCryptoNormalizedRange/byDay/{date}", "2022-01-05")
+                        .header("If-None-Match", "\"3-%08x\"".formatted(
+                                "/api/crypto-recommend/highestCryptoNormalizedRange/byDay/2022-01-05?".hashCode())))
+                .andExpect(status().isNotModified());
+
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    @Test
+    void cryptoStatsBatch() throws Exception {
+
+        when(cryptoRecommendationService.getCryptoStatsBatch(anyList()))
+                .thenReturn(List.of(
+                        new CryptoStatsDto("BTC", BigDecimal.valueOf(34.32), BigDecimal.valueOf(54.43),
+                                BigDecimal.valueOf(3.43), BigDecimal.valueOf(60.10), BigDecimal.valueOf(40.12),
+                                BigDecimal.valueOf(12.5), new BigDecimal("0.585956"), new BigDecimal("0.754321")),
+                        new CryptoStatsDto("ETH", BigDecimal.valueOf(1.1), BigDecimal.valueOf(2.2),
+                                BigDecimal.valueOf(1.1), BigDecimal.valueOf(2.2), BigDecimal.valueOf(1.65),
+                                BigDecimal.valueOf(0.55), BigDecimal.ONE, new BigDecimal("0.25"))));
+
+        mockMvc.perform(post("/api/crypto-recommend/cryptoStats/batch")
+                        .contentType("application/json")
+                        .content("""
+                                {"queries": [
+                                  {"symbol": "BTC", "dateFrom": "2022-01-01", "dateTo": "2022-01-02"},
+                                  {"symbol": "ETH"}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stats[0].symbol").value("BTC"))
+                .andExpect(jsonPath("$.stats[0].max").value(60.10))
+                .andExpect(jsonPath("$.stats[1].symbol").value("ETH"));
+    }
+
+    @Test
+    void cryptoStatsBatch_returnsTooManyRequestsWhenRateLimitIsExceeded() throws Exception {
+
+        doThrow(new RateLimitExceeded(200, 0)).when(clientRateLimiter).consume(anyString(), eq(10L), anyList());
+
+        mockMvc.perform(post("/api/crypto-recommend/cryptoStats/batch")
+                        .contentType("application/json")
+                        .content("{\"queries\": [{\"symbol\": \"BTC\"}]}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.errorType").value("TOO_MANY_REQUESTS"));
+        verify(clientRateLimiter, never()).consume(anyString(), anyLong());
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    @Test
+    void normalizedCryptosDescending_takesEndpointCostFromRateLimit() throws Exception {
+
+        when(clientRateLimiter.consume(anyString(), eq(50L))).thenThrow(new RateLimitExceeded(50, 3));
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.errorType").value("TOO_MANY_REQUESTS"));
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    @Test
+    void cryptoStatsBatch_rejectsEmptyQueries() throws Exception {
+        mockMvc.perform(post("/api/crypto-recommend/cryptoStats/batch")
+                        .contentType("application/json")
+                        .content("{\"queries\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType").value("VALIDATION_ERROR"));
     }
 
     @Test
@@ -62,7 +269,7 @@ class CryptoRecommendationControllerTest {
         );
 
         when(cryptoRecommendationService.getNormalizedCryptosListDescending(
-                    LocalDate.of(2022,1,1), LocalDate.of(2022,1,2)))
+                    LocalDate.of(2022,1,1), LocalDate.of(2022,1,2), null, 0, "normalizedRange"))
                 .thenReturn(cryptoNormalizedRangeListDto);
 
         mockMvc.perform(
@@ -74,6 +281,98 @@ class CryptoRecommendationControllerTest {
                 .andExpect(jsonPath("$.cryptoList[1].normalizedPrice").value(11.11));
     }
 
+    @Test
+    void normalizedCryptosDescending_withLimitAndOffset() throws Exception {
+
+        var cryptoNormalizedRangeListDto = new CryptoNormalizedRangeListDto(
+                List.of(new CryptoNormalizedRangeDto("ETH", BigDecimal.valueOf(11.11))));
+
+        when(cryptoRecommendationService.getNormalizedCryptosListDescending(null, null, 1, 1, "normalizedRange"))
+                .thenReturn(cryptoNormalizedRangeListDto);
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?limit=1&offset=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cryptoList.length()").value(1))
+                .andExpect(jsonPath("$.cryptoList[0].symbol").value("ETH"));
+    }
+
+    @Test
+    void normalizedCryptosDescending_orderedByVolatility() throws Exception {
+
+        var cryptoNormalizedRangeListDto = new CryptoNormalizedRangeListDto(
+                List.of(new CryptoNormalizedRangeDto("ETH", BigDecimal.valueOf(11.11), new BigDecimal("0.812345")),
+                        new CryptoNormalizedRangeDto("BTC", BigDecimal.valueOf(55.43), new BigDecimal("0.501234"))));
+
+        when(cryptoRecommendationService.getNormalizedCryptosListDescending(null, null, null, 0, "volatility"))
+                .thenReturn(cryptoNormalizedRangeListDto);
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?orderBy=volatility"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cryptoList[0].symbol").value("ETH"))
+                .andExpect(jsonPath("$.cryptoList[0].volatility").value(0.812345))
+                .andExpect(jsonPath("$.cryptoList[1].symbol").value("BTC"));
+    }
+
+    @Test
+    void normalizedCryptosDescending_returnsBadRequestForUnsupportedOrder() throws Exception {
+
+        when(cryptoRecommendationService.getNormalizedCryptosListDescending(null, null, null, 0, "price"))
+                .thenThrow(new IllegalArgumentException("Unsupported ranking order: price."));
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?orderBy=price"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void normalizedCryptosDescending_mergesRankingsOfClusterNodes() throws Exception {
+
+        when(cryptoCluster.isEnabled()).thenReturn(true);
+        when(cryptoClusterService.getNormalizedCryptosListDescending(null, null, 1, 1, "normalizedRange"))
+                .thenReturn(new CryptoNormalizedRangeListDto(
+                        List.of(new CryptoNormalizedRangeDto("ETH", BigDecimal.valueOf(11.11)))));
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?limit=1&offset=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.cryptoList[0].symbol").value("ETH"));
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    @Test
+    void normalizedCryptosDescending_answersShardRequestLocallyWithoutRateLimit() throws Exception {
+
+        when(cryptoCluster.isEnabled()).thenReturn(true);
+        when(cryptoCluster.isShardRequest("secret")).thenReturn(true);
+        when(cryptoRecommendationService.getNormalizedCryptosListDescending(null, null, 2, 0, "normalizedRange"))
+                .thenReturn(new CryptoNormalizedRangeListDto(
+                        List.of(new CryptoNormalizedRangeDto("BTC", BigDecimal.valueOf(55.43)))));
+
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?limit=2&offset=0")
+                        .header(CryptoCluster.SHARD_TOKEN_HEADER, "secret"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cryptoList[0].symbol").value("BTC"));
+        verifyNoInteractions(clientRateLimiter, cryptoClusterService);
+    }
+
+    @Test
+    void highestCryptoNormalizedRangeByDay_returnsServiceUnavailableWhenShardIsNotAvailable() throws Exception {
+
+        when(cryptoCluster.isEnabled()).thenReturn(true);
+        when(cryptoClusterService.cryptoWithHighestNormalizedRangeByDay(LocalDate.of(2022, 1, 1)))
+                .thenThrow(new ShardUnavailable("http://localhost:8081", "timeout", null));
+
+        mockMvc.perform(get("/api/crypto-recommend/highestCryptoNormalizedRange/byDay/{date}", "2022-01-01"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.errorType").value("SERVICE_UNAVAILABLE"));
+    }
+
+    @Test
+    void normalizedCryptosDescending_rejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/crypto-recommend/normalizedPricesDescending?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType").value("VALIDATION_ERROR"));
+    }
+
     @Test
     void highestCryptoNormalizedRangeByDay() throws Exception {
 
@@ -86,4 +385,65 @@ class CryptoRecommendationControllerTest {
                 .andExpect(jsonPath("$.normalizedPrice").value(55.55));
     }
 
+    @Test
+    void ingestCsvPrices() throws Exception {
+
+        when(cryptoIngestService.ingestCsv(any(), eq(false)))
+                .thenReturn(new CryptoIngestResultDto(2, List.of("BTC", "ETH")));
+
+        mockMvc.perform(post("/api/crypto-recommend/prices")
+                        .header(IngestKeyInterceptor.INGEST_KEY_HEADER, INGEST_KEY)
+                        .contentType("text/csv")
+                        .content("1641009600000,BTC,46813.21\n1641009600000,ETH,3715.32\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingestedPrices").value(2))
+                .andExpect(jsonPath("$.cryptos[1]").value("ETH"));
+    }
+
+    @Test
+    void ingestCsvPrices_returnsForbiddenWithoutIngestKey() throws Exception {
+
+        mockMvc.perform(post("/api/crypto-recommend/prices")
+                        .header(IngestKeyInterceptor.INGEST_KEY_HEADER, "wrong-key")
+                        .contentType("text/csv")
+                        .content("1641009600000,BTC,46813.21\n"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.errorType").value("FORBIDDEN"));
+        mockMvc.perform(post("/api/crypto-recommend/prices")
+                        .contentType("text/csv")
+                        .content("1641009600000,BTC,46813.21\n"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(cryptoIngestService);
+        verifyNoInteractions(clientRateLimiter);
+    }
+
+    @Test
+    void ingestCsvPrices_acceptsPricesForwardedByOtherNode() throws Exception {
+        when(cryptoCluster.isShardRequest("shard-token")).thenReturn(true);
+        when(cryptoIngestService.ingestCsv(any(), eq(false)))
+                .thenReturn(new CryptoIngestResultDto(1, List.of("BTC")));
+
+        mockMvc.perform(post("/api/crypto-recommend/prices")
+                        .header(CryptoCluster.SHARD_TOKEN_HEADER, "shard-token")
+                        .contentType("text/csv")
+                        .content("1641009600000,BTC,46813.21\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingestedPrices").value(1));
+    }
+
+    @Test
+    void ingestNdjsonPrices_returnsBadRequestForInvalidPrice() throws Exception {
+
+        when(cryptoIngestService.ingestNdjson(any(), eq(false)))
+                .thenThrow(new IllegalArgumentException("Invalid crypto price."));
+
+        mockMvc.perform(post("/api/crypto-recommend/prices")
+                        .header(IngestKeyInterceptor.INGEST_KEY_HEADER, INGEST_KEY)
+                        .contentType("application/x-ndjson")
+                        .content("{\"timestamp\":1641009600000,\"symbol\":\"BTC\",\"price\":\"x\"}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType").value("VALIDATION_ERROR"));
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandlePyramidTest {
+
+    @Test
+    void candles_matchFullScanForEveryInterval() {
+        var random = new Random(42);
+        var series = new CryptoPriceSeries();
+        var timestamp = 1_640_995_200_000L;
+
+        for (int i = 0; i < 20_000; i++) {
+            timestamp += random.nextInt(90_000);
+            series.append(timestamp, random.nextDouble() * 1000);
+        }
+
+        for (var interval : CandleInterval.values()) {
+            for (int query = 0; query < 50; query++) {
+                var from = series.getTimestamp(random.nextInt(series.size()));
+                var to = from + random.nextInt(200) * interval.getMillis();
+
+                assertThat(series.getCandles(interval, from, to, Integer.MAX_VALUE))
+                        .isEqualTo(scanCandles(series, interval, from, to));
+            }
+        }
+    }
+
+    @Test
+    void candles_areUpdatedOnAppendAndLimited() {
+        var series = new CryptoPriceSeries(0);
+        series.append(0, 10);
+        series.append(30_000, 5);
+
+        assertThat(series.getCandles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 10))
+                .containsExactly(new Candle(0, 10, 5, 5, 10, 2, 0));
+
+        series.append(59_999, 20);
+        series.append(60_000, 7);
+
+        assertThat(series.getCandles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 10))
+                .containsExactly(new Candle(0, 10, 20, 5, 20, 3, 0), new Candle(60_000, 7, 7, 7, 7, 1, 0));
+        assertThat(series.getCandles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .containsExactly(new Candle(0, 10, 20, 5, 20, 3, 0));
+        assertThat(series.getCandles(CandleInterval.ONE_HOUR, 59_000, Long.MAX_VALUE, 10))
+                .containsExactly(new Candle(0, 10, 7, 5, 20, 4, 0));
+    }
+
+    private static List<Candle> scanCandles(CryptoPriceSeries series, CandleInterval interval, long from, long to) {
+        var candles = new ArrayList<Candle>();
+        var alignedFrom = Math.floorDiv(from, interval.getMillis()) * interval.getMillis();
+        int i = 0;
+        while (i < series.size()) {
+            var openTime = Math.floorDiv(series.getTimestamp(i), interval.getMillis()) * interval.getMillis();
+            int j = i;
+            var min = Long.MAX_VALUE;
+            var max = Long.MIN_VALUE;
+            while (j < series.size() && series.getTimestamp(j) < openTime + interval.getMillis()) {
+                min = Math.min(min, series.getUnscaledPrice(j));
+                max = Math.max(max, series.getUnscaledPrice(j));
+                j++;
+            }
+            if (openTime >= alignedFrom && openTime < to) {
+                candles.add(new Candle(openTime, series.getUnscaledPrice(i), series.getUnscaledPrice(j - 1),
+                        min, max, j - i, series.getScale()));
+            }
+            i = j;
+        }
+        return candles;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CryptoPriceSeriesTest {
+
+    @Test
+    void append_keepsAllTicksAcrossChunks() {
+        var series = new CryptoPriceSeries();
+        var ticks = CryptoPriceSeries.CHUNK_SIZE * 2 + 10;
+
+        for (int i = 0; i < ticks; i++) {
+            series.append(1_000L * i, i / 100.0);
+        }
+
+        assertThat(series.size()).isEqualTo(ticks);
+        for (int i = 0; i < ticks; i++) {
+            assertThat(series.getTimestamp(i)).isEqualTo(1_000L * i);
+            assertThat(series.getPrice(i)).isEqualTo(i / 100.0);
+        }
+    }
+
+    @Test
+    void getMemoryBytes_countsTicksAndIndexEntriesOfView() {
+        var series = new CryptoPriceSeries();
+        for (int i = 0; i < 600; i++) {
+            series.append(60_000L * i, 1 + i / 100.0);
+        }
+        var view = series.freeze();
+        series.append(60_000L * 600, 5);
+
+        // 3 prefix sum blocks, 2 + 1 range min/max table entries per table, one day, no candle level yet
+        var indexBytes = 600L * CryptoPriceSeries.BYTES_PER_TICK
+                + 3 * PrefixAggregateIndex.BYTES_PER_BLOCK + 2 * 3 * Long.BYTES + Integer.BYTES;
+        assertThat(view.getMemoryBytes()).isEqualTo(indexBytes);
+
+        view.getCandles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        view.getCandles(CandleInterval.ONE_HOUR, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+
+        // 600 minute + 10 hour candle intervals
+        assertThat(view.getMemoryBytes()).isEqualTo(indexBytes + 610 * CandlePyramid.BYTES_PER_INTERVAL);
+        assertThat(series.getMemoryBytes()).isEqualTo(view.getMemoryBytes() + CryptoPriceSeries.BYTES_PER_TICK
+                + 2 * CandlePyramid.BYTES_PER_INTERVAL);
+    }
+
+    @Test
+    void append_roundsPricesToScale() {
+        var series = new CryptoPriceSeries(2);
+        series.append(1_000L, 46813.21);
+        series.append(2_000L, 0.125);
+        series.appendUnscaled(3_000L, 1_050);
+
+        assertThat(series.getUnscaledPrice(0)).isEqualTo(4_681_321);
+        assertThat(series.getUnscaledPrice(1)).isEqualTo(12);
+        assertThat(series.getPrice(0)).isEqualTo(46813.21);
+        assertThat(series.getPrice(2)).isEqualTo(10.5);
+    }
+
+    @Test
+    void merge_usesLargerScale() {
+        var first = new CryptoPriceSeries(1);
+        first.append(1_000L, 1.5);
+        var second = new CryptoPriceSeries(3);
+        second.append(2_000L, 0.125);
+
+        var merged = CryptoPriceSeries.merge(first, second);
+
+        assertThat(merged.getScale()).isEqualTo(3);
+        assertThat(merged.getUnscaledPrice(0)).isEqualTo(1_500);
+        assertThat(merged.getUnscaledPrice(1)).isEqualTo(125);
+    }
+
+    @Test
+    void firstIndexAtOrAfter_returnsRangeBoundaries() {
+        var series = new CryptoPriceSeries();
+        series.append(1_000L, 1.0);
+        series.append(2_000L, 2.0);
+        series.append(2_000L, 3.0);
+        series.append(3_000L, 4.0);
+
+        assertThat(series.firstIndexAtOrAfter(0L)).isZero();
+        assertThat(series.firstIndexAtOrAfter(1_000L)).isZero();
+        assertThat(series.firstIndexAtOrAfter(1_500L)).isEqualTo(1);
+        assertThat(series.firstIndexAtOrAfter(2_000L)).isEqualTo(1);
+        assertThat(series.firstIndexAtOrAfter(3_000L)).isEqualTo(3);
+        assertThat(series.firstIndexAtOrAfter(3_001L)).isEqualTo(4);
+    }
+
+    @Test
+    void getDailyRollup_aggregatesPricesOfUtcDay() {
+        var day = 19_000L;
+        var dayStart = day * 86_400_000L;
+        var series = new CryptoPriceSeries(1);
+        series.append(dayStart - 1, 100.0);
+        series.append(dayStart, 3.0);
+        series.append(dayStart + 1_000, 1.0);
+        series.append(dayStart + 2_000, 5.0);
+        series.append(dayStart + 3 * 86_400_000L, 7.0);
+
+        assertThat(series.getDailyRollup(day)).isEqualTo(new DailyRollup(day, 30, 50, 10, 50, 3, 1));
+        assertThat(series.getDailyRollup(day + 1)).isNull();
+        assertThat(series.getDailyRollup(day + 3)).isEqualTo(new DailyRollup(day + 3, 70, 70, 70, 70, 1, 1));
+        assertThat(series.getDailyRollup(day + 4)).isNull();
+        assertThat(series.firstIndexAtOrAfter(dayStart)).isEqualTo(1);
+        assertThat(series.firstIndexAtOrAfter(dayStart + 86_400_000L)).isEqualTo(4);
+    }
+
+    @Test
+    void append_throwsIllegalArgumentForOutOfOrderTimestamp() {
+        var series = new CryptoPriceSeries();
+        series.append(2_000L, 1.0);
+
+        assertThatThrownBy(() -> series.append(1_000L, 2.0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Crypto prices must be appended in time order.");
+    }
+
+    @Test
+    void freeze_keepsTicksAppendedBeforeFreezing() {
+        var series = new CryptoPriceSeries(2);
+        series.append(1_000L, 1.0);
+        series.append(2_000L, 3.0);
+
+        var frozen = series.freeze();
+        series.append(3_000L, 0.5);
+        series.append(86_400_000L, 9.0);
+
+        assertThat(frozen.freeze()).isSameAs(frozen);
+        assertThat(frozen.size()).isEqualTo(2);
+        assertThat(frozen.getLastTimestamp()).isEqualTo(2_000L);
+        assertThat(frozen.getMinUnscaledPrice(0, frozen.size())).isEqualTo(100);
+        assertThat(frozen.firstIndexAtOrAfter(86_400_000L)).isEqualTo(2);
+        assertThat(series.size()).isEqualTo(4);
+        assertThatThrownBy(() -> frozen.append(4_000L, 1.0))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedPointTest {
+
+    @Test
+    void scaleOf_findsDecimalPlacesOfParsedPrice() {
+        assertThat(FixedPoint.scaleOf(46813.21, 0)).isEqualTo(2);
+        assertThat(FixedPoint.scaleOf(0.8458, 0)).isEqualTo(4);
+        assertThat(FixedPoint.scaleOf(100, 0)).isZero();
+        assertThat(FixedPoint.scaleOf(100, 3)).isEqualTo(3);
+        assertThat(FixedPoint.scaleOf(0.123456789, 0)).isEqualTo(FixedPoint.MAX_SCALE);
+        assertThat(FixedPoint.toUnscaled(46813.21, 2)).isEqualTo(4_681_321);
+    }
+
+    @Test
+    void toUnscaledAndRescale_rejectPricesNotFittingScale() {
+        assertThatThrownBy(() -> FixedPoint.toUnscaled(9.3e10, 8))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+        assertThatThrownBy(() -> FixedPoint.toUnscaled(Double.POSITIVE_INFINITY, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FixedPoint.toUnscaled(4e-9, 8))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("below the smallest unit");
+        assertThatThrownBy(() -> FixedPoint.rescale(93_000_000_000L, 0, 8))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+        assertThat(FixedPoint.toUnscaled(6e-9, 8)).isEqualTo(1);
+        assertThat(FixedPoint.rescale(5_700_000_000L, 0, 8)).isEqualTo(570_000_000_000_000_000L);
+    }
+
+    @Test
+    void normalizedRange_matchesBigDecimalCalculation() {
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            var scale = random.nextInt(FixedPoint.MAX_SCALE + 1);
+            var min = 1 + (long) (random.nextDouble() * Math.pow(10, 1 + random.nextInt(15)));
+            var max = min + (long) (random.nextDouble() * min * random.nextInt(4));
+
+            var minPrice = BigDecimal.valueOf(FixedPoint.toDouble(min, scale));
+            var maxPrice = BigDecimal.valueOf(FixedPoint.toDouble(max, scale));
+            var expected = maxPrice.subtract(minPrice).divide(minPrice, RoundingMode.HALF_EVEN);
+
+            var resultScale = Math.max(FixedPoint.decimalScale(min, scale), FixedPoint.decimalScale(max, scale));
+            assertThat(FixedPoint.decimalScale(min, scale)).isEqualTo(minPrice.scale());
+            assertThat(resultScale).isEqualTo(expected.scale());
+            assertThat(FixedPoint.divide(max - min, min, resultScale)).isEqualTo(expected.unscaledValue().longValue());
+        }
+    }
+
+    @Test
+    void compare_comparesValuesOfDifferentScales() {
+        assertThat(FixedPoint.compare(5, 1, 50, 2)).isZero();
+        assertThat(FixedPoint.compare(5, 0, 49, 1)).isPositive();
+        assertThat(FixedPoint.compare(-5, 0, 1, 8)).isNegative();
+        assertThat(FixedPoint.compare(Long.MAX_VALUE, 8, Long.MAX_VALUE, 0)).isNegative();
+        assertThat(FixedPoint.compare(Long.MIN_VALUE, 8, Long.MIN_VALUE, 0)).isPositive();
+    }
+}
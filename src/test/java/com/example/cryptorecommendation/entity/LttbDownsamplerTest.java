@@ -0,0 +1,43 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LttbDownsamplerTest {
+
+    @Test
+    void downsample_keepsEndsAndSpikes() {
+        var series = new CryptoPriceSeries();
+        for (int i = 0; i < 10_000; i++) {
+            series.append(i * 60_000L, i == 1234 ? 500 : i == 6789 ? 1 : 100 + i % 7);
+        }
+
+        var downsampled = series.downsample(0, series.size(), 100);
+
+        assertThat(downsampled.timestamps()).hasSize(100);
+        assertThat(downsampled.timestamps()[0]).isZero();
+        assertThat(downsampled.timestamps()[99]).isEqualTo(9_999 * 60_000L);
+        assertThat(downsampled.timestamps()).isSorted().doesNotHaveDuplicates();
+        assertThat(downsampled.prices()).contains(500.0, 1.0);
+        for (int i = 0; i < 100; i++) {
+            assertThat(downsampled.prices()[i])
+                    .isEqualTo(series.getPrice((int) (downsampled.timestamps()[i] / 60_000L)));
+        }
+    }
+
+    @Test
+    void downsample_returnsSmallRangeAsIs() {
+        var series = new CryptoPriceSeries();
+        for (int i = 0; i < 10; i++) {
+            series.append(i, i * 2);
+        }
+
+        var downsampled = series.downsample(2, 7, 100);
+
+        assertThat(downsampled.timestamps()).containsExactly(2, 3, 4, 5, 6);
+        assertThat(downsampled.prices()).containsExactly(4, 6, 8, 10, 12);
+        assertThat(series.downsample(2, 7, 2).timestamps()).containsExactly(2, 6);
+        assertThat(series.downsample(7, 7, 100).timestamps()).isEmpty();
+    }
+}
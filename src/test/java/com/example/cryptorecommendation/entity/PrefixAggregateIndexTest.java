@@ -0,0 +1,68 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PrefixAggregateIndexTest {
+
+    private static final double MILLIS_PER_YEAR = 365 * 86_400_000.0;
+
+    @Test
+    void meanStandardDeviationAndVolatility_matchFullScanForRandomRanges() {
+        var random = new Random(42);
+        var series = new CryptoPriceSeries();
+        var ticks = CryptoPriceSeries.CHUNK_SIZE * 2 + 17;
+
+        var price = 30_000.0;
+        for (int i = 0; i < ticks; i++) {
+            price *= Math.exp(random.nextGaussian() * 0.01);
+            series.append(i * 60_000L, price);
+        }
+
+        for (int query = 0; query < 2_000; query++) {
+            var fromIndex = random.nextInt(ticks);
+            var toIndex = fromIndex + 1 + random.nextInt(ticks - fromIndex);
+            var count = toIndex - fromIndex;
+
+            var sum = 0.0;
+            var squaredReturnSum = 0.0;
+            for (int i = fromIndex; i < toIndex; i++) {
+                sum += series.getUnscaledPrice(i);
+                if (i > fromIndex) {
+                    var logReturn = Math.log((double) series.getUnscaledPrice(i) / series.getUnscaledPrice(i - 1));
+                    squaredReturnSum += logReturn * logReturn;
+                }
+            }
+            var mean = sum / count;
+            var squaredDeviationSum = 0.0;
+            for (int i = fromIndex; i < toIndex; i++) {
+                squaredDeviationSum += Math.pow(series.getUnscaledPrice(i) - mean, 2);
+            }
+            var spanMillis = series.getTimestamp(toIndex - 1) - series.getTimestamp(fromIndex);
+            var volatility = spanMillis == 0 ? 0 : Math.sqrt(squaredReturnSum * MILLIS_PER_YEAR / spanMillis);
+
+            assertThat(series.getMeanUnscaledPrice(fromIndex, toIndex)).isCloseTo(mean, within(mean * 1e-12));
+            assertThat(series.getUnscaledPriceStandardDeviation(fromIndex, toIndex))
+                    .isCloseTo(Math.sqrt(squaredDeviationSum / count), within(mean * 1e-9));
+            assertThat(series.getVolatility(fromIndex, toIndex)).isCloseTo(volatility, within(1e-9));
+        }
+    }
+
+    @Test
+    void volatility_isZeroForSingleTickAndAnnualizedByTimeSpan() {
+        var series = new CryptoPriceSeries(2);
+        series.append(0, 100);
+        series.append(86_400_000L, 110);
+        series.append(2 * 86_400_000L, 99);
+
+        var squaredReturnSum = Math.pow(Math.log(1.1), 2) + Math.pow(Math.log(0.9), 2);
+
+        assertThat(series.getVolatility(1, 2)).isZero();
+        assertThat(series.getVolatility(0, 3)).isCloseTo(Math.sqrt(squaredReturnSum * 365 / 2), within(1e-9));
+        assertThat(series.freeze().getVolatility(0, 3)).isEqualTo(series.getVolatility(0, 3));
+    }
+}
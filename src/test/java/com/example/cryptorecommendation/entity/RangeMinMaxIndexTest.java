@@ -0,0 +1,36 @@
+package com.example.cryptorecommendation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeMinMaxIndexTest {
+
+    @Test
+    void minMax_matchFullScanForRandomRanges() {
+        var random = new Random(42);
+        var series = new CryptoPriceSeries();
+        var ticks = RangeMinMaxIndex.BLOCK_SIZE * 40 + 17;
+
+        for (int i = 0; i < ticks; i++) {
+            series.append(i, random.nextDouble() * 1000);
+        }
+
+        for (int query = 0; query < 2_000; query++) {
+            var fromIndex = random.nextInt(ticks);
+            var toIndex = fromIndex + 1 + random.nextInt(ticks - fromIndex);
+
+            var min = Long.MAX_VALUE;
+            var max = Long.MIN_VALUE;
+            for (int i = fromIndex; i < toIndex; i++) {
+                min = Math.min(min, series.getUnscaledPrice(i));
+                max = Math.max(max, series.getUnscaledPrice(i));
+            }
+
+            assertThat(series.getMinUnscaledPrice(fromIndex, toIndex)).isEqualTo(min);
+            assertThat(series.getMaxUnscaledPrice(fromIndex, toIndex)).isEqualTo(max);
+        }
+    }
+}
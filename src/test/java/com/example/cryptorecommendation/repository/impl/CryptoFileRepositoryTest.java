@@ -0,0 +1,222 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.CandleInterval;
+import com.example.cryptorecommendation.entity.Crypto;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.atIndex;
+import static org.assertj.core.api.Assertions.within;
+
+class CryptoFileRepositoryTest {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    @TempDir
+    Path directory;
+
+    private final List<CryptoFileRepository> repositories = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        repositories.forEach(CryptoFileRepository::close);
+    }
+
+    @Test
+    void save_appendsNewTicksToSegmentsAndKeepsThemAfterReopen() throws IOException {
+        var cryptoRepository = openRepository();
+        var prices = createSeries(2, 5);
+        cryptoRepository.save(new Crypto("btc", prices));
+        prices.appendUnscaled(5_000, 500);
+        prices.appendUnscaled(6_000, 600);
+        cryptoRepository.save(new Crypto("BTC", prices));
+
+        var storedPrices = cryptoRepository.findBySymbol("BTC").getPrices();
+        assertThat(toTicks(storedPrices)).isEqualTo(toTicks(prices));
+        assertThat(storedPrices.getHistorySize()).isEqualTo(6);
+        try (var segmentFiles = Files.list(directory.resolve("BTC"))) {
+            assertThat(segmentFiles).hasSize(4);
+        }
+
+        var reopenedRepository = openRepository();
+        var reopenedPrices = reopenedRepository.findBySymbol("btc").getPrices();
+        assertThat(reopenedRepository.getAllCryptoSymbols()).containsExactly("BTC");
+        assertThat(reopenedPrices.getScale()).isEqualTo(2);
+        assertThat(toTicks(reopenedPrices)).isEqualTo(toTicks(prices));
+    }
+
+    @Test
+    void save_keepsSeriesReadFromRepositoryUntilSegmentFills() throws IOException {
+        var cryptoRepository = openRepository();
+        cryptoRepository.save(new Crypto("BTC", createSeries(2, 3)));
+        var prices = cryptoRepository.findBySymbol("BTC").getPrices();
+        prices.appendUnscaled(3_000, 300);
+        cryptoRepository.save(new Crypto("BTC", prices));
+
+        var rolledPrices = cryptoRepository.findBySymbol("BTC").getPrices();
+        assertThat(rolledPrices).isNotSameAs(prices);
+        assertThat(rolledPrices.getHistorySize()).isEqualTo(4);
+        rolledPrices.appendUnscaled(4_000, 400);
+        cryptoRepository.save(new Crypto("BTC", rolledPrices));
+
+        var storedPrices = cryptoRepository.findBySymbol("BTC").getPrices();
+        var tail = new CryptoPriceSeries(2);
+        tail.appendUnscaled(4_000, 400);
+        assertThat(storedPrices).isSameAs(rolledPrices);
+        assertThat(storedPrices.getMemoryBytes() - storedPrices.getHistory().getMemoryBytes())
+                .isEqualTo(tail.getMemoryBytes());
+        assertThat(toTicks(storedPrices)).isEqualTo(toTicks(createSeries(2, 5)));
+        assertThat(toTicks(openRepository().findBySymbol("BTC").getPrices())).isEqualTo(toTicks(createSeries(2, 5)));
+    }
+
+    @Test
+    void findBySymbol_answersRangeQueriesFromSegmentIndexesLikeSeriesInHeap() throws IOException {
+        var random = new Random(7);
+        var prices = new CryptoPriceSeries(4);
+        var price = 100.0;
+        var timestamp = 19_000 * DAY_MILLIS;
+        for (int i = 0; i < 3 * PriceSegmentIndex.BLOCK_SIZE + 1_000; i++) {
+            price *= Math.exp(random.nextGaussian() * 0.01);
+            timestamp += random.nextInt(3) == 0 ? 0 : random.nextInt(120_000);
+            prices.append(timestamp, price);
+        }
+        openRepository(5_000).save(new Crypto("BTC", prices));
+
+        var storedPrices = openRepository(5_000).findBySymbol("BTC").getPrices();
+
+        assertThat(storedPrices.getHistorySize()).isEqualTo(10_000);
+        assertThat(toTicks(storedPrices)).isEqualTo(toTicks(prices));
+        for (int query = 0; query < 1_000; query++) {
+            var fromIndex = query % 10 == 0 ? 0 : random.nextInt(prices.size());
+            var toIndex = query % 10 == 1 ? prices.size() : fromIndex + 1 + random.nextInt(prices.size() - fromIndex);
+            var mean = prices.getMeanUnscaledPrice(fromIndex, toIndex);
+
+            assertThat(storedPrices.getMinUnscaledPrice(fromIndex, toIndex))
+                    .isEqualTo(prices.getMinUnscaledPrice(fromIndex, toIndex));
+            assertThat(storedPrices.getMaxUnscaledPrice(fromIndex, toIndex))
+                    .isEqualTo(prices.getMaxUnscaledPrice(fromIndex, toIndex));
+            assertThat(storedPrices.getMeanUnscaledPrice(fromIndex, toIndex)).isCloseTo(mean, within(mean * 1e-11));
+            assertThat(storedPrices.getUnscaledPriceStandardDeviation(fromIndex, toIndex))
+                    .isCloseTo(prices.getUnscaledPriceStandardDeviation(fromIndex, toIndex), within(mean * 1e-7));
+            assertThat(storedPrices.getVolatility(fromIndex, toIndex))
+                    .isCloseTo(prices.getVolatility(fromIndex, toIndex), within(1e-7));
+            var queryTimestamp = prices.getTimestamp(fromIndex) + random.nextInt(3) - 1;
+            assertThat(storedPrices.firstIndexAtOrAfter(queryTimestamp))
+                    .isEqualTo(prices.firstIndexAtOrAfter(queryTimestamp));
+        }
+        for (var day = prices.getFirstTimestamp() / DAY_MILLIS; day <= prices.getLastTimestamp() / DAY_MILLIS; day++) {
+            assertThat(storedPrices.getDailyRollup(day)).isEqualTo(prices.getDailyRollup(day));
+        }
+        for (var interval : CandleInterval.values()) {
+            assertThat(storedPrices.getCandles(interval, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE))
+                    .isEqualTo(prices.getCandles(interval, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void save_rewritesTicksAfterFirstChangedTick() throws IOException {
+        var cryptoRepository = openRepository();
+        cryptoRepository.save(new Crypto("BTC", createSeries(2, 7)));
+        var newPrices = new CryptoPriceSeries(2);
+        newPrices.appendUnscaled(2_500, 250);
+        var mergedPrices = CryptoPriceSeries.merge(cryptoRepository.findBySymbol("BTC").getPrices(), newPrices);
+        cryptoRepository.save(new Crypto("BTC", mergedPrices));
+        cryptoRepository.save(new Crypto("ETH", createSeries(4, 2)));
+        cryptoRepository.save(new Crypto("ETH", createSeries(1, 1)));
+
+        var reopenedRepository = openRepository();
+        assertThat(toTicks(reopenedRepository.findBySymbol("BTC").getPrices())).isEqualTo(toTicks(mergedPrices));
+        assertThat(reopenedRepository.findBySymbol("ETH").getPrices().getScale()).isEqualTo(1);
+        assertThat(toTicks(reopenedRepository.findBySymbol("ETH").getPrices()))
+                .isEqualTo(toTicks(createSeries(1, 1)));
+        assertThat(reopenedRepository.getDataVersion()).isZero();
+        assertThat(cryptoRepository.getDataVersion()).isEqualTo(4);
+    }
+
+    @Test
+    void save_keepsFullSegmentsBeforeMergedTicks() throws IOException {
+        var cryptoRepository = openRepository();
+        cryptoRepository.save(new Crypto("BTC", createSeries(2, 7)));
+        var storedPrices = cryptoRepository.findBySymbol("BTC").getPrices();
+        var newPrices = new CryptoPriceSeries(2);
+        newPrices.appendUnscaled(4_500, 450);
+        var segmentFiles = listSegmentFiles();
+
+        var mergedPrices = CryptoPriceSeries.merge(storedPrices, newPrices);
+        cryptoRepository.save(new Crypto("BTC", mergedPrices));
+
+        assertThat(mergedPrices.getHistorySize()).isEqualTo(4);
+        assertThat(mergedPrices.getHistory().getPrefix(4)).isSameAs(mergedPrices.getHistory());
+        assertThat(storedPrices.getHistory().getPrefix(1)).isNull();
+        assertThat(listSegmentFiles()).startsWith(segmentFiles.get(0), segmentFiles.get(1))
+                .doesNotContain(segmentFiles.get(2));
+        assertThat(toTicks(openRepository().findBySymbol("BTC").getPrices())).isEqualTo(toTicks(mergedPrices));
+        assertThat(toTicks(mergedPrices)).contains("4500:450", atIndex(5));
+    }
+
+    @Test
+    void findBySymbol_readsSeriesFromSegmentsOnce() throws IOException {
+        var btcPrices = createSeries(2, 4);
+        openRepository().save(new Crypto("BTC", btcPrices));
+        var cryptoRepository = openRepository();
+
+        var storedPrices = cryptoRepository.findBySymbol("BTC").getPrices();
+
+        assertThat(storedPrices).isNotSameAs(btcPrices);
+        assertThat(toTicks(storedPrices)).isEqualTo(toTicks(btcPrices));
+        assertThat(cryptoRepository.findBySymbol("BTC").getPrices()).isSameAs(storedPrices);
+        assertThat(cryptoRepository.findBySymbol("DOGE")).isNull();
+    }
+
+    @Test
+    void save_rejectsSymbolWhichCannotBeDirectoryName() throws IOException {
+        var cryptoRepository = openRepository();
+
+        assertThatThrownBy(() -> cryptoRepository.save(new Crypto("../BTC", createSeries(2, 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CryptoFileRepository openRepository() throws IOException {
+        return openRepository(2);
+    }
+
+    private CryptoFileRepository openRepository(int segmentTicks) throws IOException {
+        var cryptoRepository = new CryptoFileRepository(directory.toString(), segmentTicks, new SimpleMeterRegistry());
+        repositories.add(cryptoRepository);
+        return cryptoRepository;
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (var segmentFiles = Files.list(directory.resolve("BTC"))) {
+            return segmentFiles.sorted().toList();
+        }
+    }
+
+    private static CryptoPriceSeries createSeries(int scale, int ticks) {
+        var prices = new CryptoPriceSeries(scale);
+        for (int i = 0; i < ticks; i++) {
+            prices.appendUnscaled(i * 1_000L, i * 100L);
+        }
+        return prices;
+    }
+
+    private static List<String> toTicks(CryptoPriceSeries prices) {
+        var ticks = new ArrayList<String>();
+        for (int i = 0; i < prices.size(); i++) {
+            ticks.add(prices.getTimestamp(i) + ":" + prices.getUnscaledPrice(i));
+        }
+        return ticks;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.cryptorecommendation.repository.impl;
+
+import com.example.cryptorecommendation.entity.CryptoStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoStatsTemporaryRepositoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CryptoStatsTemporaryRepository cryptoStatsRepository =
+            new CryptoStatsTemporaryRepository(100, meterRegistry);
+
+    @Test
+    void getCryptoStatsForRange_returnsStatsSavedForSameRange() {
+        var fromDate = LocalDateTime.of(2022, 1, 1, 0, 0);
+        var toDate = LocalDateTime.of(2022, 1, 2, 0, 0);
+        var rangeStats = new CryptoStats("BTC",
+                10, 20,
+                5, 30, 15, 5, 0.5, 0);
+        var allTimeStats = new CryptoStats("BTC",
+                1, 2,
+                1, 50, 25, 10, 0.8, 0);
+
+        cryptoStatsRepository.save(rangeStats, 1, fromDate, toDate);
+        cryptoStatsRepository.save(allTimeStats, 1, null, null);
+
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("btc", 1, fromDate, toDate)).isEqualTo(rangeStats);
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, null, null)).isEqualTo(allTimeStats);
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, fromDate, toDate.plusDays(1))).isNull();
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 2, fromDate, toDate)).isNull();
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("ETH", 1, null, null)).isNull();
+    }
+
+    @Test
+    void moveCryptoStatsNotOverlappingRange_movesOnlyRangesNotOverlapping() {
+        var stats = new CryptoStats("BTC",
+                10, 20,
+                5, 30, 15, 5, 0.5, 0);
+        var january = LocalDateTime.of(2022, 1, 1, 0, 0);
+        var february = LocalDateTime.of(2022, 2, 1, 0, 0);
+        var march = LocalDateTime.of(2022, 3, 1, 0, 0);
+
+        cryptoStatsRepository.save(stats, 1, january, february);
+        cryptoStatsRepository.save(stats, 1, february, march);
+        cryptoStatsRepository.save(stats, 1, null, null);
+
+        cryptoStatsRepository.moveCryptoStatsNotOverlappingRange("BTC", 1, 3, february, february.plusDays(1));
+
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 3, january, february)).isEqualTo(stats);
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 3, february, march)).isNull();
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 3, null, null)).isNull();
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, january, february)).isNull();
+    }
+
+    @Test
+    void moveCryptoStatsNotOverlappingRange_keepsStatsOfOtherCryptosAndVersions() {
+        var btcStats = new CryptoStats("BTC",
+                10, 20,
+                5, 30, 15, 5, 0.5, 0);
+        var ethStats = new CryptoStats("ETH",
+                1, 2,
+                1, 3, 2, 1, 0.1, 0);
+        var january = LocalDateTime.of(2022, 1, 1, 0, 0);
+        var february = LocalDateTime.of(2022, 2, 1, 0, 0);
+
+        cryptoStatsRepository.save(btcStats, 1, january, february);
+        cryptoStatsRepository.save(btcStats, 2, january, february);
+        cryptoStatsRepository.save(ethStats, 1, january, february);
+
+        cryptoStatsRepository.moveCryptoStatsNotOverlappingRange("BTC", 2, 3, february, february.plusDays(1));
+        cryptoStatsRepository.moveCryptoStatsNotOverlappingRange("BTC", 3, 4, february, february.plusDays(1));
+
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 4, january, february)).isEqualTo(btcStats);
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 3, january, february)).isNull();
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, january, february)).isEqualTo(btcStats);
+        assertThat(cryptoStatsRepository.getCryptoStatsForRange("ETH", 1, january, february)).isEqualTo(ethStats);
+    }
+
+    @Test
+    void getCryptoStatsForRange_recordsHitsAndMisses() {
+        var stats = new CryptoStats("BTC",
+                10, 20,
+                5, 30, 15, 5, 0.5, 0);
+        cryptoStatsRepository.save(stats, 1, null, null);
+
+        cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, null, null);
+        cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, null, null);
+        cryptoStatsRepository.getCryptoStatsForRange("BTC", 1,
+                LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 2, 0, 0));
+
+        assertThat(meterRegistry.get("cache.gets")
+                .tags("cache", CryptoStatsTemporaryRepository.CACHE_NAME, "result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets")
+                .tags("cache", CryptoStatsTemporaryRepository.CACHE_NAME, "result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}
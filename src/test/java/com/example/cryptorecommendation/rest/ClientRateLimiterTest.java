@@ -0,0 +1,71 @@
+package com.example.cryptorecommendation.rest;
+
+import com.example.cryptorecommendation.dto.CryptoStatsQueryDto;
+import com.example.cryptorecommendation.rest.exceptions.RateLimitExceeded;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ClientRateLimiter clientRateLimiter =
+            new ClientRateLimiter(10, Duration.ofSeconds(10), 1_000, 31, meterRegistry);
+
+    @Test
+    void getTokens_isProportionalToDateRange() {
+        assertThat(clientRateLimiter.getTokens(new CryptoStatsQueryDto("BTC", null, null))).isEqualTo(1);
+        assertThat(clientRateLimiter.getTokens(
+                new CryptoStatsQueryDto("BTC", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 2)))).isEqualTo(1);
+        assertThat(clientRateLimiter.getTokens(
+                new CryptoStatsQueryDto("BTC", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 3, 1)))).isEqualTo(2);
+        assertThat(clientRateLimiter.getTokens(
+                new CryptoStatsQueryDto("BTC", LocalDate.of(2022, 1, 1), LocalDate.of(2023, 1, 1)))).isEqualTo(12);
+    }
+
+    @Test
+    void consume_takesEndpointCostAndQueryTokensAtOnce() {
+        var fiveMonthQuery = new CryptoStatsQueryDto("BTC", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 6, 1));
+
+        assertThat(clientRateLimiter.consume("client-1", 2, List.of(fiveMonthQuery), 0)).isEqualTo(3);
+
+        assertThatThrownBy(() -> clientRateLimiter.consume("client-1", 2, List.of(fiveMonthQuery), 0))
+                .isInstanceOf(RateLimitExceeded.class);
+        assertThat(clientRateLimiter.consume("client-1", 3, 0)).isZero();
+        assertThat(clientRateLimiter.consume("client-2", 2, List.of(fiveMonthQuery), 0)).isEqualTo(3);
+        assertThat(meterRegistry.get("crypto.rate-limit.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void consume_refillsTokensOverPeriod() {
+        assertThat(clientRateLimiter.consume("client", 7, 0)).isEqualTo(3);
+        assertThat(clientRateLimiter.consume("client", 3, 0)).isZero();
+
+        assertThatThrownBy(() -> clientRateLimiter.consume("client", 2, SECOND))
+                .isInstanceOf(RateLimitExceeded.class)
+                .extracting("retryAfterSeconds").isEqualTo(1L);
+        assertThat(clientRateLimiter.consume("client", 2, 2 * SECOND)).isZero();
+        assertThat(clientRateLimiter.consume("client", 10, 100 * SECOND)).isZero();
+        assertThatThrownBy(() -> clientRateLimiter.consume("client", 11, 1_000 * SECOND))
+                .isInstanceOf(RateLimitExceeded.class);
+    }
+
+    @Test
+    void consume_keepsNumberOfClientsBounded() {
+        for (int i = 0; i < 10_000; i++) {
+            clientRateLimiter.consume("client-" + i, 1, 0);
+        }
+
+        assertThat(clientRateLimiter.getClientCount())
+                .isLessThanOrEqualTo(1_000 + ClientRateLimiter.STRIPES);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CryptoIngestServiceTest {
+
+    @Mock
+    private CryptoRecommendationService cryptoRecommendationService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private CryptoCluster cryptoCluster;
+
+    @Mock
+    private CryptoClusterService cryptoClusterService;
+
+    @InjectMocks
+    private CryptoIngestService cryptoIngestService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingestCsv_appendsSortedPricesPerCrypto() throws IOException {
+        var csv = """
+                timestamp,symbol,price
+                1641020400000,BTC,46979.61
+                1641009600000,eth,3715.32\r
+                1641009600000,BTC,46813.21
+                1641016800000,ETH,3718.67""";
+
+        var result = cryptoIngestService.ingestCsv(toInputStream(csv), false);
+
+        assertThat(result.getIngestedPrices()).isEqualTo(4);
+        assertThat(result.getCryptos()).containsExactly("BTC", "ETH");
+
+        var appendedPrices = ArgumentCaptor.forClass(Map.class);
+        verify(cryptoRecommendationService).appendCryptos(appendedPrices.capture());
+        assertThat(appendedPrices.getValue()).containsOnlyKeys("BTC", "ETH");
+        var btcPrices = (CryptoPriceSeries) appendedPrices.getValue().get("BTC");
+        var ethPrices = (CryptoPriceSeries) appendedPrices.getValue().get("ETH");
+        assertThat(btcPrices.getTimestamp(0)).isEqualTo(1641009600000L);
+        assertThat(btcPrices.getPrice(1)).isEqualTo(46979.61);
+        assertThat(ethPrices.size()).isEqualTo(2);
+        assertThat(ethPrices.getPrice(0)).isEqualTo(3715.32);
+    }
+
+    @Test
+    void ingestCsv_appendsPricesInBatches() throws IOException {
+        var csv = new StringBuilder();
+        for (int i = 0; i < CryptoIngestService.BATCH_SIZE + 1; i++) {
+            csv.append(1641009600000L + i).append(",BTC,").append(i + 1).append('\n');
+        }
+
+        var result = cryptoIngestService.ingestCsv(toInputStream(csv.toString()), false);
+
+        assertThat(result.getIngestedPrices()).isEqualTo(CryptoIngestService.BATCH_SIZE + 1);
+        verify(cryptoRecommendationService, times(2)).appendCryptos(argThat(prices -> prices.containsKey("BTC")));
+    }
+
+    @Test
+    void ingestCsv_keepsBatchesStoredBeforeInvalidRow() {
+        var csv = new StringBuilder();
+        for (int i = 0; i < CryptoIngestService.BATCH_SIZE + 1; i++) {
+            csv.append(1641009600000L + i).append(",BTC,").append(i + 1).append('\n');
+        }
+        csv.append("1641009600000,BTC,-1\n");
+
+        assertThatThrownBy(() -> cryptoIngestService.ingestCsv(toInputStream(csv.toString()), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must be positive")
+                .hasMessageContaining(CryptoIngestService.BATCH_SIZE + " prices of earlier batches stay stored");
+        verify(cryptoRecommendationService)
+                .appendCryptos(argThat(prices -> prices.get("BTC").size() == CryptoIngestService.BATCH_SIZE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingestCsv_forwardsPricesOfCryptosOwnedByOtherNodes() throws IOException {
+        when(cryptoCluster.isOwned("BTC")).thenReturn(true);
+        when(cryptoCluster.isOwned("ETH")).thenReturn(false);
+        var csv = """
+                1641009600000,BTC,46813.21
+                1641009600000,ETH,3715.32
+                1641016800000,ETH,3718.67""";
+
+        var result = cryptoIngestService.ingestCsv(toInputStream(csv), true);
+
+        assertThat(result.getCryptos()).containsExactly("BTC", "ETH");
+        verify(cryptoRecommendationService).appendCryptos(argThat(prices -> prices.keySet().equals(Set.of("BTC"))));
+        var forwardedPrices = ArgumentCaptor.forClass(Map.class);
+        verify(cryptoClusterService).forwardPrices(forwardedPrices.capture());
+        assertThat(forwardedPrices.getValue()).containsOnlyKeys("ETH");
+        assertThat(((CryptoPriceSeries) forwardedPrices.getValue().get("ETH")).size()).isEqualTo(2);
+    }
+
+    @Test
+    void ingestNdjson_appendsPricesPerCrypto() throws IOException {
+        var ndjson = """
+                {"timestamp":1641009600000,"symbol":"BTC","price":46813.21}
+                {"timestamp":1641009600000,"symbol":"ETH","price":3715.32}
+                """;
+
+        var result = cryptoIngestService.ingestNdjson(toInputStream(ndjson), false);
+
+        assertThat(result.getIngestedPrices()).isEqualTo(2);
+        verify(cryptoRecommendationService)
+                .appendCryptos(argThat(prices -> prices.keySet().equals(Set.of("BTC", "ETH"))));
+    }
+
+    @Test
+    void ingestNdjson_throwsIllegalArgumentForInvalidPrice() {
+        var ndjson = """
+                {"timestamp":1641009600000,"symbol":"BTC","price":"high"}
+                """;
+
+        assertThatThrownBy(() -> cryptoIngestService.ingestNdjson(toInputStream(ndjson), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid crypto price");
+    }
+
+    @Test
+    void ingestNdjson_throwsIllegalArgumentForMissingPrice() {
+        var ndjson = """
+                {"timestamp":1641009600000,"symbol":"BTC"}
+                """;
+
+        assertThatThrownBy(() -> cryptoIngestService.ingestNdjson(toInputStream(ndjson), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must have timestamp, symbol and price");
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    @Test
+    void ingestCsv_throwsIllegalArgumentForNonPositivePriceOrTimestampOutOfRange() {
+        assertThatThrownBy(() -> cryptoIngestService.ingestCsv(toInputStream("1641009600000,BTC,0"), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must be positive");
+        assertThatThrownBy(() -> cryptoIngestService.ingestCsv(toInputStream("0,BTC,46813.21"), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("out of range");
+        assertThatThrownBy(() -> cryptoIngestService.ingestCsv(toInputStream("99999999999999,BTC,46813.21"), false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("out of range");
+        verifyNoInteractions(cryptoRecommendationService);
+    }
+
+    private static ByteArrayInputStream toInputStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
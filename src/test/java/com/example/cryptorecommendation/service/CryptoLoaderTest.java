@@ -2,13 +2,25 @@ package com.example.cryptorecommendation.service;
 
 
 import com.example.cryptorecommendation.entity.CryptoPrice;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +30,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 @ExtendWith(MockitoExtension.class)
 class CryptoLoaderTest {
 
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+
+    @Spy
+    private CryptoCluster cryptoCluster =
+            new CryptoCluster(false, List.of(), "", 128, "", Duration.ofSeconds(2), new ObjectMapper());
+
     @InjectMocks
     private CryptoLoader cryptoLoader;
 
@@ -42,7 +61,74 @@ class CryptoLoaderTest {
 
         assertThat(loadedPrices).containsKey("BTC").containsKey("ETH");
 
-        assertThat(loadedPrices.get("BTC")).containsExactlyInAnyOrderElementsOf(cryptoPrices.get("BTC"));
-        assertThat(loadedPrices.get("ETH")).containsExactlyInAnyOrderElementsOf(cryptoPrices.get("ETH"));
+        assertThat(toCryptoPrices(loadedPrices.get("BTC"))).containsExactlyElementsOf(cryptoPrices.get("BTC"));
+        assertThat(toCryptoPrices(loadedPrices.get("ETH"))).containsExactlyElementsOf(cryptoPrices.get("ETH"));
+        assertThat(meterRegistry.get("crypto.loader.rows").tag("type", "full").counter().count()).isEqualTo(8);
+        assertThat(meterRegistry.get("crypto.loader.duration").tag("type", "full").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadCryptoPricesFromCsvFile_sortsRowsAndParsesSameAsParseDouble(@TempDir Path directory) throws IOException {
+        var csvFile = directory.resolve("XRP_values.csv");
+        Files.writeString(csvFile, """
+                timestamp,symbol,price\r
+                1641070800000,XRP,0.8458\r
+                1640995200000,XRP,0.8298\r
+
+                1641016800000,XRP,0.842""");
+
+        var prices = cryptoLoader.loadCryptoPricesFromCsvFile(csvFile.toString());
+
+        assertThat(prices.size()).isEqualTo(3);
+        assertThat(prices.getTimestamp(0)).isEqualTo(1640995200000L);
+        assertThat(prices.getTimestamp(1)).isEqualTo(1641016800000L);
+        assertThat(prices.getTimestamp(2)).isEqualTo(1641070800000L);
+        assertThat(prices.getPrice(0)).isEqualTo(Double.parseDouble("0.8298"));
+        assertThat(prices.getPrice(1)).isEqualTo(Double.parseDouble("0.842"));
+        assertThat(prices.getPrice(2)).isEqualTo(Double.parseDouble("0.8458"));
+    }
+
+    @Test
+    void loadNewCryptoDataFromDirectory_readsOnlyAppendedCompleteRows(@TempDir Path directory) throws IOException {
+        var csvFile = directory.resolve("BTC_values.csv");
+        Files.writeString(csvFile, """
+                timestamp,symbol,price
+                1641009600000,BTC,46813.21
+                """);
+        cryptoLoader.loadCryptoDataFromDirectory(directory.toString());
+
+        Files.writeString(csvFile, """
+                1641020400000,BTC,46979.61
+                1642849200000,BTC,354""", StandardOpenOption.APPEND);
+        Files.writeString(directory.resolve("ETH_values.csv"), """
+                timestamp,symbol,price
+                1641024000000,ETH,3715.32
+                """);
+
+        var newPrices = cryptoLoader.loadNewCryptoDataFromDirectory(directory.toString());
+
+        assertThat(newPrices).containsOnlyKeys("BTC", "ETH");
+        assertThat(newPrices.get("BTC").size()).isEqualTo(1);
+        assertThat(newPrices.get("BTC").getTimestamp(0)).isEqualTo(1641020400000L);
+        assertThat(newPrices.get("ETH").size()).isEqualTo(1);
+
+        Files.writeString(csvFile, "88.54\n", StandardOpenOption.APPEND);
+
+        newPrices = cryptoLoader.loadNewCryptoDataFromDirectory(directory.toString());
+
+        assertThat(newPrices).containsOnlyKeys("BTC");
+        assertThat(newPrices.get("BTC").getTimestamp(0)).isEqualTo(1642849200000L);
+        assertThat(newPrices.get("BTC").getPrice(0)).isEqualTo(35488.54);
+        assertThat(cryptoLoader.loadNewCryptoDataFromDirectory(directory.toString())).isEmpty();
+    }
+
+    private List<CryptoPrice> toCryptoPrices(CryptoPriceSeries series) {
+        var prices = new ArrayList<CryptoPrice>();
+        for (int i = 0; i < series.size(); i++) {
+            prices.add(new CryptoPrice(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(series.getTimestamp(i)), ZoneOffset.UTC),
+                    BigDecimal.valueOf(series.getPrice(i))));
+        }
+        return prices;
     }
-}
\ No newline at end of file
+}
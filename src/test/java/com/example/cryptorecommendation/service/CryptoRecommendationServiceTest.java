@@ -1,13 +1,20 @@
 package com.example.cryptorecommendation.service;
 
+import com.example.cryptorecommendation.dto.CryptoNormalizedRangeDto;
+import com.example.cryptorecommendation.dto.CryptoStatsDto;
+import com.example.cryptorecommendation.dto.CryptoStatsQueryDto;
 import com.example.cryptorecommendation.entity.Crypto;
+import com.example.cryptorecommendation.entity.CryptoNormalizedRange;
 import com.example.cryptorecommendation.entity.CryptoPrice;
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
 import com.example.cryptorecommendation.entity.CryptoStats;
 import com.example.cryptorecommendation.mapper.CryptoMapper;
 import com.example.cryptorecommendation.mapper.CryptoMapperImpl;
 import com.example.cryptorecommendation.repository.CryptoRepository;
 import com.example.cryptorecommendation.repository.CryptoStatsRepository;
+import com.example.cryptorecommendation.repository.impl.CryptoTemporaryRepository;
 import com.example.cryptorecommendation.rest.exceptions.CryptoNotSupported;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -17,7 +24,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -27,8 +38,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CryptoRecommendationServiceTest {
 
-    @Mock
-    private CryptoRepository cryptoRepository;
+    @Spy
+    private CryptoRepository cryptoRepository = new CryptoTemporaryRepository(new SimpleMeterRegistry());
 
     @Mock
     private CryptoStatsRepository cryptoStatsRepository;
@@ -36,6 +47,12 @@ class CryptoRecommendationServiceTest {
     @Spy
     private CryptoMapper cryptoMapper = new CryptoMapperImpl();
 
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+    @Spy
+    private CryptoEpochs cryptoEpochs = new CryptoEpochs();
+
     @InjectMocks
     private CryptoRecommendationService cryptoService;
 
@@ -59,35 +76,185 @@ class CryptoRecommendationServiceTest {
                 new CryptoPrice(
                         LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(33.33)));
 
-        Mockito.doReturn(new Crypto(cryptoSymbol, sortedPrices)).when(cryptoRepository).findBySymbol(cryptoSymbol);
         cryptoService.saveCrypto(cryptoSymbol, prices);
 
         ArgumentCaptor<Crypto> argumentCaptor = ArgumentCaptor.forClass(Crypto.class);
         verify(cryptoRepository).save(argumentCaptor.capture());
 
         assertThat(argumentCaptor.getValue().getSymbol()).isEqualTo(cryptoSymbol);
-        assertThat(argumentCaptor.getValue().getPrices())
+        assertThat(toCryptoPrices(argumentCaptor.getValue().getPrices()))
+                .containsExactlyElementsOf(sortedPrices);
+        assertThat(toCryptoPrices(cryptoEpochs.current().get(cryptoSymbol).prices()))
                 .containsExactlyElementsOf(sortedPrices);
     }
 
+    @Test
+    void saveCrypto_publishesPricesReadBackFromRepository() {
+        var storedPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(22.22))));
+        Mockito.doNothing().when(cryptoRepository).save(Mockito.any());
+        Mockito.doReturn(new Crypto("BTC", storedPrices)).when(cryptoRepository).findBySymbol("BTC");
+
+        cryptoService.saveCrypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)))));
+
+        assertThat(toCryptoPrices(cryptoEpochs.current().get("BTC").prices()))
+                .containsExactlyElementsOf(toCryptoPrices(storedPrices));
+    }
+
     @Test
     void saveCrypto_throwsIllegalArgumentForEmptySymbol() {
-        assertThatThrownBy(() -> cryptoService.saveCrypto("", null))
+        assertThatThrownBy(() -> cryptoService.saveCrypto("", (List<CryptoPrice>) null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Crypto symbol cannot be empty.");
     }
 
     @Test
     void saveCrypto_throwsIllegalArgumentForEmptyPrices() {
-        assertThatThrownBy(() -> cryptoService.saveCrypto("BTC", null))
+        assertThatThrownBy(() -> cryptoService.saveCrypto("BTC", (List<CryptoPrice>) null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Crypto price list cannot be empty.");
     }
 
 
+    @Test
+    void saveCrypto_throwsIllegalArgumentForEmptySeries() {
+        assertThatThrownBy(() -> cryptoService.saveCrypto("BTC", new CryptoPriceSeries()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Crypto price list cannot be empty.");
+    }
+
+    @Test
+    void appendCrypto_appendsNewerPricesInPlaceAndMovesNotOverlappingStats() {
+        var prices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(22.22))));
+        var newPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(33.33)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 4, 0, 0), BigDecimal.valueOf(44.44))));
+
+        cryptoService.saveCrypto("BTC", prices);
+
+        cryptoService.appendCrypto("BTC", newPrices);
+
+        assertThat(toCryptoPrices(prices)).extracting(CryptoPrice::getPrice).containsExactly(
+                BigDecimal.valueOf(11.11), BigDecimal.valueOf(22.22),
+                BigDecimal.valueOf(33.33), BigDecimal.valueOf(44.44));
+        verify(cryptoStatsRepository).moveCryptoStatsNotOverlappingRange("BTC", 1, 2,
+                LocalDateTime.of(2022, 1, 3, 0, 0), LocalDateTime.of(2022, 1, 4, 0, 0));
+        assertThat(cryptoService.getCryptoStats("BTC", null, null)).isEqualTo(new CryptoStats("BTC",
+                1111, 4444,
+                1111, 4444, 2778, 1242, prices.getVolatility(0, 4), 2));
+    }
+
+    @Test
+    void appendCrypto_isNotVisibleToReadersOfPreviousEpoch() {
+        var prices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(22.22))));
+        var newPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(33.33))));
+
+        cryptoService.saveCrypto("BTC", prices);
+        var previousEpoch = cryptoEpochs.current();
+
+        cryptoService.appendCrypto("BTC", newPrices);
+
+        var previousCrypto = previousEpoch.get("BTC");
+        assertThat(previousCrypto.prices().size()).isEqualTo(2);
+        assertThat(previousCrypto.prices().getLastTimestamp()).isEqualTo(toEpochMilli(2022, 1, 2));
+        assertThat(previousCrypto.allTimeStats().getMax()).isEqualTo(2222);
+        assertThat(cryptoEpochs.current().get("BTC").prices().size()).isEqualTo(3);
+        assertThat(cryptoService.getCryptoStats("BTC", null, null).getMax()).isEqualTo(3333);
+    }
+
+    @Test
+    void appendCrypto_rejectsPricesNotFittingStoredScaleBeforeAppending() {
+        var prices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(0.12345678))));
+        var newPrices = new CryptoPriceSeries(0);
+        newPrices.append(toEpochMilli(2022, 1, 2), 1);
+        newPrices.append(toEpochMilli(2022, 1, 3), 1e10);
+
+        cryptoService.saveCrypto("BTC", prices);
+
+        assertThatThrownBy(() -> cryptoService.appendCrypto("BTC", newPrices))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+        assertThat(prices.size()).isEqualTo(1);
+    }
+
+    @Test
+    void appendCrypto_mergesOlderPrices() {
+        var prices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(33.33))));
+        var newPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(22.22))));
+
+        cryptoService.saveCrypto("BTC", prices);
+
+        cryptoService.appendCrypto("BTC", newPrices);
+
+        ArgumentCaptor<Crypto> argumentCaptor = ArgumentCaptor.forClass(Crypto.class);
+        verify(cryptoRepository, Mockito.times(2)).save(argumentCaptor.capture());
+        assertThat(toCryptoPrices(argumentCaptor.getValue().getPrices())).extracting(CryptoPrice::getPrice)
+                .containsExactly(BigDecimal.valueOf(11.11), BigDecimal.valueOf(22.22), BigDecimal.valueOf(33.33));
+        verify(cryptoStatsRepository).moveCryptoStatsNotOverlappingRange("BTC", 1, 2,
+                LocalDateTime.of(2022, 1, 2, 0, 0), LocalDateTime.of(2022, 1, 2, 0, 0));
+    }
+
+    @Test
+    void appendCryptos_publishesOneEpochWithAllCryptosAndTheirDailyLeaders() {
+        cryptoService.saveCrypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(10)))));
+        cryptoService.saveCrypto("ETH", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(10)))));
+        var btcPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(10)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 1, 0), BigDecimal.valueOf(12))));
+        var ethPrices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 0, 0), BigDecimal.valueOf(10)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 3, 1, 0), BigDecimal.valueOf(15))));
+
+        cryptoService.appendCryptos(Map.of("BTC", btcPrices, "ETH", ethPrices));
+
+        verify(cryptoEpochs, Mockito.times(3)).publish(Mockito.any());
+        var epoch = cryptoEpochs.current();
+        assertThat(epoch.version()).isEqualTo(3);
+        assertThat(epoch.get("BTC").version()).isEqualTo(3);
+        assertThat(epoch.get("ETH").version()).isEqualTo(3);
+        assertThat(epoch.get("BTC").prices().size()).isEqualTo(3);
+        assertThat(epoch.get("ETH").prices().size()).isEqualTo(3);
+        assertThat(epoch.getDailyLeader(LocalDate.of(2022, 1, 3)).getSymbol()).isEqualTo("ETH");
+        verify(cryptoStatsRepository).moveCryptoStatsNotOverlappingRange("BTC", 1, 3,
+                LocalDateTime.of(2022, 1, 3, 0, 0), LocalDateTime.of(2022, 1, 3, 1, 0));
+        verify(cryptoStatsRepository).moveCryptoStatsNotOverlappingRange("ETH", 2, 3,
+                LocalDateTime.of(2022, 1, 3, 0, 0), LocalDateTime.of(2022, 1, 3, 1, 0));
+    }
+
+    @Test
+    void appendCryptos_publishesCryptosStoredBeforeFailedOne() {
+        cryptoService.saveCrypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(0.12345678)))));
+        var invalidPrices = new CryptoPriceSeries(0);
+        invalidPrices.append(toEpochMilli(2022, 1, 2), 1e10);
+        var newPrices = new LinkedHashMap<String, CryptoPriceSeries>();
+        newPrices.put("ETH", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(22.22)))));
+        newPrices.put("BTC", invalidPrices);
+
+        assertThatThrownBy(() -> cryptoService.appendCryptos(newPrices))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+        assertThat(cryptoEpochs.current().get("ETH").prices().size()).isEqualTo(1);
+        assertThat(cryptoEpochs.current().get("BTC").prices().size()).isEqualTo(1);
+    }
+
     @Test
     void getCryptoStats_calculatesCorrectStatsAndSavesThem() {
-        var crypto = new Crypto("BTC", List.of(
+        var crypto = new Crypto("BTC", CryptoPriceSeries.fromPrices(List.of(
                 new CryptoPrice(
                         LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
                 new CryptoPrice(
@@ -96,13 +263,13 @@ class CryptoRecommendationServiceTest {
                         LocalDateTime.of(2022, 1, 11, 0, 0), BigDecimal.valueOf(44.44)),
                 new CryptoPrice(
                         LocalDateTime.of(2022, 2, 1, 0, 0), BigDecimal.valueOf(55.44)))
-                );
+                ));
 
-        var cryptoStats = new CryptoStats( "BTC",
-                BigDecimal.valueOf(11.11), BigDecimal.valueOf(44.44),
-                BigDecimal.valueOf(11.11), BigDecimal.valueOf(44.44));
+        var cryptoStats = new CryptoStats("BTC",
+                1111, 4444,
+                1111, 4444, 2963, 1386, crypto.getPrices().getVolatility(0, 3), 2);
 
-        when(cryptoRepository.findBySymbol("BTC")).thenReturn(crypto);
+        cryptoService.saveCrypto(crypto.getSymbol(), crypto.getPrices());
 
         assertThat(cryptoService.getCryptoStats(
                 "BTC",
@@ -110,25 +277,25 @@ class CryptoRecommendationServiceTest {
                 LocalDateTime.of(2022, 1, 12, 0, 0)))
                 .isEqualTo(cryptoStats);
 
-        verify(cryptoStatsRepository).save(cryptoStats,
+        verify(cryptoStatsRepository).save(cryptoStats, 1,
                 LocalDateTime.of(2022, 1, 1, 0, 0),
                 LocalDateTime.of(2022, 1, 12, 0, 0));
     }
 
     @Test
     void getSpecificCryptoStats_returnCorrectStatsForDatesWithNoData() {
-        var crypto = new Crypto("BTC", List.of(
+        var crypto = new Crypto("BTC", CryptoPriceSeries.fromPrices(List.of(
                 new CryptoPrice(
                         LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
                 new CryptoPrice(
                         LocalDateTime.of(2022, 1, 10, 0, 0), BigDecimal.valueOf(33.33)))
-        );
+        ));
 
-        var cryptoStats = new CryptoStats( "BTC",
-                BigDecimal.ZERO, BigDecimal.ZERO,
-                BigDecimal.ZERO, BigDecimal.ZERO);
+        var cryptoStats = new CryptoStats("BTC",
+                0, 0,
+                0, 0, 0, 0, 0, 0);
 
-        when(cryptoRepository.findBySymbol("BTC")).thenReturn(crypto);
+        cryptoService.saveCrypto(crypto.getSymbol(), crypto.getPrices());
 
         assertThat(cryptoService.getSpecificCryptoStats(
                 "BTC",
@@ -136,24 +303,119 @@ class CryptoRecommendationServiceTest {
                 LocalDate.of(2022, 2, 12)))
                 .isEqualTo(cryptoMapper.mapCryptoStatsToDto(cryptoStats));
 
-        verify(cryptoStatsRepository).save(cryptoStats,
+        verify(cryptoStatsRepository).save(cryptoStats, 1,
                 LocalDateTime.of(2022, 2, 1, 0, 0),
                 LocalDateTime.of(2022, 2, 12, 0, 0));
     }
 
     @Test
-    void getCryptoStats_returnsStatsFromRepository() {
-        var cryptoStats = new CryptoStats( "BTC",
-                BigDecimal.valueOf(11.11), BigDecimal.valueOf(44.44),
-                BigDecimal.valueOf(11.11), BigDecimal.valueOf(44.44));
-
-        when(cryptoStatsRepository.getCryptoStatsForRange("BTC", null,null))
+    void getCryptoStats_returnsStatsFromRepositoryForVersionOfCrypto() {
+        var fromDate = LocalDateTime.of(2022, 1, 1, 0, 0);
+        var toDate = LocalDateTime.of(2022, 1, 2, 0, 0);
+        var cryptoStats = new CryptoStats("BTC",
+                1111, 4444,
+                1111, 4444, 2778, 1242, 9.4, 2);
+
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 22.22);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 11.11);
+        when(cryptoStatsRepository.getCryptoStatsForRange("BTC", 2, fromDate, toDate))
                 .thenReturn(cryptoStats);
 
-        assertThat(cryptoService.getCryptoStats("BTC", null, null))
+        assertThat(cryptoService.getCryptoStats("BTC", fromDate, toDate))
                 .isEqualTo(cryptoStats);
     }
 
+    @Test
+    void getCryptoStatsBatch_returnsStatsInQueryOrder() {
+        var btc = new Crypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(33.33)))));
+        var eth = new Crypto("ETH", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(2.22)))));
+
+        cryptoService.saveCrypto(btc.getSymbol(), btc.getPrices());
+        cryptoService.saveCrypto(eth.getSymbol(), eth.getPrices());
+
+        var cryptoStats = cryptoService.getCryptoStatsBatch(List.of(
+                new CryptoStatsQueryDto("btc", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 2)),
+                new CryptoStatsQueryDto("ETH", null, null),
+                new CryptoStatsQueryDto("BTC", null, null)));
+
+        assertThat(cryptoStats).extracting(CryptoStatsDto::getSymbol).containsExactly("BTC", "ETH", "BTC");
+        assertThat(cryptoStats.get(0).getMax()).isEqualByComparingTo("11.11");
+        assertThat(cryptoStats.get(1).getMax()).isEqualByComparingTo("2.22");
+        assertThat(cryptoStats.get(2).getMax()).isEqualByComparingTo("33.33");
+    }
+
+    @Test
+    void getCryptoStatsBatch_throwsUnsupportedCrypto() {
+        var queries = List.of(new CryptoStatsQueryDto("BTC", null, null));
+
+        assertThatThrownBy(() -> cryptoService.getCryptoStatsBatch(queries))
+                .isInstanceOf(CryptoNotSupported.class);
+    }
+
+    @Test
+    void getCryptoStatsForTimeRange_returnsStatsOfSubDayRange() {
+        var crypto = new Crypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 9, 0), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 10, 0), BigDecimal.valueOf(22.22)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 10, 30), BigDecimal.valueOf(5.55)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 11, 0), BigDecimal.valueOf(33.33)))));
+
+        cryptoService.saveCrypto(crypto.getSymbol(), crypto.getPrices());
+
+        var cryptoStats = cryptoService.getCryptoStatsForTimeRange("BTC",
+                LocalDateTime.of(2022, 1, 1, 10, 0), LocalDateTime.of(2022, 1, 1, 11, 0));
+
+        assertThat(cryptoStats.getOldest()).isEqualByComparingTo("22.22");
+        assertThat(cryptoStats.getNewest()).isEqualByComparingTo("5.55");
+        assertThat(cryptoStats.getMin()).isEqualByComparingTo("5.55");
+        assertThat(cryptoStats.getMax()).isEqualByComparingTo("22.22");
+        assertThat(cryptoStats.getAverage()).isEqualByComparingTo("13.89");
+        assertThat(cryptoStats.getStandardDeviation()).isEqualByComparingTo("8.34");
+        assertThat(cryptoStats.getPriceReturn()).isEqualByComparingTo("-0.750225");
+        assertThat(cryptoStats.getVolatility()).isPositive();
+    }
+
+    @Test
+    void getCryptoStatsForTimeRange_requiresBothEnds() {
+        assertThatThrownBy(() -> cryptoService.getCryptoStatsForTimeRange("BTC",
+                LocalDateTime.of(2022, 1, 1, 10, 0), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void getCandles_returnsCandlesOfInterval() {
+        var crypto = new Crypto("BTC", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 9, 10), BigDecimal.valueOf(11.11)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 9, 50), BigDecimal.valueOf(22.22)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 10, 30), BigDecimal.valueOf(5.55)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 11, 0), BigDecimal.valueOf(33.33)))));
+
+        cryptoService.saveCrypto(crypto.getSymbol(), crypto.getPrices());
+
+        var candles = cryptoService.getCandles("BTC", "1h",
+                LocalDateTime.of(2022, 1, 1, 9, 30), LocalDateTime.of(2022, 1, 2, 0, 0), 10);
+
+        assertThat(candles.getSymbol()).isEqualTo("BTC");
+        assertThat(candles.getInterval()).isEqualTo("1h");
+        assertThat(candles.getCandles()).hasSize(2);
+        assertThat(candles.getCandles().get(0).getOpenTime()).isEqualTo(LocalDateTime.of(2022, 1, 1, 9, 0));
+        assertThat(candles.getCandles().get(0).getOpen()).isEqualByComparingTo("11.11");
+        assertThat(candles.getCandles().get(0).getClose()).isEqualByComparingTo("22.22");
+        assertThat(candles.getCandles().get(0).getCount()).isEqualTo(2);
+        assertThat(candles.getCandles().get(1).getOpenTime()).isEqualTo(LocalDateTime.of(2022, 1, 1, 10, 0));
+        assertThat(candles.getCandles().get(1).getMin()).isEqualByComparingTo("5.55");
+    }
+
+    @Test
+    void getCandles_rejectsUnsupportedInterval() {
+        assertThatThrownBy(() -> cryptoService.getCandles("BTC", "2h", null, null, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("2h");
+    }
+
     @Test
     void getSpecificCryptoStats_throwsUnsupportedCrypto() {
         assertThatThrownBy(() -> cryptoService.getSpecificCryptoStats("BTC", null, null))
@@ -163,21 +425,8 @@ class CryptoRecommendationServiceTest {
 
     @Test
     void getNormalizedCryptosListDescending_returnsCorrectResults() {
-        var cryptoSymbols = List.of("BTC", "ETH");
-
-        var btcStats = new CryptoStats("BTC",
-                BigDecimal.valueOf(10), BigDecimal.valueOf(20),
-                BigDecimal.valueOf(5), BigDecimal.valueOf(30));
-
-        var ethStats = new CryptoStats("ETH",
-                BigDecimal.valueOf(20), BigDecimal.valueOf(30),
-                BigDecimal.valueOf(10), BigDecimal.valueOf(50));
-
-        when(cryptoRepository.getAllCryptoSymbols()).thenReturn(cryptoSymbols);
-        when(cryptoStatsRepository.getCryptoStatsForRange("BTC", null, null))
-                .thenReturn(btcStats);
-        when(cryptoStatsRepository.getCryptoStatsForRange("ETH",null, null))
-                .thenReturn(ethStats);
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 50);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 5, 30);
 
         var normalizedCryptosListDescendingDto =
                 cryptoService.getNormalizedCryptosListDescending(null, null);
@@ -188,25 +437,78 @@ class CryptoRecommendationServiceTest {
         assertThat(cryptoList.get(0).getSymbol()).isEqualTo("BTC");
         assertThat(cryptoList.get(1).getSymbol()).isEqualTo("ETH");
 
-        assertThat(cryptoList.get(0).getNormalizedPrice()).isEqualTo(BigDecimal.valueOf(5));
-        assertThat(cryptoList.get(1).getNormalizedPrice()).isEqualTo(BigDecimal.valueOf(4));
+        assertThat(cryptoList.get(0).getNormalizedPrice()).isEqualByComparingTo("5");
+        assertThat(cryptoList.get(1).getNormalizedPrice()).isEqualByComparingTo("4");
+    }
+
+    @Test
+    void getNormalizedCryptosListDescending_returnsPageOfTopCryptos() {
+        var dateFrom = LocalDate.of(2022, 1, 1);
+        var dateTo = LocalDate.of(2022, 1, 2);
+        var fromDate = LocalDateTime.of(dateFrom, LocalTime.MIN);
+        var toDate = LocalDateTime.of(dateTo, LocalTime.MIN);
+
+        for (var cryptoSymbol : List.of("BTC", "ETH", "LTC", "XRP")) {
+            saveCrypto(cryptoSymbol, fromDate, 1);
+        }
+        when(cryptoStatsRepository.getCryptoStatsForRange("BTC", 1, fromDate, toDate)).thenReturn(new CryptoStats("BTC",
+                1, 1, 10, 20, 15, 5, 0.9, 0));
+        when(cryptoStatsRepository.getCryptoStatsForRange("ETH", 2, fromDate, toDate)).thenReturn(new CryptoStats("ETH",
+                1, 1, 10, 40, 15, 5, 0.5, 0));
+        when(cryptoStatsRepository.getCryptoStatsForRange("LTC", 3, fromDate, toDate)).thenReturn(new CryptoStats("LTC",
+                1, 1, 10, 30, 15, 5, 0.7, 0));
+        when(cryptoStatsRepository.getCryptoStatsForRange("XRP", 4, fromDate, toDate)).thenReturn(new CryptoStats("XRP",
+                1, 1, 10, 30, 15, 5, 0.6, 0));
+
+        var cryptoList = cryptoService.getNormalizedCryptosListDescending(dateFrom, dateTo, 2, 1).getCryptoList();
+
+        assertThat(cryptoList).extracting(CryptoNormalizedRangeDto::getSymbol).containsExactly("LTC", "XRP");
+        assertThat(cryptoList).extracting(CryptoNormalizedRangeDto::getNormalizedPrice)
+                .containsExactly(new BigDecimal("2.0"), new BigDecimal("2.0"));
+    }
+
+    @Test
+    void getNormalizedCryptosListDescending_ordersByVolatility() {
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 11, 12, 13, 14, 15);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 14, 10, 14, 10, 14);
+
+        var byVolatility = cryptoService.getNormalizedCryptosListDescending(null, null, null, 0, "volatility")
+                .getCryptoList();
+        var byNormalizedRange = cryptoService.getNormalizedCryptosListDescending(null, null, null, 0,
+                "normalizedRange").getCryptoList();
+
+        assertThat(byVolatility).extracting(CryptoNormalizedRangeDto::getSymbol).containsExactly("BTC", "ETH");
+        assertThat(byVolatility.get(0).getVolatility()).isGreaterThan(byVolatility.get(1).getVolatility());
+        assertThat(byNormalizedRange).extracting(CryptoNormalizedRangeDto::getSymbol).containsExactly("ETH", "BTC");
+    }
+
+    @Test
+    void getNormalizedCryptosListDescending_rejectsUnsupportedOrder() {
+        assertThatThrownBy(() -> cryptoService.getNormalizedCryptosListDescending(null, null, null, 0, "price"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("price");
+    }
+
+    @Test
+    void getNormalizedCryptosListDescending_rebuildsAllTimeRankingOnlyAfterEpochChanged() {
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 5, 30);
+
+        cryptoService.getNormalizedCryptosListDescending(null, null);
+        cryptoService.getNormalizedCryptosListDescending(null, null);
+        verify(requestCoalescer, Mockito.times(1)).execute(Mockito.eq("ranking"), Mockito.any(), Mockito.any());
+
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 50);
+        var cryptoList = cryptoService.getNormalizedCryptosListDescending(null, null).getCryptoList();
+        verify(requestCoalescer, Mockito.times(2)).execute(Mockito.eq("ranking"), Mockito.any(), Mockito.any());
+        assertThat(cryptoList).extracting(CryptoNormalizedRangeDto::getSymbol).containsExactly("BTC", "ETH");
     }
 
     @Test
     void getNormalizedCryptosListDescending_returnsZeroForNoData() {
-        var cryptoSymbols = List.of("BTC");
         var dateFrom = LocalDate.of(2022, 2, 1);
         var dateTo = LocalDate.of(2022, 2, 12);
 
-        var btcStats = new CryptoStats("BTC",
-                BigDecimal.ZERO,  BigDecimal.ZERO,
-                BigDecimal.ZERO,  BigDecimal.ZERO);
-
-        when(cryptoRepository.getAllCryptoSymbols()).thenReturn(cryptoSymbols);
-        when(cryptoStatsRepository.getCryptoStatsForRange("BTC",
-                                            LocalDateTime.of(dateFrom, LocalTime.MIN),
-                                            LocalDateTime.of(dateTo, LocalTime.MIN)))
-                        .thenReturn(btcStats);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 5, 30);
 
         var normalizedCryptosListDescendingDto = cryptoService.getNormalizedCryptosListDescending(dateFrom, dateTo);
 
@@ -220,29 +522,83 @@ class CryptoRecommendationServiceTest {
 
     @Test
     void cryptoWithHighestNormalizedRangeByDay_returnsCorrectResults() {
-        var cryptoSymbols = List.of("BTC", "ETH");
-        var day = LocalDate.of(2022,1,1);
-        var fromDate = LocalDateTime.of(day, LocalTime.MIN);
-        var toDate = fromDate.plusDays(1);
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 50);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 5, 30);
 
-        var btcStats = new CryptoStats("BTC",
-                BigDecimal.valueOf(10), BigDecimal.valueOf(20),
-                BigDecimal.valueOf(5), BigDecimal.valueOf(30));
+        var cryptoWithHighestNormalizedRangeByDay =
+                cryptoService.cryptoWithHighestNormalizedRangeByDay(LocalDate.of(2022,1,1));
 
-        var ethStats = new CryptoStats("ETH",
-                BigDecimal.valueOf(20), BigDecimal.valueOf(30),
-                BigDecimal.valueOf(10), BigDecimal.valueOf(50));
+        assertThat(cryptoWithHighestNormalizedRangeByDay.getNormalizedPrice()).isEqualByComparingTo("5");
+        assertThat(cryptoWithHighestNormalizedRangeByDay.getSymbol()).isEqualTo("BTC");
+    }
 
-        when(cryptoRepository.getAllCryptoSymbols()).thenReturn(cryptoSymbols);
-        when(cryptoStatsRepository.getCryptoStatsForRange("BTC", fromDate, toDate))
-                .thenReturn(btcStats);
-        when(cryptoStatsRepository.getCryptoStatsForRange("ETH",fromDate, toDate))
-                .thenReturn(ethStats);
+    @Test
+    void cryptoWithHighestNormalizedRangeByDay_returnsZeroForNoData() {
+        var cryptoWithHighestNormalizedRangeByDay =
+                cryptoService.cryptoWithHighestNormalizedRangeByDay(LocalDate.of(2022,1,1));
 
-        var cryptoWithHighestNormalizedRangeByDay = cryptoService.cryptoWithHighestNormalizedRangeByDay(day);
+        assertThat(cryptoWithHighestNormalizedRangeByDay.getNormalizedPrice()).isEqualTo(BigDecimal.ZERO);
+        assertThat(cryptoWithHighestNormalizedRangeByDay.getSymbol()).isEmpty();
+    }
 
-        assertThat(cryptoWithHighestNormalizedRangeByDay.getNormalizedPrice()).isEqualTo(BigDecimal.valueOf(5));
-        assertThat(cryptoWithHighestNormalizedRangeByDay.getSymbol()).isEqualTo("BTC");
+    @Test
+    void saveCrypto_updatesDailyLeaderOnlyWhenNormalizedRangeIsHigher() {
+        var firstDay = LocalDate.of(2022, 1, 1);
+        var secondDay = LocalDate.of(2022, 1, 2);
+        cryptoService.saveCrypto("ETH", CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(10.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 12, 0), BigDecimal.valueOf(11.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(10.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 12, 0), BigDecimal.valueOf(12.0)))));
+        var prices = CryptoPriceSeries.fromPrices(List.of(
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), BigDecimal.valueOf(10.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 12, 0), BigDecimal.valueOf(15.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 0, 0), BigDecimal.valueOf(10.0)),
+                new CryptoPrice(LocalDateTime.of(2022, 1, 2, 12, 0), BigDecimal.valueOf(11.0))));
+
+        cryptoService.saveCrypto("BTC", prices);
+
+        assertThat(cryptoEpochs.current().getDailyLeader(firstDay)).isEqualTo(new CryptoNormalizedRange("BTC", 5, 1));
+        assertThat(cryptoEpochs.current().getDailyLeader(secondDay)).isEqualTo(new CryptoNormalizedRange("ETH", 2, 1));
+    }
+
+    @Test
+    void saveCrypto_publishesDailyLeadersWithPricesOfTheSameEpoch() {
+        var day = LocalDate.of(2022, 1, 1);
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 20);
+        saveCrypto("ETH", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 15);
+        var previousEpoch = cryptoEpochs.current();
+
+        saveCrypto("BTC", LocalDateTime.of(2022, 1, 1, 0, 0), 10, 11);
+
+        assertThat(previousEpoch.getDailyLeader(day).getSymbol()).isEqualTo("BTC");
+        assertThat(cryptoEpochs.current().getDailyLeader(day).getSymbol()).isEqualTo("ETH");
+        assertThat(cryptoService.cryptoWithHighestNormalizedRangeByDay(day).getSymbol()).isEqualTo("ETH");
+    }
+
+    /**
+     * Saves crypto with one price per hour from the time on.
+     */
+    private void saveCrypto(String cryptoSymbol, LocalDateTime dateTime, double... prices) {
+        var series = new CryptoPriceSeries();
+        for (int i = 0; i < prices.length; i++) {
+            series.append(dateTime.plusHours(i).toInstant(ZoneOffset.UTC).toEpochMilli(), prices[i]);
+        }
+        cryptoService.saveCrypto(cryptoSymbol, series);
+    }
+
+    private static long toEpochMilli(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private List<CryptoPrice> toCryptoPrices(CryptoPriceSeries series) {
+        var prices = new ArrayList<CryptoPrice>();
+        for (int i = 0; i < series.size(); i++) {
+            prices.add(new CryptoPrice(
+                    LocalDateTime.ofEpochSecond(series.getTimestamp(i) / 1000, 0, ZoneOffset.UTC),
+                    BigDecimal.valueOf(series.getPrice(i))));
+        }
+        return prices;
     }
 
 }
@@ -0,0 +1,65 @@
+package com.example.cryptorecommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CryptoShardRingTest {
+
+    private static final List<String> NODES = List.of("http://localhost:8080", "http://localhost:8081",
+            "http://localhost:8082");
+
+    private static final List<String> SYMBOLS = IntStream.range(0, 3000).mapToObj(i -> "SYM" + i).toList();
+
+    @Test
+    void getNode_assignsSymbolsSameWayOnEveryNodeAndIgnoresCase() {
+        var ring = new CryptoShardRing(NODES, 128);
+        var otherRing = new CryptoShardRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 128);
+
+        for (var symbol : SYMBOLS) {
+            assertThat(otherRing.getNode(symbol)).isEqualTo(ring.getNode(symbol));
+        }
+        assertThat(ring.getNode("btc")).isEqualTo(ring.getNode("BTC"));
+    }
+
+    @Test
+    void getNode_spreadsSymbolsEvenlyAcrossNodes() {
+        var ring = new CryptoShardRing(NODES, 128);
+
+        var symbolsPerNode = new HashMap<String, Integer>();
+        SYMBOLS.forEach(symbol -> symbolsPerNode.merge(ring.getNode(symbol), 1, Integer::sum));
+
+        assertThat(symbolsPerNode).containsOnlyKeys(NODES);
+        assertThat(symbolsPerNode.values()).allSatisfy(symbols -> assertThat(symbols).isBetween(750, 1250));
+    }
+
+    @Test
+    void getNode_movesOnlySymbolsOfAddedNode() {
+        var ring = new CryptoShardRing(NODES, 128);
+        var newNode = "http://localhost:8083";
+        var grownRing = new CryptoShardRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), newNode), 128);
+
+        var movedSymbols = 0;
+        for (var symbol : SYMBOLS) {
+            var node = grownRing.getNode(symbol);
+            if (!node.equals(ring.getNode(symbol))) {
+                assertThat(node).isEqualTo(newNode);
+                movedSymbols++;
+            }
+        }
+        assertThat(movedSymbols).isBetween(550, 950);
+    }
+
+    @Test
+    void constructor_rejectsEmptyNodes() {
+        assertThatThrownBy(() -> new CryptoShardRing(List.of(), 128))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CryptoShardRing(NODES, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoSnapshotStoreTest {
+
+    @Test
+    void read_returnsSeriesWrittenFromSameSourceFiles(@TempDir Path directory) throws IOException {
+        var snapshotStore = new CryptoSnapshotStore(true, directory.resolve("prices.snapshot").toString());
+        var btc = new CryptoPriceSeries(2);
+        for (int i = 0; i < CryptoPriceSeries.CHUNK_SIZE + 5; i++) {
+            btc.append(1641009600000L + i * 60_000L, 46813.21 + i / 100.0);
+        }
+        var eth = new CryptoPriceSeries(3);
+        eth.append(1641009600000L, 3715.32);
+        var sourceFiles = List.of(
+                new CryptoSnapshotStore.SourceFile("BTC", "/prices/BTC_values.csv", 1000, 1),
+                new CryptoSnapshotStore.SourceFile("ETH", "/prices/ETH_values.csv", 100, 2));
+
+        snapshotStore.write(Map.of("BTC", btc, "ETH", eth), sourceFiles);
+        var cryptoData = snapshotStore.read(List.of(sourceFiles.get(1), sourceFiles.get(0)));
+
+        assertThat(cryptoData).containsOnlyKeys("BTC", "ETH");
+        assertThat(cryptoData.get("BTC").size()).isEqualTo(btc.size());
+        for (int i = 0; i < btc.size(); i++) {
+            assertThat(cryptoData.get("BTC").getTimestamp(i)).isEqualTo(btc.getTimestamp(i));
+            assertThat(cryptoData.get("BTC").getPrice(i)).isEqualTo(btc.getPrice(i));
+        }
+        assertThat(cryptoData.get("BTC").getScale()).isEqualTo(2);
+        assertThat(cryptoData.get("ETH").getScale()).isEqualTo(3);
+        assertThat(cryptoData.get("ETH").getDailyRollup(1641009600000L / 86_400_000L).open()).isEqualTo(3_715_320);
+    }
+
+    @Test
+    void read_returnsNullIfSnapshotIsStaleOrMissing(@TempDir Path directory) throws IOException {
+        var snapshotFile = directory.resolve("prices.snapshot");
+        var snapshotStore = new CryptoSnapshotStore(true, snapshotFile.toString());
+        var series = new CryptoPriceSeries();
+        series.append(1641009600000L, 46813.21);
+        var sourceFile = new CryptoSnapshotStore.SourceFile("BTC", "/prices/BTC_values.csv", 1000, 1);
+
+        assertThat(snapshotStore.read(List.of(sourceFile))).isNull();
+
+        snapshotStore.write(Map.of("BTC", series), List.of(sourceFile));
+
+        assertThat(snapshotStore.read(List.of(
+                new CryptoSnapshotStore.SourceFile("BTC", "/prices/BTC_values.csv", 1024, 3)))).isNull();
+        assertThat(snapshotStore.read(List.of(sourceFile,
+                new CryptoSnapshotStore.SourceFile("ETH", "/prices/ETH_values.csv", 100, 2)))).isNull();
+        assertThat(new CryptoSnapshotStore(false, snapshotFile.toString()).read(List.of(sourceFile))).isNull();
+        assertThat(Files.exists(directory.resolve("prices.snapshot.tmp"))).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.cryptorecommendation.service;
+
+import com.example.cryptorecommendation.entity.CryptoPriceSeries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.annotation.OrderUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CryptoStatsWarmerTest {
+
+    @Mock
+    private CryptoRecommendationService cryptoRecommendationService;
+
+    @Mock
+    private CryptoLoader cryptoLoader;
+
+    private final CryptoEpochs cryptoEpochs = new CryptoEpochs();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CryptoStatsWarmer cryptoStatsWarmer;
+
+    @AfterEach
+    void tearDown() {
+        cryptoStatsWarmer.shutdown();
+    }
+
+    @Test
+    void getWarmUpRanges_returnsDaysWeeksAndMonthsOfLastDays() {
+        cryptoStatsWarmer = createWarmer(3);
+        var prices = new CryptoPriceSeries();
+        prices.append(toEpochMilli(LocalDateTime.of(2022, 1, 1, 10, 0)), 1.0);
+        prices.append(toEpochMilli(LocalDateTime.of(2022, 2, 1, 10, 0)), 2.0);
+        publishCrypto("BTC", prices);
+
+        assertThat(cryptoStatsWarmer.getWarmUpRanges()).containsExactly(
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 1, 30), LocalDate.of(2022, 1, 31)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 1, 31), LocalDate.of(2022, 2, 1)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 2, 1), LocalDate.of(2022, 2, 2)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 1, 24), LocalDate.of(2022, 1, 31)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 1, 31), LocalDate.of(2022, 2, 7)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 2, 1)),
+                new CryptoStatsWarmer.WarmUpRange("BTC", LocalDate.of(2022, 2, 1), LocalDate.of(2022, 3, 1)));
+    }
+
+    @Test
+    void warmUpOnStartup_calculatesStatsOfAllRanges() {
+        cryptoStatsWarmer = createWarmer(1);
+        var prices = new CryptoPriceSeries();
+        prices.append(toEpochMilli(LocalDateTime.of(2022, 1, 1, 10, 0)), 1.0);
+        when(cryptoLoader.isCryptoDataLoaded()).thenReturn(true);
+        publishCrypto("BTC", prices);
+
+        cryptoStatsWarmer.warmUpOnStartup();
+
+        verify(cryptoRecommendationService).getCryptoStats("BTC",
+                LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 2, 0, 0));
+        verify(cryptoRecommendationService).getCryptoStats("BTC",
+                LocalDateTime.of(2021, 12, 27, 0, 0), LocalDateTime.of(2022, 1, 3, 0, 0));
+        verify(cryptoRecommendationService).getCryptoStats("BTC",
+                LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 2, 1, 0, 0));
+        assertThat(meterRegistry.get("crypto.warm-up.duration").tag("type", "startup").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void warmUpOnStartup_runsAfterCryptoLoader() throws NoSuchMethodException {
+        cryptoStatsWarmer = createWarmer(1);
+        var loaderOrder = OrderUtils.getOrder(CryptoLoader.class.getMethod("loadCryptoData"));
+        var warmerOrder = OrderUtils.getOrder(CryptoStatsWarmer.class.getMethod("warmUpOnStartup"));
+
+        assertThat(loaderOrder).isLessThan(warmerOrder);
+    }
+
+    @Test
+    void warmUpOnStartup_skipsWarmUpAndRefreshWhenDataIsNotLoaded() {
+        cryptoStatsWarmer = createWarmer(1);
+
+        cryptoStatsWarmer.warmUpOnStartup();
+        cryptoStatsWarmer.refresh();
+
+        verify(cryptoRecommendationService, never()).getCryptoStats(any(), any(), any());
+    }
+
+    private CryptoStatsWarmer createWarmer(int days) {
+        return new CryptoStatsWarmer(cryptoRecommendationService, cryptoEpochs, cryptoLoader, meterRegistry,
+                days, 2);
+    }
+
+    private void publishCrypto(String symbol, CryptoPriceSeries prices) {
+        cryptoEpochs.publish(cryptoEpochs.current().withCrypto(symbol, prices, null));
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
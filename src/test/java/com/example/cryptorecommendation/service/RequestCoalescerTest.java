@@ -0,0 +1,83 @@
+package com.example.cryptorecommendation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry);
+
+    @Test
+    void execute_runsConcurrentCallsWithSameKeyOnce() throws Exception {
+        var callers = 8;
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(callers);
+        try {
+            var results = new ArrayList<Future<String>>();
+            results.add(executor.submit(() -> requestCoalescer.execute("stats", "BTC", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "stats";
+            })));
+            while (calls.get() == 0) {
+                Thread.onSpinWait();
+            }
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> requestCoalescer.execute("stats", "BTC", () -> {
+                    calls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (coalescedCalls() < callers - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (var result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("stats");
+            }
+            assertThat(calls).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(requestCoalescer.execute("stats", "BTC", () -> "next")).isEqualTo("next");
+        assertThat(requestCoalescer.execute("ranking", "BTC", () -> "ranking")).isEqualTo("ranking");
+    }
+
+    @Test
+    void execute_rethrowsExceptionOfCallAndForgetsIt() {
+        assertThatThrownBy(() -> requestCoalescer.execute("stats", "BTC", () -> {
+            throw new IllegalArgumentException("Invalid range.");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("Invalid range.");
+
+        assertThat(requestCoalescer.execute("stats", "BTC", () -> "stats")).isEqualTo("stats");
+    }
+
+    private double coalescedCalls() {
+        var counter = meterRegistry.find("crypto.coalesced.calls").tag("call", "stats").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}